@@ -0,0 +1,82 @@
+package com.utsoft.blockchain.bench;
+import java.io.IOException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import com.utsoft.blockchain.api.security.BcECKey;
+import com.utsoft.blockchain.api.security.FamilySecCrypto;
+import com.utsoft.blockchain.api.security.bc.RbcAddress;
+/**
+ * BcECKey 地址推导基准: 公钥/私钥推导单个地址,及批量并行推导
+ * @author hunterfox
+ * @date: 2017年10月16日
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddressDerivationBenchmark {
+
+	private static final int BATCH = 256;
+
+	@Param({ "DEFAULT", "FAST" })
+	public String suite;
+
+	private FamilySecCrypto familySecCrypto;
+	private String publicKey;
+	private String privateKey;
+	private List<String> publicKeys;
+
+	@Setup
+	public void setUp() throws Exception {
+		familySecCrypto = FamilySecCrypto.Factory.getCryptoSuite(suite);
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("ECDSA", "BC");
+		generator.initialize(new ECGenParameterSpec("secp256r1"));
+		publicKeys = new ArrayList<>(BATCH);
+		for (int i = 0; i < BATCH; i++) {
+			KeyPair keyPair = generator.generateKeyPair();
+			publicKeys.add(familySecCrypto.convertPublicKey(keyPair.getPublic()));
+			if (i == 0) {
+				privateKey = familySecCrypto.convertPrivatelicKey(keyPair.getPrivate());
+			}
+		}
+		publicKey = publicKeys.get(0);
+	}
+
+	@Benchmark
+	public RbcAddress fromPublicKey() throws Exception {
+		return new BcECKey(familySecCrypto).loadAddressByPublickey(publicKey);
+	}
+
+	@Benchmark
+	public RbcAddress fromPrivateKey() throws Exception {
+		return new BcECKey(familySecCrypto).loadAddressByPrivatekey(privateKey);
+	}
+
+	@Benchmark
+	public List<RbcAddress> fromPublicKeysBatch() {
+		return BcECKey.loadAddressesByPublickey(familySecCrypto, publicKeys);
+	}
+
+	public static void main(String[] args) throws RunnerException, IOException {
+		BenchmarkRunner.run(BenchmarkRunner.options(AddressDerivationBenchmark.class));
+	}
+}
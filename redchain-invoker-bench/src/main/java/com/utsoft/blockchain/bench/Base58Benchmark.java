@@ -0,0 +1,163 @@
+package com.utsoft.blockchain.bench;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import com.utsoft.blockchain.api.security.bc.RbcAddress;
+import com.utsoft.blockchain.api.util.Constants;
+import com.utsoft.blockchain.api.util.SuiteBase58;
+/**
+ * base58 及地址校验基准
+ * <p>
+ * legacy* 为改造前逐字节 divmod 实现,仅用于对比;
+ * validateBatch 在首轮之后命中最近地址缓存,validateBatchUncached 每次新建地址对象
+ * @author hunterfox
+ * @date: 2017年10月15日
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Base58Benchmark {
+
+	private static final int BATCH = 1000;
+	private static final int[] LEGACY_INDEXES = new int[128];
+
+	static {
+		Arrays.fill(LEGACY_INDEXES, -1);
+		for (int i = 0; i < SuiteBase58.ALPHABET.length; i++) {
+			LEGACY_INDEXES[SuiteBase58.ALPHABET[i]] = i;
+		}
+	}
+
+	private byte[] addressBytes;
+	private String address;
+	private List<String> addresses;
+
+	@Setup
+	public void setUp() throws Exception {
+		Random random = new Random(20171015L);
+		addresses = new ArrayList<>(BATCH);
+		for (int i = 0; i < BATCH; i++) {
+			byte[] hash160 = new byte[20];
+			random.nextBytes(hash160);
+			addresses.add(new RbcAddress(Constants.BC_ADDRESS_VERSION, hash160).toBase58());
+		}
+		address = addresses.get(0);
+		addressBytes = SuiteBase58.decode(address);
+	}
+
+	@Benchmark
+	public String encode() {
+		return SuiteBase58.encode(addressBytes);
+	}
+
+	@Benchmark
+	public byte[] decode() throws Exception {
+		return SuiteBase58.decode(address);
+	}
+
+	@Benchmark
+	public String legacyEncode() {
+		return legacyEncode(addressBytes);
+	}
+
+	@Benchmark
+	public byte[] legacyDecode() {
+		return legacyDecode(address);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public boolean[] validateBatch() {
+		return RbcAddress.validateAll(addresses);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public int validateBatchUncached() throws Exception {
+		int valid = 0;
+		for (String encoded : addresses) {
+			new RbcAddress(encoded);
+			valid++;
+		}
+		return valid;
+	}
+
+	private static String legacyEncode(byte[] source) {
+		int zeros = 0;
+		while (zeros < source.length && source[zeros] == 0) {
+			++zeros;
+		}
+		byte[] input = Arrays.copyOf(source, source.length);
+		char[] encoded = new char[input.length * 2];
+		int outputStart = encoded.length;
+		for (int inputStart = zeros; inputStart < input.length;) {
+			encoded[--outputStart] = SuiteBase58.ALPHABET[divmod(input, inputStart, 256, 58)];
+			if (input[inputStart] == 0) {
+				++inputStart;
+			}
+		}
+		while (outputStart < encoded.length && encoded[outputStart] == SuiteBase58.ALPHABET[0]) {
+			++outputStart;
+		}
+		while (--zeros >= 0) {
+			encoded[--outputStart] = SuiteBase58.ALPHABET[0];
+		}
+		return new String(encoded, outputStart, encoded.length - outputStart);
+	}
+
+	private static byte[] legacyDecode(String source) {
+		byte[] input58 = new byte[source.length()];
+		for (int i = 0; i < source.length(); ++i) {
+			input58[i] = (byte) LEGACY_INDEXES[source.charAt(i)];
+		}
+		int zeros = 0;
+		while (zeros < input58.length && input58[zeros] == 0) {
+			++zeros;
+		}
+		byte[] decoded = new byte[source.length()];
+		int outputStart = decoded.length;
+		for (int inputStart = zeros; inputStart < input58.length;) {
+			decoded[--outputStart] = divmod(input58, inputStart, 58, 256);
+			if (input58[inputStart] == 0) {
+				++inputStart;
+			}
+		}
+		while (outputStart < decoded.length && decoded[outputStart] == 0) {
+			++outputStart;
+		}
+		return Arrays.copyOfRange(decoded, outputStart - zeros, decoded.length);
+	}
+
+	private static byte divmod(byte[] number, int firstDigit, int base, int divisor) {
+		int remainder = 0;
+		for (int i = firstDigit; i < number.length; i++) {
+			int digit = (int) number[i] & 0xFF;
+			int temp = remainder * base + digit;
+			number[i] = (byte) (temp / divisor);
+			remainder = temp % divisor;
+		}
+		return (byte) remainder;
+	}
+
+	public static void main(String[] args) throws RunnerException, IOException {
+		BenchmarkRunner.run(BenchmarkRunner.options(Base58Benchmark.class));
+	}
+}
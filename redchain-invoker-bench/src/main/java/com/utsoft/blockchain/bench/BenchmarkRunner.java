@@ -0,0 +1,182 @@
+package com.utsoft.blockchain.bench;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.profile.StackProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+/**
+ * 基准入口
+ * <p>
+ * 以 GC profiler 运行(报告每次操作分配字节数 gc.alloc.rate.norm),
+ * 结果以 JMH JSON 格式写入 {@code bench.output}(默认 baselines/)下的时间戳文件并覆盖 latest.json;
+ * 指定 {@code -Dbench.baseline=baselines/xxx.json} 时与之对比,
+ * 得分或分配量劣化超过 {@code bench.threshold}(默认 0.10)即列出,{@code bench.failOnRegression=true} 时以非 0 退出。
+ * <pre>
+ * java -jar redchain-invoker-bench/target/benchmarks.jar [include regex ...]
+ * java -Dbench.baseline=baselines/latest.json -jar benchmarks.jar Cryption Base58
+ * </pre>
+ * 也可直接运行各基准类的 main,单独跑一个类
+ * @author hunterfox
+ * @date: 2017年10月16日
+ * @version 1.0.0
+ */
+public class BenchmarkRunner {
+
+	private static final String ALLOC_NORM = "·gc.alloc.rate.norm";
+	/**
+	 * 分配量低于该值(字节/次)时不计劣化,避免 0 附近的噪声
+	 */
+	private static final double ALLOC_NOISE_BYTES = 16;
+
+	public static void main(String[] args) throws RunnerException, IOException {
+		ChainedOptionsBuilder builder = options();
+		if (args.length == 0) {
+			builder.include(".*Benchmark.*");
+		}
+		for (String include : args) {
+			builder.include(include);
+		}
+		run(builder);
+	}
+
+	/**
+	 * 公共选项: GC profiler,JSON 结果文件;{@code -Dbench.stack=true} 时附加栈采样
+	 * @return
+	 */
+	public static ChainedOptionsBuilder options() {
+		ChainedOptionsBuilder builder = new OptionsBuilder().addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON);
+		if (Boolean.getBoolean("bench.stack")) {
+			builder.addProfiler(StackProfiler.class);
+		}
+		return builder;
+	}
+
+	/**
+	 * 单个基准类
+	 * @param benchmark
+	 * @return
+	 */
+	public static ChainedOptionsBuilder options(Class<?> benchmark) {
+		return options().include(benchmark.getSimpleName());
+	}
+
+	/**
+	 * 运行,写入基线并与已有基线对比
+	 * @param builder
+	 * @return
+	 * @throws RunnerException
+	 * @throws IOException
+	 */
+	public static Collection<RunResult> run(ChainedOptionsBuilder builder) throws RunnerException, IOException {
+		File outputDir = new File(System.getProperty("bench.output", "baselines"));
+		if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+			throw new IOException("can not create baseline directory " + outputDir.getAbsolutePath());
+		}
+		// 先读入对比基线,本次结果会覆盖 latest.json
+		String baseline = System.getProperty("bench.baseline");
+		Map<String, Object[]> previous = baseline == null ? null : load(new File(baseline));
+		File result = new File(outputDir, new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".json");
+		Collection<RunResult> results = new Runner(builder.result(result.getPath()).build()).run();
+		Files.copy(result.toPath(), new File(outputDir, "latest.json").toPath(), StandardCopyOption.REPLACE_EXISTING);
+		System.out.println("baseline written to " + result.getAbsolutePath());
+
+		if (previous != null) {
+			List<String> regressions = compare(previous, results,
+					Double.parseDouble(System.getProperty("bench.threshold", "0.10")));
+			if (regressions.isEmpty()) {
+				System.out.println("no regression against " + baseline);
+			} else {
+				System.out.println(regressions.size() + " regression(s) against " + baseline + ":");
+				regressions.forEach(line -> System.out.println("  " + line));
+				if (Boolean.getBoolean("bench.failOnRegression")) {
+					System.exit(1);
+				}
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * 读取 JMH JSON 结果: key 为 基准名@线程数+参数,value 为 [模式, 得分, 分配字节/次(无则 NaN)]
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	static Map<String, Object[]> load(File file) throws IOException {
+		JSONArray runs = JSON.parseArray(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+		Map<String, Object[]> baseline = new LinkedHashMap<>();
+		for (int i = 0; i < runs.size(); i++) {
+			JSONObject run = runs.getJSONObject(i);
+			JSONObject params = run.getJSONObject("params");
+			Map<String, String> sorted = new TreeMap<>();
+			if (params != null) {
+				params.forEach((name, value) -> sorted.put(name, String.valueOf(value)));
+			}
+			JSONObject secondary = run.getJSONObject("secondaryMetrics");
+			JSONObject alloc = secondary == null ? null : secondary.getJSONObject(ALLOC_NORM);
+			baseline.put(key(run.getString("benchmark"), run.getIntValue("threads"), sorted), new Object[] { run.getString("mode"),
+					run.getJSONObject("primaryMetric").getDoubleValue("score"),
+					alloc == null ? Double.NaN : alloc.getDoubleValue("score") });
+		}
+		return baseline;
+	}
+
+	static List<String> compare(Map<String, Object[]> baseline, Collection<RunResult> results, double threshold) {
+		List<String> regressions = new ArrayList<>();
+		for (RunResult runResult : results) {
+			String benchmark = runResult.getParams().getBenchmark();
+			Map<String, String> params = new TreeMap<>();
+			for (String name : runResult.getParams().getParamsKeys()) {
+				params.put(name, runResult.getParams().getParam(name));
+			}
+			String key = key(benchmark, runResult.getParams().getThreads(), params);
+			Object[] previous = baseline.get(key);
+			if (previous == null) {
+				continue;
+			}
+			Result<?> primary = runResult.getPrimaryResult();
+			double before = (Double) previous[1];
+			double now = primary.getScore();
+			// 吞吐量越大越好,其余模式(平均/采样/单次耗时)越小越好
+			double change = "thrpt".equals(previous[0]) ? (before - now) / before : (now - before) / before;
+			if (before > 0 && change > threshold) {
+				regressions.add(String.format("%s score %.3f -> %.3f %s (%+.1f%%)", key, before, now,
+						primary.getScoreUnit(), change * 100));
+			}
+			Result<?> alloc = runResult.getSecondaryResults().get(ALLOC_NORM);
+			double allocBefore = (Double) previous[2];
+			if (alloc != null && !Double.isNaN(allocBefore)) {
+				double allocNow = alloc.getScore();
+				if (allocNow > ALLOC_NOISE_BYTES && allocNow > allocBefore * (1 + threshold)) {
+					regressions.add(String.format("%s alloc %.1f -> %.1f B/op", key, allocBefore, allocNow));
+				}
+			}
+		}
+		return regressions;
+	}
+
+	private static String key(String benchmark, int threads, Map<String, String> params) {
+		return benchmark + "@" + threads + (params.isEmpty() ? "" : params.toString());
+	}
+}
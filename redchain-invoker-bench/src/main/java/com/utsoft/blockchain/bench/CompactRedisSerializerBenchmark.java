@@ -0,0 +1,101 @@
+package com.utsoft.blockchain.bench;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import com.utsoft.blockchain.api.pojo.BaseResponseModel;
+import com.utsoft.blockchain.api.pojo.TkcSubmitRspVo;
+import com.utsoft.blockchain.api.pojo.TkcTransferModel;
+import com.utsoft.blockchain.core.util.CompactRedisSerializer;
+/**
+ * redis 序列化基准: JDK vs 紧凑二进制
+ * <p>
+ * 运行 main 时同时打印两种格式的字节数
+ * @author hunterfox
+ * @date: 2017年10月12日
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactRedisSerializerBenchmark {
+
+	@Param({ "jdk", "compact" })
+	public String codec;
+
+	private RedisSerializer<Object> serializer;
+	private TkcTransferModel transferModel;
+	private BaseResponseModel<TkcSubmitRspVo> submitOutcome;
+	private byte[] transferBytes;
+	private byte[] outcomeBytes;
+
+	@Setup
+	public void setUp() {
+		serializer = "compact".equals(codec) ? new CompactRedisSerializer() : new JdkSerializationRedisSerializer();
+		transferModel = newTransferModel();
+		submitOutcome = newSubmitOutcome();
+		transferBytes = serializer.serialize(transferModel);
+		outcomeBytes = serializer.serialize(submitOutcome);
+	}
+
+	@Benchmark
+	public byte[] serializeTransfer() {
+		return serializer.serialize(transferModel);
+	}
+
+	@Benchmark
+	public Object deserializeTransfer() {
+		return serializer.deserialize(transferBytes);
+	}
+
+	@Benchmark
+	public byte[] serializeOutcome() {
+		return serializer.serialize(submitOutcome);
+	}
+
+	@Benchmark
+	public Object deserializeOutcome() {
+		return serializer.deserialize(outcomeBytes);
+	}
+
+	static TkcTransferModel newTransferModel() {
+		TkcTransferModel model = new TkcTransferModel("2NEpo7TZRRrLZSi2U4DXmYbWcR4Ek3gAdeEWdN7xe8XJnAoKuLodfsq", "tkc-app-001", "transfer");
+		model.setFrom("1BoatSLRHtKNngkdXEeobR76b53LETtpyT");
+		model.setTo("1KFHE7w8BhaENAswwryaoccDb6qcT6DbYY");
+		model.setCreated("3591848218148864");
+		model.setSubmitJson("{\"amount\":\"100.00\",\"memo\":\"order-20171012-0001\"}");
+		model.getExternals().put("orderId", "20171012000001");
+		return model;
+	}
+
+	static BaseResponseModel<TkcSubmitRspVo> newSubmitOutcome() {
+		TkcSubmitRspVo result = new TkcSubmitRspVo();
+		result.setTxId("5c1b8e0d93d84d5fb3b4cbd1b7f1d3a2e9c5d0f6a7b8c9d0e1f2a3b4c5d6e7f8");
+		result.setStatus(1);
+		result.getExternals().put("orderId", "20171012000001");
+		return BaseResponseModel.build(result);
+	}
+
+	public static void main(String[] args) throws RunnerException, IOException {
+		RedisSerializer<Object> jdk = new JdkSerializationRedisSerializer();
+		RedisSerializer<Object> compact = new CompactRedisSerializer();
+		System.out.println("transfer bytes jdk=" + jdk.serialize(newTransferModel()).length + " compact=" + compact.serialize(newTransferModel()).length);
+		System.out.println("outcome bytes jdk=" + jdk.serialize(newSubmitOutcome()).length + " compact=" + compact.serialize(newSubmitOutcome()).length);
+		BenchmarkRunner.run(BenchmarkRunner.options(CompactRedisSerializerBenchmark.class));
+	}
+}
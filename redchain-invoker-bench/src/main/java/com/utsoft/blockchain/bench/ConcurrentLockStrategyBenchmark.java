@@ -0,0 +1,113 @@
+package com.utsoft.blockchain.bench;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.RunnerException;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import com.utsoft.blockchain.core.rpc.locker.ConcurrentLockStrategy;
+import com.utsoft.blockchain.core.rpc.locker.DefaultConcurrentLockStrategy;
+import com.utsoft.blockchain.core.rpc.locker.LocalConcurrentLockStrategy;
+/**
+ * 牌照锁定策略基准: 内存时间轮 vs redis
+ * <p>
+ * redis 地址通过 -Dredis.host / -Dredis.port 指定,
+ * 运行 main 依次以 1/4/16 线程压测,addresses 越小热点冲突越高
+ * @author hunterfox
+ * @date: 2017年10月9日
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentLockStrategyBenchmark {
+
+	@Param({ "local", "redis" })
+	public String strategy;
+
+	@Param({ "16", "4096" })
+	public int addresses;
+
+	private ConcurrentLockStrategy lockStrategy;
+	private JedisConnectionFactory connectionFactory;
+	private String[] pool;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		pool = new String[addresses];
+		for (int i = 0; i < addresses; i++) {
+			pool[i] = "bench-address-" + i;
+		}
+		if ("redis".equals(strategy)) {
+			connectionFactory = new JedisConnectionFactory();
+			connectionFactory.setHostName(System.getProperty("redis.host", "127.0.0.1"));
+			connectionFactory.setPort(Integer.getInteger("redis.port", 6379));
+			connectionFactory.setUsePool(true);
+			connectionFactory.getPoolConfig().setMaxTotal(64);
+			connectionFactory.afterPropertiesSet();
+			StringRedisTemplate redisTemplate = new StringRedisTemplate(connectionFactory);
+			lockStrategy = new DefaultConcurrentLockStrategy(redisTemplate);
+		} else {
+			lockStrategy = new LocalConcurrentLockStrategy();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		for (String address : pool) {
+			lockStrategy.releaseToken(address);
+		}
+		if (lockStrategy instanceof LocalConcurrentLockStrategy) {
+			((LocalConcurrentLockStrategy) lockStrategy).shutdown();
+		}
+		if (connectionFactory != null) {
+			connectionFactory.destroy();
+		}
+	}
+
+	/**
+	 * 与 TransactionSequencingService 一致: 检查 -> 申请 -> 校验 -> 释放
+	 */
+	@Benchmark
+	public void applyAndRelease(Blackhole blackhole) {
+		String address = pool[ThreadLocalRandom.current().nextInt(addresses)];
+		if (lockStrategy.isAddressAvailable(address)) {
+			blackhole.consume(false);
+			return;
+		}
+		String code = lockStrategy.applyTransactionToken(address);
+		blackhole.consume(code.equals(lockStrategy.getTransactionToken(address)));
+		lockStrategy.releaseToken(address);
+	}
+
+	@Benchmark
+	public boolean isAddressAvailable() {
+		return lockStrategy.isAddressAvailable(pool[ThreadLocalRandom.current().nextInt(addresses)]);
+	}
+
+	public static void main(String[] args) throws RunnerException, IOException {
+		for (int threads : new int[] { 1, 4, 16 }) {
+			BenchmarkRunner.run(BenchmarkRunner.options(ConcurrentLockStrategyBenchmark.class)
+					.threads(threads)
+					.jvmArgsAppend("-Dredis.host=" + System.getProperty("redis.host", "127.0.0.1"),
+							"-Dredis.port=" + System.getProperty("redis.port", "6379")));
+		}
+	}
+}
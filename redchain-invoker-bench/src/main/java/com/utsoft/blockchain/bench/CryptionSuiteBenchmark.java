@@ -0,0 +1,96 @@
+package com.utsoft.blockchain.bench;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import com.utsoft.blockchain.api.security.FamilySecCrypto;
+import com.utsoft.blockchain.api.util.SdkUtil;
+/**
+ * 加解密套件基准: DEFAULT(JCA) vs FAST(BC 轻量 API 单例)
+ * <p>
+ * 覆盖签名、验签、摘要、私钥加载及套件获取
+ * @author hunterfox
+ * @date: 2017年10月14日
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class CryptionSuiteBenchmark {
+
+	private static final String SIGNATURE_ALGORITHM = "SHA256withECDSA";
+
+	@Param({ "DEFAULT", "FAST" })
+	public String suite;
+
+	private FamilySecCrypto familySecCrypto;
+	private String privateKeyHex;
+	private PrivateKey privateKey;
+	private PublicKey publicKey;
+	private byte[] plainText;
+	private byte[] signature;
+
+	@Setup
+	public void setUp() throws Exception {
+		familySecCrypto = FamilySecCrypto.Factory.getCryptoSuite(suite);
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("ECDSA", "BC");
+		generator.initialize(new ECGenParameterSpec("secp256r1"));
+		KeyPair keyPair = generator.generateKeyPair();
+		privateKeyHex = familySecCrypto.convertPrivatelicKey(keyPair.getPrivate());
+		privateKey = familySecCrypto.loadPrivateKeyByStr(privateKeyHex);
+		publicKey = familySecCrypto.loadPublicKeyByStr(SdkUtil.encodeHexString(keyPair.getPublic().getEncoded()));
+		plainText = "tkc&3591848218148864&1BoatSLRHtKNngkdXEeobR76b53LETtpyT&transfer&{\"amount\":\"100.00\"}&1KFHE7w8BhaENAswwryaoccDb6qcT6DbYY"
+				.getBytes(StandardCharsets.UTF_8);
+		signature = familySecCrypto.sign(privateKey, plainText);
+	}
+
+	@Benchmark
+	public byte[] sign() throws Exception {
+		return familySecCrypto.sign(privateKey, plainText);
+	}
+
+	@Benchmark
+	public boolean verify() throws Exception {
+		return familySecCrypto.verifySignatureByPublic(publicKey, SIGNATURE_ALGORITHM, signature, plainText);
+	}
+
+	@Benchmark
+	public byte[] hash() {
+		return familySecCrypto.hash(plainText);
+	}
+
+	@Benchmark
+	public PrivateKey loadPrivateKey() throws Exception {
+		return familySecCrypto.loadPrivateKeyByStr(privateKeyHex);
+	}
+
+	@Benchmark
+	public FamilySecCrypto getCryptoSuite() {
+		return FamilySecCrypto.Factory.getCryptoSuite(suite);
+	}
+
+	public static void main(String[] args) throws RunnerException, IOException {
+		BenchmarkRunner.run(BenchmarkRunner.options(CryptionSuiteBenchmark.class));
+	}
+}
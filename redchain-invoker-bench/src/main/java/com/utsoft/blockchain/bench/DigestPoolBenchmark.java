@@ -0,0 +1,122 @@
+package com.utsoft.blockchain.bench;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.bouncycastle.crypto.digests.RIPEMD160Digest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import com.utsoft.blockchain.api.util.DigestPool;
+import com.utsoft.blockchain.api.util.Sha256Hash;
+/**
+ * 摘要基准: 每次新建 MessageDigest / RIPEMD160Digest vs 线程内摘要池写入调用方缓冲区
+ * <p>
+ * 以 GC profiler 运行,关注 gc.alloc.rate.norm(每次操作分配字节数),池化路径应为 0
+ * @author hunterfox
+ * @date: 2017年10月16日
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class DigestPoolBenchmark {
+
+	@Param({ "33", "256", "4096" })
+	public int size;
+
+	private byte[] input;
+	private byte[] out;
+	private ByteBuffer directInput;
+	private ByteBuffer directOut;
+
+	@Setup
+	public void setUp() {
+		input = new byte[size];
+		new Random(size).nextBytes(input);
+		out = new byte[DigestPool.SHA256_LENGTH];
+		directInput = ByteBuffer.allocateDirect(size);
+		directInput.put(input).flip();
+		directOut = ByteBuffer.allocateDirect(DigestPool.SHA256_LENGTH);
+	}
+
+	/**
+	 * 改造前的路径
+	 */
+	@Benchmark
+	public byte[] sha256Legacy() throws Exception {
+		return MessageDigest.getInstance("SHA-256").digest(input);
+	}
+
+	@Benchmark
+	public byte[] sha256() {
+		return Sha256Hash.hash(input);
+	}
+
+	@Benchmark
+	public byte[] sha256Into() {
+		DigestPool.sha256(input, 0, input.length, out, 0);
+		return out;
+	}
+
+	@Benchmark
+	public ByteBuffer sha256Direct() {
+		directInput.rewind();
+		directOut.clear();
+		DigestPool.sha256(directInput, directOut);
+		return directOut;
+	}
+
+	@Benchmark
+	public byte[] hashTwiceLegacy() throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		digest.update(input);
+		return digest.digest(digest.digest());
+	}
+
+	@Benchmark
+	public byte[] hashTwiceInto() {
+		Sha256Hash.hashTwice(input, 0, input.length, out, 0);
+		return out;
+	}
+
+	@Benchmark
+	public int checksum() {
+		return DigestPool.checksum(input, 0, input.length);
+	}
+
+	@Benchmark
+	public byte[] hash160Legacy() throws Exception {
+		byte[] sha256 = MessageDigest.getInstance("SHA-256").digest(input);
+		RIPEMD160Digest digest = new RIPEMD160Digest();
+		digest.update(sha256, 0, sha256.length);
+		byte[] hash160 = new byte[DigestPool.RIPEMD160_LENGTH];
+		digest.doFinal(hash160, 0);
+		return hash160;
+	}
+
+	@Benchmark
+	public byte[] hash160Into() {
+		DigestPool.sha256hash160(input, 0, input.length, out, 0);
+		return out;
+	}
+
+	public static void main(String[] args) throws RunnerException, IOException {
+		BenchmarkRunner.run(BenchmarkRunner.options(DigestPoolBenchmark.class));
+	}
+}
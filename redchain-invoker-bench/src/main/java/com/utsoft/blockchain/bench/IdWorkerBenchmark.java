@@ -0,0 +1,71 @@
+package com.utsoft.blockchain.bench;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import com.utsoft.blockchain.api.util.IdWorker;
+import com.utsoft.blockchain.api.util.SdkUtil;
+/**
+ * IdWorker.nextId 竞争基准
+ * <p>
+ * shared 与 SdkUtil 一致,所有线程共用一个 IdWorker;perThread 每线程独立 workerId,作为无竞争上限。
+ * 单个 IdWorker 每毫秒最多 1024 个 id,高线程数下 shared 的吞吐受此限制而非锁本身;
+ * 运行 main 依次以 1/4/16 线程压测
+ * @author hunterfox
+ * @date: 2017年10月16日
+ * @version 1.0.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdWorkerBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Shared {
+		final IdWorker idWorker = new IdWorker(1);
+	}
+
+	@State(Scope.Thread)
+	public static class PerThread {
+		private static final AtomicInteger WORKER_IDS = new AtomicInteger();
+		IdWorker idWorker;
+
+		@Setup
+		public void setUp() {
+			idWorker = new IdWorker(WORKER_IDS.getAndIncrement() & IdWorker.maxWorkerId);
+		}
+	}
+
+	@Benchmark
+	public long shared(Shared state) {
+		return state.idWorker.nextId();
+	}
+
+	@Benchmark
+	public long perThread(PerThread state) {
+		return state.idWorker.nextId();
+	}
+
+	@Benchmark
+	public String generateId() {
+		return SdkUtil.generateId();
+	}
+
+	public static void main(String[] args) throws RunnerException, IOException {
+		for (int threads : new int[] { 1, 4, 16 }) {
+			BenchmarkRunner.run(BenchmarkRunner.options(IdWorkerBenchmark.class).threads(threads));
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.utsoft.blockchain.bench;
+import java.io.IOException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import com.utsoft.blockchain.api.security.FamilySecCrypto;
+import com.utsoft.blockchain.api.util.CanonicalPlayload;
+import com.utsoft.blockchain.api.util.SignaturePlayload;
+/**
+ * 签名原文基准: SignaturePlayload(拼接字符串再编码) vs CanonicalPlayload(流式摘要)
+ * <p>
+ * 字段与转账验签一致: applyCategory, created, from, publicKey, serviceCode, submitJson, to
+ * @author hunterfox
+ * @date: 2017年10月16日
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignaturePlayloadBenchmark {
+
+	private static final String APPLY_CATEGORY = "tkc";
+	private static final String CREATED = "1508112000000";
+	private static final String FROM = "1BoatSLRHtKNngkdXEeobR76b53LETtpyT";
+	private static final String SERVICE_CODE = "transfer";
+	private static final String SUBMIT_JSON = "{\"amount\":\"100.00\",\"remark\":\"转账\"}";
+	private static final String TO = "1KFHE7w8BhaENAswwryaoccDb6qcT6DbYY";
+
+	private FamilySecCrypto familySecCrypto;
+	private String publicKey;
+	private String privateKey;
+
+	@Setup
+	public void setUp() throws Exception {
+		familySecCrypto = FamilySecCrypto.Factory.getCryptoSuite();
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("ECDSA", "BC");
+		generator.initialize(new ECGenParameterSpec("secp256r1"));
+		KeyPair keyPair = generator.generateKeyPair();
+		publicKey = familySecCrypto.convertPublicKey(keyPair.getPublic());
+		privateKey = familySecCrypto.convertPrivatelicKey(keyPair.getPrivate());
+	}
+
+	/**
+	 * 改造前的验签原文: 拼接后整体编码再摘要
+	 */
+	@Benchmark
+	public byte[] stringDigest() {
+		SignaturePlayload playload = new SignaturePlayload(familySecCrypto);
+		playload.addPlayload(APPLY_CATEGORY);
+		playload.addPlayload(CREATED);
+		playload.addPlayload(FROM);
+		playload.addPlayload(publicKey);
+		playload.addPlayload(SERVICE_CODE);
+		playload.addPlayload(SUBMIT_JSON);
+		playload.addPlayload(TO);
+		return familySecCrypto.hash(playload.originalPacket());
+	}
+
+	@Benchmark
+	public byte[] canonicalDigest() {
+		return canonical().digest();
+	}
+
+	@Benchmark
+	public String signatureDoSignature() throws Exception {
+		SignaturePlayload playload = new SignaturePlayload(familySecCrypto);
+		playload.addPlayload(APPLY_CATEGORY);
+		playload.addPlayload(CREATED);
+		playload.addPlayload(FROM);
+		playload.addPlayload(publicKey);
+		playload.addPlayload(SERVICE_CODE);
+		playload.addPlayload(SUBMIT_JSON);
+		playload.addPlayload(TO);
+		return playload.doSignature(privateKey);
+	}
+
+	@Benchmark
+	public String canonicalDoSignature() throws Exception {
+		return canonical().doSignature(familySecCrypto, privateKey);
+	}
+
+	private CanonicalPlayload canonical() {
+		return CanonicalPlayload.local().addPlayload(APPLY_CATEGORY).addPlayload(CREATED).addPlayload(FROM)
+				.addPlayload(publicKey).addPlayload(SERVICE_CODE).addPlayload(SUBMIT_JSON).addPlayload(TO);
+	}
+
+	public static void main(String[] args) throws RunnerException, IOException {
+		BenchmarkRunner.run(BenchmarkRunner.options(SignaturePlayloadBenchmark.class));
+	}
+}
@@ -0,0 +1,99 @@
+package com.utsoft.blockchain.bench;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import com.utsoft.blockchain.api.security.CryptionConfig;
+import com.utsoft.blockchain.api.security.FamilySecCrypto;
+import com.utsoft.blockchain.api.util.SdkUtil;
+/**
+ * 公钥验签基准: 每次解析公钥并新建 Signature vs 公钥缓存 + 线程内复用 Signature,
+ * COMB 套件下同一公钥很快成为热点,verifyCached 走 comb 表
+ * @author hunterfox
+ * @date: 2017年10月13日
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class SignatureVerifyBenchmark {
+
+	@Param({ "DEFAULT", "COMB" })
+	public String suite;
+
+	private FamilySecCrypto familySecCrypto;
+	private KeyFactory keyFactory;
+	private String signatureAlgorithm;
+	private String publicKeyHex;
+	private byte[] plainText;
+	private byte[] signature;
+
+	@Setup
+	public void setUp() throws Exception {
+		familySecCrypto = FamilySecCrypto.Factory.getCryptoSuite(suite);
+		keyFactory = familySecCrypto.generatorKeyFactory();
+		signatureAlgorithm = CryptionConfig.getConfig().getSignatureAlgorithm();
+
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+		generator.initialize(new ECGenParameterSpec("secp256r1"));
+		KeyPair keyPair = generator.generateKeyPair();
+		publicKeyHex = SdkUtil.encodeHexString(keyPair.getPublic().getEncoded());
+		plainText = "tkc&transfer&1BoatSLRHtKNngkdXEeobR76b53LETtpyT&1KFHE7w8BhaENAswwryaoccDb6qcT6DbYY&3591848218148864"
+				.getBytes(StandardCharsets.UTF_8);
+		Signature signer = Signature.getInstance(signatureAlgorithm);
+		signer.initSign(keyPair.getPrivate());
+		signer.update(plainText);
+		signature = signer.sign();
+	}
+
+	/**
+	 * 改造前的路径
+	 */
+	@Benchmark
+	public boolean verifyUncached() throws Exception {
+		byte[] encoded = SdkUtil.decodeHexStrig(publicKeyHex);
+		PublicKey publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(encoded));
+		Signature sig = Signature.getInstance(signatureAlgorithm);
+		sig.initVerify(publicKey);
+		sig.update(plainText);
+		return sig.verify(signature);
+	}
+
+	@Benchmark
+	public boolean verifyEncoded() throws Exception {
+		return familySecCrypto.verifySignatureByPublic(SdkUtil.decodeHexStrig(publicKeyHex), signatureAlgorithm, signature, plainText);
+	}
+
+	@Benchmark
+	public boolean verifyCached() throws Exception {
+		PublicKey publicKey = familySecCrypto.loadPublicKeyByStr(publicKeyHex);
+		return familySecCrypto.verifySignatureByPublic(publicKey, signatureAlgorithm, signature, plainText);
+	}
+
+	public static void main(String[] args) throws RunnerException, IOException {
+		BenchmarkRunner.run(BenchmarkRunner.options(SignatureVerifyBenchmark.class));
+	}
+}
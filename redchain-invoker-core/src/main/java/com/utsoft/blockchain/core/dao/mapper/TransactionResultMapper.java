@@ -1,4 +1,6 @@
 package com.utsoft.blockchain.core.dao.mapper;
+import java.util.List;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Update;
 import com.utsoft.blockchain.core.dao.MySqlBaseMapper;
 import com.utsoft.blockchain.core.dao.model.TransactionResultPo;
@@ -11,13 +13,92 @@ import com.utsoft.blockchain.core.dao.model.TransactionResultPo;
 public interface TransactionResultMapper extends MySqlBaseMapper<TransactionResultPo>{
 
 	 
-    @Update("update t_chain_transaction set result_status=#{resultStatus},tstatus=#{status},counter=#{counter},callback_time=#{callbackTime}  where txId=#{txId} and toAccount=#{to}")
+    /**
+     * 写回回调结果;下次投递时间及租约为空时保持不变
+     * @param result
+     * @return
+     */
+    @Update("update t_chain_transaction set result_status=#{resultStatus},tstatus=#{status},counter=#{counter},callback_time=#{callbackTime},"
+    		+ "next_attempt_at=ifnull(#{nextAttemptAt},next_attempt_at),lease_expire=ifnull(#{leaseExpire},lease_expire)  where txId=#{txId} and toAccount=#{to}")
 	int updateCallBackResult(TransactionResultPo result);
+
+	/**
+	 * 多行写入回调记录,主键重复时保持原记录
+	 * @param list
+	 * @return
+	 */
+	int insertBatch(@Param("list") List<TransactionResultPo> list);
+
+    /**
+     * 推迟投递(回调地址熔断中),只改下次投递时间及租约,不计投递次数
+     * @param result
+     * @return
+     */
+    @Update("update t_chain_transaction set next_attempt_at=#{nextAttemptAt},lease_expire=#{leaseExpire} where txId=#{txId} and toAccount=#{to}")
+	int deferCallBack(TransactionResultPo result);
     
     /**
-     * 迁移已经完成状态回收的数据
+     * 回调结束(成功或放弃),写回最终状态并标记待归档
      * @param result
      * @return
      */
-	 void updateMoveCallBackHisotryResult(TransactionResultPo result);
+	 int markCallBackDone(TransactionResultPo result);
+
+	/**
+	 * 认领待归档记录: 写入归档批次,按 done_at 索引顺序最多 limit 条
+	 * @param batch 归档批次
+	 * @param limit
+	 * @param staleSeconds 认领后超过该时长仍未删除的记录重新认领
+	 * @return 认领条数
+	 */
+	int claimArchive(@Param("batch") String batch, @Param("limit") int limit, @Param("staleSeconds") int staleSeconds);
+
+	/**
+	 * 整批迁入历史表
+	 * @param batch
+	 * @return
+	 */
+	int archiveBatch(@Param("batch") String batch);
+
+	/**
+	 * 删除已迁移的批次
+	 * @param batch
+	 * @return
+	 */
+	int deleteArchived(@Param("batch") String batch);
+
+	/**
+	 * 历史表分区名,按边界升序
+	 * @return
+	 */
+	List<String> listHistoryPartitions();
+
+	/**
+	 * 从 pmax 拆出新的月分区
+	 * @param name 分区名 pyyyyMM
+	 * @param lessThan 上界 yyyy-MM-dd
+	 */
+	void addHistoryPartition(@Param("name") String name, @Param("lessThan") String lessThan);
+
+	/**
+	 * 删除整个分区
+	 * @param name
+	 */
+	void dropHistoryPartition(@Param("name") String name);
+
+	/**
+	 * 认领到期的回调记录: 已到投递时间、未被认领且未结束,写入租约,按 next_attempt_at 索引顺序最多 limit 条
+	 * @param owner 认领批次
+	 * @param leaseSeconds 租约时长
+	 * @param limit
+	 * @return 认领条数
+	 */
+	int claimDueResults(@Param("owner") String owner, @Param("leaseSeconds") int leaseSeconds, @Param("limit") int limit);
+
+	/**
+	 * 查询某批次认领的记录
+	 * @param owner
+	 * @return
+	 */
+	List<TransactionResultPo> selectClaimed(@Param("owner") String owner);
 }
@@ -73,6 +73,12 @@ public class ChaincodeAccessCodePo implements Serializable {
 	  public void setSupportMethod(String supportMethod) {
 	    this.supportMethod = supportMethod;
 	   }
+
+	/**
+	 * 回调格式: 0 逐条 POST,1 按回调地址合并为 json 数组批量 POST
+	 */
+	@Column(name = "callback_batch")
+	private Integer callbackBatch;
 	
 	/**
 	 * 时间
@@ -136,4 +142,12 @@ public class ChaincodeAccessCodePo implements Serializable {
 	public void setUrlAddress(String urlAddress) {
 		this.urlAddress = urlAddress;
 	}
+
+	public Integer getCallbackBatch() {
+		return callbackBatch;
+	}
+
+	public void setCallbackBatch(Integer callbackBatch) {
+		this.callbackBatch = callbackBatch;
+	}
 }
@@ -72,6 +72,26 @@ public class TransactionResultPo implements Serializable {
 	 @Temporal(TemporalType.TIMESTAMP)
  	 @Column(name = "callback_time")
      private Date callbackTime;
+
+	 /**
+	  * 认领批次(节点标识-序号)
+	  */
+	 @Column(name = "lease_owner")
+	 private String leaseOwner;
+
+	 /**
+	  * 认领到期时间,null 或已过期表示可被认领
+	  */
+	 @Temporal(TemporalType.TIMESTAMP)
+	 @Column(name = "lease_expire")
+	 private Date leaseExpire;
+
+	 /**
+	  * 下次投递时间,失败后按退避延后
+	  */
+	 @Temporal(TemporalType.TIMESTAMP)
+	 @Column(name = "next_attempt_at")
+	 private Date nextAttemptAt;
  
 	public String getApplyCode() {
 		return applyCode;
@@ -155,4 +175,34 @@ public class TransactionResultPo implements Serializable {
 	public void setForward(byte forward) {
 		this.forward = forward;
 	}
+
+	public String getLeaseOwner() {
+		return leaseOwner;
+	}
+
+	public void setLeaseOwner(String leaseOwner) {
+		this.leaseOwner = leaseOwner;
+	}
+
+	public Date getLeaseExpire() {
+		return leaseExpire;
+	}
+
+	public void setLeaseExpire(Date leaseExpire) {
+		this.leaseExpire = leaseExpire;
+	}
+
+	public Date getNextAttemptAt() {
+		return nextAttemptAt;
+	}
+
+	public void setNextAttemptAt(Date nextAttemptAt) {
+		this.nextAttemptAt = nextAttemptAt;
+	}
+
+	@Override
+	public String toString() {
+		return "TransactionResultPo [txId=" + txId + ", to=" + to + ", applyCode=" + applyCode + ", status=" + status
+				+ ", counter=" + counter + "]";
+	}
 }
@@ -101,6 +101,7 @@ public class CaClientManager {
            try {
 				admin.setEnrollment(fabricCaClient.enroll(admin.getName(),admin.getEnrollmentSecret()));
 				admin.setStatus(LocalConstants.FABRIC_MANAGER_VALID);
+				admin.flush();
 			} catch (EnrollmentException | InvalidArgumentException e) {
 				throw new InstantiationException("intallCaClient install exception");
 			}
@@ -133,6 +134,7 @@ public class CaClientManager {
             try {
 				admin.setEnrollment(fabricCaClient.enroll(admin.getName(),admin.getEnrollmentSecret()));
 				admin.setStatus(LocalConstants.FABRIC_MANAGER_VALID);
+				admin.flush();
 			} catch (EnrollmentException | InvalidArgumentException e) {
 				throw new ServiceProcessException("intallCaClient install exception");
 			}
@@ -150,6 +152,7 @@ public class CaClientManager {
 				 password = IGlobals.getProperty("ca.password", "tkcQWE123zxc");
 				rr.setSecret(password);
 				user.setEnrollmentSecret(fabricCaClient.register(rr, admin));
+				user.flush();
 				if (user.getEnrollmentSecret().equals(password)) {
 					return user;
 				}
@@ -169,6 +172,7 @@ public class CaClientManager {
 			req.addHost(hostname);
 			try {
 				user.setEnrollment(fabricCaClient.enroll(user.getName(), user.getEnrollmentSecret(), req));
+				user.flush();
 				// verify
 				String cert = user.getEnrollment().getCert();
 				return verifyOptions(cert, req);
@@ -185,6 +189,7 @@ public class CaClientManager {
 		try {
 			Enrollment enrollment =fabricCaClient.enroll(user.getName(), user.getEnrollmentSecret());
 			user.setEnrollment(enrollment);
+			user.flush();
 		} catch (EnrollmentException | InvalidArgumentException e) {
 			e.printStackTrace();
 		}
@@ -194,6 +199,9 @@ public class CaClientManager {
 		checkFabricClientInstall();
 		try {
 			fabricCaClient.revoke(admin,user.getName(), "revoke users");
+			// 吊销状态写回 key store,所有节点的缓存随之失效
+			user.setStatus(LocalConstants.FABRIC_MANAGER_INVALID);
+			user.flush();
 		} catch (RevocationException | InvalidArgumentException e) {
 			logger.error("revoke:",e);
 		}
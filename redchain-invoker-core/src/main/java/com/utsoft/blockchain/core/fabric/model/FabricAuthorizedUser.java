@@ -13,6 +13,11 @@ import com.utsoft.blockchain.core.service.LocalKeyPrivateStoreService;
 import com.utsoft.blockchain.core.util.LocalConstants;
 import io.netty.util.internal.StringUtil;
 /**
+ * fabric 用户,状态序列化后保存在 key value store
+ * <p>
+ * setter 只标记修改,一次业务操作(注册、enroll 等)结束后调用 {@link #flush()} 统一保存一次;
+ * 已知 store 中是否存在记录,保存时直接 insert 或 update,不再先查询。
+ * 实例由 key store 缓存在线程间共享:状态修改与保存在实例锁内进行,字段 volatile 供读取
  * @author hunterfox
  * @date: 2017年7月28日
  * @version  1.0.0
@@ -23,17 +28,25 @@ public class FabricAuthorizedUser implements User,Serializable {
 	/**
 	 * Invalid or valid  ? valid =0  Invalid=1
 	 */
-	private int status = 0;
-	private String name;
-    private Set<String> roles;
-    private String account;
-    private String affiliation;
-    private String organization;
-    private String enrollmentSecret;
-    Enrollment enrollment = null; //need access in test env.
+	private volatile int status = 0;
+	private volatile String name;
+    private volatile Set<String> roles;
+    private volatile String account;
+    private volatile String affiliation;
+    private volatile String organization;
+    private volatile String enrollmentSecret;
+    volatile Enrollment enrollment = null; //need access in test env.
 
     private transient LocalKeyPrivateStoreService keyValStore;
     private String keyValStoreName;
+    /**
+     * 有未保存的修改,受实例锁保护
+     */
+    private transient boolean dirty;
+    /**
+     * store 中已有记录,受实例锁保护
+     */
+    private transient boolean stored;
 
     public FabricAuthorizedUser(String name, String org,LocalKeyPrivateStoreService fs) {
         this.name = name;
@@ -42,23 +55,27 @@ public class FabricAuthorizedUser implements User,Serializable {
         this.keyValStoreName = toKeyValStoreName(this.name, org);
         String memberStr = keyValStore.getValue(keyValStoreName);
         if (null == memberStr) {
-            saveState();
+            dirty = true;
         } else {
-            restoreState();
+            restoreState(memberStr);
         }
     }
     
    public FabricAuthorizedUser(String name, String org,int status,LocalKeyPrivateStoreService fs) {
         this.name = name;
-        this.status = status;
         this.keyValStore = fs;
         this.organization = org;
         this.keyValStoreName = toKeyValStoreName(this.name, org);
         String memberStr = keyValStore.getValue(keyValStoreName);
         if (null == memberStr) {
-            saveState();
+            dirty = true;
         } else {
-            restoreState();
+            restoreState(memberStr);
+        }
+        if (this.status != status) {
+            // 显式指定的状态覆盖 store 中的状态(如吊销后重新注册)
+            this.status = status;
+            dirty = true;
         }
     }
 
@@ -66,8 +83,9 @@ public class FabricAuthorizedUser implements User,Serializable {
 		return status;
 	}
 	
-	public void setStatus(int status) {
+	public synchronized void setStatus(int status) {
 		this.status = status;
+		dirty = true;
 	}
 
 	@Override
@@ -80,10 +98,10 @@ public class FabricAuthorizedUser implements User,Serializable {
         return this.roles;
     }
 
-    public void setRoles(Set<String> roles) {
+    public synchronized void setRoles(Set<String> roles) {
 
         this.roles = roles;
-        saveState();
+        dirty = true;
     }
 
     @Override
@@ -96,10 +114,10 @@ public class FabricAuthorizedUser implements User,Serializable {
      *
      * @param account The account.
      */
-    public void setAccount(String account) {
+    public synchronized void setAccount(String account) {
 
         this.account = account;
-        saveState();
+        dirty = true;
     }
 
     @Override
@@ -112,9 +130,9 @@ public class FabricAuthorizedUser implements User,Serializable {
      *
      * @param affiliation the affiliation.
      */
-    public void setAffiliation(String affiliation) {
+    public synchronized void setAffiliation(String affiliation) {
         this.affiliation = affiliation;
-        saveState();
+        dirty = true;
     }
 
     @Override
@@ -140,16 +158,36 @@ public class FabricAuthorizedUser implements User,Serializable {
         return status == LocalConstants.FABRIC_MANAGER_VALID && this.enrollment != null;
     }
 
+    /**
+     * Determine if this user has been saved to the key value store.
+     *
+     * @return {@code true} if saved; otherwise {@code false}.
+     */
+    public synchronized boolean isStored() {
+        return stored;
+    }
+
+    /**
+     * Save the state of this user to the key value store if it has been modified.
+     */
+    public synchronized void flush() {
+        if (dirty) {
+            saveState();
+        }
+    }
+
     /**
      * Save the state of this user to the key value store.
      */
-    public void saveState() {
+    public synchronized void saveState() {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         try {
             ObjectOutputStream oos = new ObjectOutputStream(bos);
             oos.writeObject(this);
             oos.flush();
-            keyValStore.setValue(keyValStoreName, Hex.toHexString(bos.toByteArray()));
+            keyValStore.setValue(keyValStoreName, Hex.toHexString(bos.toByteArray()), stored);
+            stored = true;
+            dirty = false;
             bos.close();
         } catch (IOException e) {
             e.printStackTrace();
@@ -159,9 +197,13 @@ public class FabricAuthorizedUser implements User,Serializable {
     /**
      * Restore the state of this user from the key value store (if found).  If not found, do nothing.
      */
-    FabricAuthorizedUser restoreState() {
-        String memberStr = keyValStore.getValue(keyValStoreName);
+    synchronized FabricAuthorizedUser restoreState() {
+        return restoreState(keyValStore.getValue(keyValStoreName));
+    }
+
+    private synchronized FabricAuthorizedUser restoreState(String memberStr) {
         if (null != memberStr) {
+            stored = true;
             // The user was found in the key value store, so restore the
             // state.
             byte[] serialized = Hex.decode(memberStr);
@@ -171,6 +213,7 @@ public class FabricAuthorizedUser implements User,Serializable {
                 FabricAuthorizedUser state = (FabricAuthorizedUser) ois.readObject();
                 if (state != null) {
                     this.name = state.name;
+                    this.status = state.status;
                     this.roles = state.roles;
                     this.account = state.account;
                     this.affiliation = state.affiliation;
@@ -190,14 +233,14 @@ public class FabricAuthorizedUser implements User,Serializable {
     public String getEnrollmentSecret() {
         return enrollmentSecret;
     }
-    public void setEnrollmentSecret(String enrollmentSecret) {
+    public synchronized void setEnrollmentSecret(String enrollmentSecret) {
         this.enrollmentSecret = enrollmentSecret;
-        saveState();
+        dirty = true;
     }
     
-    public void setEnrollment(Enrollment enrollment) {
+    public synchronized void setEnrollment(Enrollment enrollment) {
         this.enrollment = enrollment;
-        saveState();
+        dirty = true;
     }
 
     public static String toKeyValStoreName(String name, String org) {
@@ -209,11 +252,11 @@ public class FabricAuthorizedUser implements User,Serializable {
         return mspId;
     }
 
-    String mspId;
+    volatile String mspId;
 
-    public void setMspId(String mspID) {
+    public synchronized void setMspId(String mspID) {
         this.mspId = mspID;
-        saveState();
+        dirty = true;
     }
     
     public String getOrganization() {
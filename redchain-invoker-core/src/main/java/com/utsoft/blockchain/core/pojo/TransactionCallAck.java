@@ -0,0 +1,42 @@
+package com.utsoft.blockchain.core.pojo;
+import java.io.Serializable;
+/**
+ * 批量回调逐条应答,按 txId + address 对应回调记录
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+public class TransactionCallAck implements Serializable {
+
+	private static final long serialVersionUID = -3318260529357143176L;
+
+	private String txId;
+	private String address;
+	private int status;
+	private String msg;
+
+	public String getTxId() {
+		return txId;
+	}
+	public void setTxId(String txId) {
+		this.txId = txId;
+	}
+	public String getAddress() {
+		return address;
+	}
+	public void setAddress(String address) {
+		this.address = address;
+	}
+	public int getStatus() {
+		return status;
+	}
+	public void setStatus(int status) {
+		this.status = status;
+	}
+	public String getMsg() {
+		return msg;
+	}
+	public void setMsg(String msg) {
+		this.msg = msg;
+	}
+}
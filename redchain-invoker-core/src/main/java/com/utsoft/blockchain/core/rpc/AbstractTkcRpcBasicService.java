@@ -4,7 +4,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.utsoft.blockchain.api.security.CryptionConfig;
 import com.utsoft.blockchain.api.security.FamilySecCrypto;
+import com.utsoft.blockchain.api.security.SignatureVerifyStage;
 import com.utsoft.blockchain.core.service.ITkcBcRepository;
 import com.utsoft.blockchain.core.service.ITransactionService;
 import com.utsoft.blockchain.core.service.LocalKeyPrivateStoreService;
@@ -17,9 +19,20 @@ import com.utsoft.blockchain.core.service.LocalKeyPrivateStoreService;
  */
 public abstract class AbstractTkcRpcBasicService {
 
+	private static final String PREHASHED_SIGNATURE_ALGORITHM = "SHA256withECDSA";
+
 	protected final Logger logger = LoggerFactory.getLogger(this.getClass());
 	
-	protected FamilySecCrypto familySecCrypto = FamilySecCrypto.Factory.getCryptoSuite();
+	protected FamilySecCrypto familySecCrypto = FamilySecCrypto.Factory.getCryptoSuite(CryptionConfig.getConfig().getCryptoSuite());
+	
+	protected SignatureVerifyStage verifyStage = SignatureVerifyStage.getDefault();
+	
+	protected String signatureAlgorithm = CryptionConfig.getConfig().getSignatureAlgorithm();
+	
+	/**
+	 * SHA256withECDSA 可直接对原文的 SHA-256 摘要验签,其它签名算法须对原文验签
+	 */
+	protected boolean prehashed = PREHASHED_SIGNATURE_ALGORITHM.equalsIgnoreCase(signatureAlgorithm);
 	
 	@Autowired
 	protected ITkcBcRepository tkcBcRepository;
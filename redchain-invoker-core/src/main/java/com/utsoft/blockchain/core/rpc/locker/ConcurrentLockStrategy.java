@@ -31,4 +31,11 @@ public interface ConcurrentLockStrategy {
 	 * @return
 	 */
 	public boolean isAddressAvailable(String address);
+	
+	/**
+	 * 获取地址当前牌照
+	 * @param address
+	 * @return 未发放或已过期返回null
+	 */
+	public String getTransactionToken(String address);
 }
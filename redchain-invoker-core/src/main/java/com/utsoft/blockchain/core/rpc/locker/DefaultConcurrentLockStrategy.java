@@ -22,7 +22,7 @@ public class DefaultConcurrentLockStrategy extends AbsConcurrentLockStrategy imp
 		
 		String code = SdkUtil.generateId();
 	    String addressPrefix = FormatUtil.redisPrefix(address,LocalConstants.USER_TRANSACTION_ID);
-		redisTemplate.boundValueOps(addressPrefix).set(code,90L,TimeUnit.SECONDS);
+		redisTemplate.boundValueOps(addressPrefix).set(code,LocalConstants.TRANSACTION_GRANT_TTL,TimeUnit.SECONDS);
 		return code;
 	}
 
@@ -31,9 +31,9 @@ public class DefaultConcurrentLockStrategy extends AbsConcurrentLockStrategy imp
 		
 		String code = SdkUtil.generateId();
 	    String addressPrefix = FormatUtil.redisPrefix(address,LocalConstants.USER_TRANSACTION_ID);
-		redisTemplate.boundValueOps(addressPrefix).set(code,90L,TimeUnit.SECONDS);
+		redisTemplate.boundValueOps(addressPrefix).set(code,LocalConstants.TRANSACTION_GRANT_TTL,TimeUnit.SECONDS);
 	    addressPrefix = FormatUtil.redisPrefix(from,LocalConstants.USER_TRANSACTION_ID);
-		redisTemplate.boundValueOps(addressPrefix).set(code,90L,TimeUnit.SECONDS);
+		redisTemplate.boundValueOps(addressPrefix).set(code,LocalConstants.TRANSACTION_GRANT_TTL,TimeUnit.SECONDS);
 		return code;
 	}
 
@@ -43,6 +43,12 @@ public class DefaultConcurrentLockStrategy extends AbsConcurrentLockStrategy imp
 		return redisTemplate.hasKey(addressPrefix);
 	}
 
+	@Override
+	public String getTransactionToken(String address) {
+		String addressPrefix = FormatUtil.redisPrefix(address,LocalConstants.USER_TRANSACTION_ID);
+		return redisTemplate.boundValueOps(addressPrefix).get();
+	}
+
 	@Override
 	public void releaseToken(String address) {
 		if (isAddressAvailable(address)){
@@ -0,0 +1,104 @@
+package com.utsoft.blockchain.core.rpc.locker;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import com.utsoft.blockchain.api.exception.ServiceProcessException;
+import com.utsoft.blockchain.api.util.SdkUtil;
+import com.utsoft.blockchain.core.util.HierarchicalTimingWheel;
+import com.utsoft.blockchain.core.util.LocalConstants;
+/**
+ * 单节点内存地址锁定策略
+ * <p>
+ * 牌照保存在本地内存,过期由分层时间轮清理,查询时同样校验过期时间,
+ * 不依赖时间轮的精度。仅适用于单节点部署,多节点请使用 {@link DefaultConcurrentLockStrategy}
+ * @author hunterfox
+ * @date: 2017年10月9日
+ * @version 1.0.0
+ */
+public class LocalConcurrentLockStrategy implements ConcurrentLockStrategy {
+
+	private final ConcurrentMap<String, Grant> grants = new ConcurrentHashMap<>();
+	private final HierarchicalTimingWheel timingWheel;
+	private final long ttlMillis;
+
+	public LocalConcurrentLockStrategy() {
+		this(new HierarchicalTimingWheel("transaction-grant-wheel", 100L, 64), TimeUnit.SECONDS.toMillis(LocalConstants.TRANSACTION_GRANT_TTL));
+	}
+
+	public LocalConcurrentLockStrategy(HierarchicalTimingWheel timingWheel, long ttlMillis) {
+		this.timingWheel = timingWheel;
+		this.ttlMillis = ttlMillis;
+	}
+
+	@Override
+	public String applyTransactionToken(String address) throws ServiceProcessException {
+		String code = SdkUtil.generateId();
+		grant(address, code);
+		return code;
+	}
+
+	@Override
+	public String applyTransactionToken(String address, String from) throws ServiceProcessException {
+		String code = SdkUtil.generateId();
+		grant(address, code);
+		grant(from, code);
+		return code;
+	}
+
+	@Override
+	public boolean isAddressAvailable(String address) {
+		return getTransactionToken(address) != null;
+	}
+
+	@Override
+	public String getTransactionToken(String address) {
+		Grant grant = grants.get(address);
+		if (grant == null) {
+			return null;
+		}
+		if (grant.expireAt <= System.currentTimeMillis()) {
+			expire(address, grant);
+			return null;
+		}
+		return grant.code;
+	}
+
+	@Override
+	public void releaseToken(String address) {
+		Grant grant = grants.remove(address);
+		if (grant != null && grant.timeout != null) {
+			grant.timeout.cancel();
+		}
+	}
+
+	public void shutdown() {
+		timingWheel.shutdown();
+	}
+
+	private void grant(String address, String code) {
+		Grant grant = new Grant(code, System.currentTimeMillis() + ttlMillis);
+		Grant previous = grants.put(address, grant);
+		if (previous != null && previous.timeout != null) {
+			previous.timeout.cancel();
+		}
+		grant.timeout = timingWheel.schedule(() -> grants.remove(address, grant), ttlMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private void expire(String address, Grant grant) {
+		if (grants.remove(address, grant) && grant.timeout != null) {
+			grant.timeout.cancel();
+		}
+	}
+
+	private static final class Grant {
+
+		private final String code;
+		private final long expireAt;
+		private volatile HierarchicalTimingWheel.Timeout timeout;
+
+		Grant(String code, long expireAt) {
+			this.code = code;
+			this.expireAt = expireAt;
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package com.utsoft.blockchain.core.rpc.locker;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import com.utsoft.blockchain.core.util.IGlobals;
+import com.utsoft.blockchain.core.util.LocalConstants;
+import com.utsoft.blockchain.core.util.TopKSketch;
+/**
+ * 热点账户争用统计
+ * <p>
+ * 按地址统计牌照被拒次数、牌照持有时长和排队等待时长的 top-K,
+ * 定时输出日志并衰减计数,用于判断哪些账户需要拆分或走独立通道
+ * @author hunterfox
+ * @date: 2017年10月10日
+ * @version 1.0.0
+ */
+@Component
+public class LockContentionAnalytics {
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * 未释放(过期)牌照的起始时间上限,超过后整体清空
+	 */
+	private static final int MAX_GRANT_TRACKED = 100000;
+
+	private TopKSketch rejections;
+	private TopKSketch holdMillis;
+	private TopKSketch waitMillis;
+
+	private final ConcurrentMap<String, Long> grantedAt = new ConcurrentHashMap<>();
+
+	private ScheduledExecutorService reporter;
+
+	@PostConstruct
+	public void init() {
+		int topK = IGlobals.getIntProperty(LocalConstants.TRANSACTION_CONTENTION_TOPK, 20);
+		rejections = new TopKSketch(topK);
+		holdMillis = new TopKSketch(topK);
+		waitMillis = new TopKSketch(topK);
+
+		long interval = IGlobals.getLongProperty(LocalConstants.TRANSACTION_CONTENTION_INTERVAL, 60L);
+		reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "lock-contention-reporter");
+			thread.setDaemon(true);
+			return thread;
+		});
+		reporter.scheduleWithFixedDelay(this::report, interval, interval, TimeUnit.SECONDS);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (reporter != null) {
+			reporter.shutdownNow();
+		}
+	}
+
+	/**
+	 * 地址已被锁定,申请被拒
+	 * @param address
+	 */
+	public void recordRejection(String address) {
+		rejections.add(address, 1);
+	}
+
+	/**
+	 * 从申请到拿到排序锁的等待时长
+	 * @param millis
+	 * @param addresss
+	 */
+	public void recordWait(long millis, String... addresss) {
+		for (String address : addresss) {
+			waitMillis.add(address, millis);
+		}
+	}
+
+	/**
+	 * 牌照发放
+	 * @param addresss
+	 */
+	public void recordGrant(String... addresss) {
+		if (grantedAt.size() > MAX_GRANT_TRACKED) {
+			grantedAt.clear();
+		}
+		long now = System.currentTimeMillis();
+		for (String address : addresss) {
+			grantedAt.put(address, now);
+		}
+	}
+
+	/**
+	 * 牌照释放,累计持有时长
+	 * @param address
+	 */
+	public void recordRelease(String address) {
+		Long start = grantedAt.remove(address);
+		if (start != null) {
+			holdMillis.add(address, System.currentTimeMillis() - start);
+		}
+	}
+
+	/**
+	 * 当前统计快照
+	 * @return rejections / holdMillis / waitMillis 三组 top-K
+	 */
+	public Map<String, List<TopKSketch.Item>> snapshot() {
+		Map<String, List<TopKSketch.Item>> snapshot = new LinkedHashMap<>();
+		snapshot.put("rejections", rejections.top());
+		snapshot.put("holdMillis", holdMillis.top());
+		snapshot.put("waitMillis", waitMillis.top());
+		return snapshot;
+	}
+
+	private void report() {
+		try {
+			List<TopKSketch.Item> rejected = rejections.top();
+			List<TopKSketch.Item> hold = holdMillis.top();
+			List<TopKSketch.Item> wait = waitMillis.top();
+			if (!rejected.isEmpty() || !hold.isEmpty() || !wait.isEmpty()) {
+				logger.info("lock contention top rejections:{}, hold(ms):{}, wait(ms):{}", rejected, hold, wait);
+			}
+			rejections.decay();
+			holdMillis.decay();
+			waitMillis.decay();
+		} catch (Exception ex) {
+			logger.error("lock contention report error", ex);
+		}
+	}
+}
@@ -1,6 +1,8 @@
 package com.utsoft.blockchain.core.rpc.locker;
 
+import java.util.concurrent.Callable;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,7 +12,7 @@ import org.springframework.stereotype.Component;
 
 import com.utsoft.blockchain.api.pojo.BaseResponseModel;
 import com.utsoft.blockchain.api.util.Constants;
-import com.utsoft.blockchain.core.util.FormatUtil;
+import com.utsoft.blockchain.core.util.IGlobals;
 import com.utsoft.blockchain.core.util.LocalConstants;
 import com.utsoft.blockchain.core.zoo.ZookeeperCallback;
 import com.utsoft.blockchain.core.zoo.ZookeeperUtils;
@@ -31,11 +33,35 @@ public class TransactionSequencingService {
 	@Autowired
 	private ZookeeperUtils zookeeperUtils;
 
+	@Autowired
+	private LockContentionAnalytics contentionAnalytics;
+
 	private ConcurrentLockStrategy lockStrategy;
 
+	/**
+	 * 本地策略下替代 zookeeper 的分段锁
+	 */
+	private final Object[] localMutexes = new Object[64];
+
 	@PostConstruct
 	public void initStrategy() {
-		lockStrategy = new DefaultConcurrentLockStrategy(redisTemplate);
+		String strategy = IGlobals.getProperty(LocalConstants.TRANSACTION_LOCK_STRATEGY, "redis");
+		if ("local".equalsIgnoreCase(strategy)) {
+			for (int i = 0; i < localMutexes.length; i++) {
+				localMutexes[i] = new Object();
+			}
+			lockStrategy = new LocalConcurrentLockStrategy();
+		} else {
+			lockStrategy = new DefaultConcurrentLockStrategy(redisTemplate);
+		}
+		logger.info("transaction lock strategy:{}", lockStrategy.getClass().getSimpleName());
+	}
+
+	@PreDestroy
+	public void destroyStrategy() {
+		if (lockStrategy instanceof LocalConcurrentLockStrategy) {
+			((LocalConcurrentLockStrategy) lockStrategy).shutdown();
+		}
 	}
 
 	public BaseResponseModel<String> applyTransactionOrderToken(String address) {
@@ -51,30 +77,42 @@ public class TransactionSequencingService {
 		BaseResponseModel<String> orderIdModel = BaseResponseModel.build();
 		for (String address : addresss) {
 			if (lockStrategy.isAddressAvailable(address)) {
+				contentionAnalytics.recordRejection(address);
 				return orderIdModel.setCode(Constants.ORDER_APPLY_LOCKER);
 			}
 		}
 
 		final String lockerPath = addresss[0];
+		final long applyTime = System.currentTimeMillis();
+		final Callable<BaseResponseModel<String>> grantCall = () -> {
+			contentionAnalytics.recordWait(System.currentTimeMillis() - applyTime, addresss);
+			for (String address : addresss) {
+				if (lockStrategy.isAddressAvailable(address)) {
+					contentionAnalytics.recordRejection(address);
+					return orderIdModel.setCode(Constants.ORDER_APPLY_LOCKER);
+				}
+			}
+			String code;
+			if (addresss.length == 1) {
+				code = lockStrategy.applyTransactionToken(addresss[0]);
+			} else {
+				code = lockStrategy.applyTransactionToken(addresss[0], addresss[1]);
+			}
+			contentionAnalytics.recordGrant(addresss);
+			orderIdModel.setData(code);
+			return orderIdModel;
+		};
 		try {
+			if (lockStrategy instanceof LocalConcurrentLockStrategy) {
+				synchronized (localMutexes[(lockerPath.hashCode() & 0x7fffffff) % localMutexes.length]) {
+					return grantCall.call();
+				}
+			}
 			return zookeeperUtils.lock(new ZookeeperCallback<BaseResponseModel<String>>() {
 
 				@Override
 				public BaseResponseModel<String> callback() throws Exception {
-
-					for (String address : addresss) {
-						if (lockStrategy.isAddressAvailable(address)) {
-							return orderIdModel.setCode(Constants.ORDER_APPLY_LOCKER);
-						}
-					}
-					String code;
-					if (addresss.length == 1) {
-						code = lockStrategy.applyTransactionToken(addresss[0]);
-					} else {
-						code = lockStrategy.applyTransactionToken(addresss[0], addresss[1]);
-					}
-					orderIdModel.setData(code);
-					return orderIdModel;
+					return grantCall.call();
 				}
 
 				@Override
@@ -90,12 +128,12 @@ public class TransactionSequencingService {
 	}
 
 	public void releaseLocker(String address) {
+		contentionAnalytics.recordRelease(address);
 		lockStrategy.releaseToken(address);
 	}
 
 	public String getRecoderCode(String address) {
-		String addressPrefix = FormatUtil.redisPrefix(address, LocalConstants.USER_TRANSACTION_ID);
-		return redisTemplate.boundValueOps(addressPrefix).get();
+		return lockStrategy.getTransactionToken(address);
 	}
 
 	/**
@@ -107,8 +145,7 @@ public class TransactionSequencingService {
 	 */
 	public boolean isTokenGrant(String address, String code) {
 
-		String addressPrefix = FormatUtil.redisPrefix(address, LocalConstants.USER_TRANSACTION_ID);
-		String repositoryCode = redisTemplate.boundValueOps(addressPrefix).get();
+		String repositoryCode = lockStrategy.getTransactionToken(address);
 		if (code.equals(repositoryCode)) {
 			return true;
 		}
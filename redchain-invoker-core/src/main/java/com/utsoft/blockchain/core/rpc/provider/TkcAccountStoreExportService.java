@@ -9,6 +9,7 @@ import com.utsoft.blockchain.api.util.Constants;
 import com.utsoft.blockchain.core.dao.mapper.ChaincodeAccessCodeMapper;
 import com.utsoft.blockchain.core.dao.model.ChaincodeAccessCodePo;
 import com.utsoft.blockchain.core.rpc.AbstractTkcRpcBasicService;
+import com.utsoft.blockchain.core.service.ApplyCodeRoutingService;
 import com.utsoft.blockchain.core.service.ICaUserService;
 import com.utsoft.blockchain.core.service.impl.RedisRepository;
 import com.utsoft.blockchain.core.util.CommonUtil;
@@ -37,6 +38,9 @@ public class TkcAccountStoreExportService extends AbstractTkcRpcBasicService imp
 	 
     @Autowired
     private ChaincodeAccessCodeMapper chaincodeAccessCodeMapper;
+
+    @Autowired
+    private ApplyCodeRoutingService applyCodeRoutingService;
      
      @Override
 	public BaseResponseModel<UserInfoRspModel> register(UserInfoRequstModel requestModel) {
@@ -49,10 +53,7 @@ public class TkcAccountStoreExportService extends AbstractTkcRpcBasicService imp
 			try {
 				
 			 String userPrefix = FormatUtil.redisPrefix(requestModel.getUserName(),requestModel.getCreated());
-			 UserInfoRequstModel redisObject = redisRepository.get(userPrefix);
-			 if (redisObject==null) {
-				 redisRepository.set(userPrefix,requestModel,120L,TimeUnit.SECONDS);
-			} else {
+			 if (!Boolean.TRUE.equals(redisRepository.setIfAbsent(userPrefix,requestModel,120L,TimeUnit.SECONDS))) {
 				rspModel.setCode(Constants.EXECUTE_PROCESS_ERROR);
 				return rspModel;
 			}
@@ -117,6 +118,7 @@ public class TkcAccountStoreExportService extends AbstractTkcRpcBasicService imp
 			chaincodeAccessCodePo.setUrlAddress(service.getCallbackUrl());
 			chaincodeAccessCodePo.setGmtCreate(new Date());
 			chaincodeAccessCodeMapper.insert(chaincodeAccessCodePo);
+			applyCodeRoutingService.refresh();
 		} catch (Exception ex) {
 			rspModel.setCode(Constants.SEVER_INNER_ERROR);
 			Object[] args = {username,ex};
@@ -1,7 +1,9 @@
 package com.utsoft.blockchain.core.rpc.provider;
+import java.security.PublicKey;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,13 +18,14 @@ import com.utsoft.blockchain.api.pojo.TkcTransactionBlockInfoVo;
 import com.utsoft.blockchain.api.pojo.TkcTransferModel;
 import com.utsoft.blockchain.api.pojo.TransactionBaseModel;
 import com.utsoft.blockchain.api.proivder.ITkcTransactionExportService;
-import com.utsoft.blockchain.api.security.CryptionConfig;
+import com.utsoft.blockchain.api.security.SignatureEntry;
+import com.utsoft.blockchain.api.util.CanonicalPlayload;
 import com.utsoft.blockchain.api.util.Constants;
 import com.utsoft.blockchain.api.util.SdkUtil;
-import com.utsoft.blockchain.api.util.SignaturePlayload;
 import com.utsoft.blockchain.core.dao.model.TransactionResultPo;
 import com.utsoft.blockchain.core.rpc.AbstractTkcRpcBasicService;
 import com.utsoft.blockchain.core.rpc.locker.TransactionSequencingService;
+import com.utsoft.blockchain.core.service.SubmitIdempotentService;
 import com.utsoft.blockchain.core.service.deamon.ASynTransactionTask;
 import com.utsoft.blockchain.core.service.impl.RedisRepository;
 import com.utsoft.blockchain.core.service.interceptor.QueryInterceptor;
@@ -52,6 +55,9 @@ public class TkcTransactionExportService extends AbstractTkcRpcBasicService impl
 	@Autowired
 	private TransactionSequencingService sequencingService;
 	
+	@Autowired
+	private SubmitIdempotentService idempotentService;
+	
 	@Override
 	public BaseResponseModel<TkcSubmitRspVo> tranfer(TkcTransferModel model,String sign) {
 
@@ -69,34 +75,46 @@ public class TkcTransactionExportService extends AbstractTkcRpcBasicService impl
 		if (CommonUtil.isEmpty(applyCategory,from,serviceCode,submitJson,created,sign,publicKey) ){
 		    return submitRspModel.setCode(Constants.PARAMETER_ERROR_NULl);
 		}
+		//sign=md5(applyCategory=1&created=2&from=3&publicKey=4&serviceCode=5&submitJson=6&to=7)
+		CanonicalPlayload signaturePlayload = CanonicalPlayload.local();
+		signaturePlayload.addPlayload(model.getApplyCategory());
+		signaturePlayload.addPlayload(created);
+		signaturePlayload.addPlayload(from);
+		signaturePlayload.addPlayload(publicKey);
+		signaturePlayload.addPlayload(serviceCode);
+		signaturePlayload.addPlayload(submitJson);
+		signaturePlayload.addPlayload(to);
+		CompletableFuture<Boolean> verified = verifyPlayloadAsync(publicKey,signaturePlayload, sign);
+
+		String userPrefix = FormatUtil.redisTransferPrefix(from,created);
+		CompletableFuture<BaseResponseModel<TkcSubmitRspVo>> previousFuture = idempotentService.lookupAsync(userPrefix);
+
 		/**
 		 * 订单是否提前申请
 		 */
 		boolean isGrant = sequencingService.isTokenGrant(from,created);
+		/**
+		 * 验签通过后,已受理的结果直接返回: key 绑定 (地址, created),签名证明调用方身份;
+		 * 原请求完成时已释放牌照,超时重试不再要求牌照。未受理过的才要求牌照
+		 */
+		if (!verified.join()) {
+			return submitRspModel.setCode(Constants.SINGATURE_ERROR);
+		}
+		BaseResponseModel<TkcSubmitRspVo> previous = previousFuture.join();
+		if (previous != null) {
+			return previous;
+		}
 		if (!isGrant){
 		   return submitRspModel.setCode(Constants.ORDER_APPLY_LOCKER); 
 		}
 		
 		synchronized(created) {
 			
-			String userPrefix = FormatUtil.redisTransferPrefix(from,created);
-			TkcTransferModel processOrder = (TkcTransferModel) redisRepository.get(userPrefix);
-			if (processOrder!=null) {
-				submitRspModel.setCode(Constants.EXECUTE_PROCESS_ERROR);
-				return submitRspModel;
-			} 
-			redisRepository.set(userPrefix,model,120L,TimeUnit.SECONDS);
-			//sign=md5(applyCategory=1&created=2&from=3&publicKey=4&serviceCode=5&submitJson=6&to=7)
-			SignaturePlayload signaturePlayload = new SignaturePlayload();
-			signaturePlayload.addPlayload(model.getApplyCategory());
-			signaturePlayload.addPlayload(created);
-			signaturePlayload.addPlayload(from);
-			signaturePlayload.addPlayload(publicKey);
-			signaturePlayload.addPlayload(serviceCode);
-			signaturePlayload.addPlayload(submitJson);
-			signaturePlayload.addPlayload(to);
+			if (!idempotentService.begin(userPrefix,model)) {
+				return idempotentService.attach(userPrefix);
+			}
 			try {
-				if (verifyPlayload(from,publicKey,signaturePlayload, sign)) {
+				if (verified.join()) {
 
 					TkcSubmitRspVo resultModel = new TkcSubmitRspVo();
 					SubmitRspResultDto result = transactionService.tranfer(applyCategory,from,to,serviceCode,submitJson);
@@ -137,11 +155,12 @@ public class TkcTransactionExportService extends AbstractTkcRpcBasicService impl
 				}
 			} catch (Exception ex) {
 				submitRspModel.setCode(Constants.SEVER_INNER_ERROR);
-				Object[] args = { signaturePlayload, ex };
-				logger.error("tranfer signaturePlayload:{} error:{} ", args);
+				Object[] args = { model, ex };
+				logger.error("tranfer model:{} error:{} ", args);
 			} finally {
 				sequencingService.releaseLocker(from);
 				sequencingService.releaseLocker(to);
+				idempotentService.complete(userPrefix,submitRspModel);
 			}
 			return submitRspModel;
 		}
@@ -159,20 +178,21 @@ public class TkcTransactionExportService extends AbstractTkcRpcBasicService impl
 		synchronized(created) {
 			
 			String userPrefix = FormatUtil.redisPrefix(from,created);
-			boolean exists = stringRedisTemplate.hasKey(userPrefix);
-			if (exists) {
+			/**
+			 * SET NX 写入去重标记,已存在即为重放
+			 */
+			if (!Boolean.TRUE.equals(redisRepository.setIfAbsent(userPrefix, userPrefix, 120L, TimeUnit.SECONDS))) {
 				queryModel.setCode(Constants.EXECUTE_PROCESS_ERROR);
 				return queryModel;
 			} 
 			//sign=md5(applyCategory=1&cmd=2&created=3&from=4&publicKey=5)
-			SignaturePlayload signaturePlayload = new SignaturePlayload();
+			CanonicalPlayload signaturePlayload = CanonicalPlayload.local();
 			signaturePlayload.addPlayload(applyCategory);
 			signaturePlayload.addPlayload(cmd);
 			signaturePlayload.addPlayload(created);
 			signaturePlayload.addPlayload(from);
 			signaturePlayload.addPlayload(publicKey);
-			stringRedisTemplate.boundValueOps(userPrefix).set(userPrefix,120L,TimeUnit.SECONDS);
-			
+
 			try {
 				if (verifyPlayload(from,publicKey,signaturePlayload, sign)) {
 
@@ -185,8 +205,8 @@ public class TkcTransactionExportService extends AbstractTkcRpcBasicService impl
 				}
 			} catch (Exception ex) {
 				queryModel.setCode(Constants.SEVER_INNER_ERROR);
-				Object[] args = { signaturePlayload, ex };
-				logger.error("select account  signaturePlayload:{} error :{}", args);
+				Object[] args = { applyCategory, from, ex };
+				logger.error("select account applyCategory:{} from:{} error :{}", args);
 			}
 			return queryModel;
 		}	
@@ -203,20 +223,20 @@ public class TkcTransactionExportService extends AbstractTkcRpcBasicService impl
 		
 		synchronized(created) {
 			String userPrefix = FormatUtil.redisPrefix(from,created);
-			boolean exists = stringRedisTemplate.hasKey(created);
-			if (exists) {
+			/**
+			 * SET NX 写入去重标记,已存在即为重放
+			 */
+			if (!Boolean.TRUE.equals(redisRepository.setIfAbsent(userPrefix, userPrefix, 120L, TimeUnit.SECONDS))) {
 				queryModel.setCode(Constants.EXECUTE_PROCESS_ERROR);
 				return queryModel;
 			} 
 			//sign=md5(applyCategory=1&created=2&from=3&publicKey=4&txId=5)
-			SignaturePlayload signaturePlayload = new SignaturePlayload();
+			CanonicalPlayload signaturePlayload = CanonicalPlayload.local();
 			signaturePlayload.addPlayload(applyCategory);
 			signaturePlayload.addPlayload(created);
 			signaturePlayload.addPlayload(from);
 			signaturePlayload.addPlayload(publicKey);
 			signaturePlayload.addPlayload(txId);
-		
-			stringRedisTemplate.boundValueOps(userPrefix).set(signaturePlayload.toString(),120L,TimeUnit.SECONDS);
 			try {
 				if (verifyPlayload(from,publicKey,signaturePlayload, sign)) {
 
@@ -232,8 +252,8 @@ public class TkcTransactionExportService extends AbstractTkcRpcBasicService impl
 					queryModel.setCode(Constants.SINGATURE_ERROR);
 			} catch (Exception ex) {
 				queryModel.setCode(Constants.SEVER_INNER_ERROR);
-				Object[] args = { signaturePlayload, ex };
-				logger.error("get block index signaturePlayload:{} error :{}", args);
+				Object[] args = { applyCategory, txId, ex };
+				logger.error("get block index applyCategory:{} txId:{} error :{}", args);
 			}
 			return queryModel;
 		}
@@ -258,31 +278,42 @@ public class TkcTransactionExportService extends AbstractTkcRpcBasicService impl
 		    return submitRspModel.setCode(Constants.PARAMETER_ERROR_NULl);
 		}
 		
+		//sign=md5(applyCategory=1&created=2&publicKey=3&serviceCode=4&submitJson=5&to=6)
+		CanonicalPlayload signaturePlayload = CanonicalPlayload.local();
+		signaturePlayload.addPlayload(model.getApplyCategory());
+		signaturePlayload.addPlayload(created);
+		signaturePlayload.addPlayload(publicKey);
+		signaturePlayload.addPlayload(serviceCode);
+		signaturePlayload.addPlayload(submitJson);
+		signaturePlayload.addPlayload(to);
+		CompletableFuture<Boolean> verified = verifyPlayloadAsync(publicKey,signaturePlayload, sign);
+
+		String userPrefix = FormatUtil.redisRechargePrefix(to,created);
+		CompletableFuture<BaseResponseModel<TkcSubmitRspVo>> previousFuture = idempotentService.lookupAsync(userPrefix);
+
 		boolean isGrant = sequencingService.isTokenGrant(to,created);
+		/**
+		 * 验签通过后,已受理的结果直接返回: key 绑定 (地址, created),签名证明调用方身份;
+		 * 原请求完成时已释放牌照,超时重试不再要求牌照。未受理过的才要求牌照
+		 */
+		if (!verified.join()) {
+			return submitRspModel.setCode(Constants.SINGATURE_ERROR);
+		}
+		BaseResponseModel<TkcSubmitRspVo> previous = previousFuture.join();
+		if (previous != null) {
+			return previous;
+		}
 		if (!isGrant){
 		   return submitRspModel.setCode(Constants.ORDER_APPLY_LOCKER); 
 		}
 		synchronized(created) {
 			
-			String userPrefix = FormatUtil.redisRechargePrefix(to,created);
-			TkcTransferModel processOrder = (TkcTransferModel) redisRepository.get(userPrefix);
-			if (processOrder!=null) {
-				submitRspModel.setCode(Constants.EXECUTE_PROCESS_ERROR);
-				return submitRspModel;
-			} 
-			redisRepository.set(userPrefix,model,120L,TimeUnit.SECONDS);
-			
-			//sign=md5(applyCategory=1&created=2&publicKey=3&serviceCode=4&submitJson=5&to=6)
-			SignaturePlayload signaturePlayload = new SignaturePlayload();
-			signaturePlayload.addPlayload(model.getApplyCategory());
-			signaturePlayload.addPlayload(created);
-			signaturePlayload.addPlayload(publicKey);
-			signaturePlayload.addPlayload(serviceCode);
-			signaturePlayload.addPlayload(submitJson);
-			signaturePlayload.addPlayload(to);
+			if (!idempotentService.begin(userPrefix,model)) {
+				return idempotentService.attach(userPrefix);
+			}
 			
 			try {
-				if (verifyPlayload(to,publicKey,signaturePlayload, sign)) {
+				if (verified.join()) {
 
 					TkcSubmitRspVo resultModel = new TkcSubmitRspVo();
 					SubmitRspResultDto result = transactionService.recharge(applyCategory,to,serviceCode,submitJson);
@@ -310,10 +341,11 @@ public class TkcTransactionExportService extends AbstractTkcRpcBasicService impl
 				}
 			} catch (Exception ex) {
 				submitRspModel.setCode(Constants.SEVER_INNER_ERROR);
-				Object[] args = { signaturePlayload, ex };
-				logger.error("tranfer signaturePlayload:{} error:{} ", args);
+				Object[] args = { model, ex };
+				logger.error("tranfer model:{} error:{} ", args);
 			} finally {			
 			    sequencingService.releaseLocker(to);	
+			    idempotentService.complete(userPrefix,submitRspModel);
 			}
 			return submitRspModel;
 		}
@@ -406,18 +438,33 @@ public class TkcTransactionExportService extends AbstractTkcRpcBasicService impl
 	 * @param sourceSign
 	 * @return
 	 */
-	private boolean verifyPlayload(String from,String publicKey,SignaturePlayload signaturePlayload, String sourceSign) {
-		
-		byte[] plainText = signaturePlayload.originalPacket();
-		byte[] signature = SdkUtil.decodeHexStrig(sourceSign);
-		byte[] certificate = SdkUtil.decodeHexStrig(publicKey);
-		CryptionConfig config = CryptionConfig.getConfig();
+	private boolean verifyPlayload(String from,String publicKey,CanonicalPlayload signaturePlayload, String sourceSign) {
+		return verifyPlayloadAsync(publicKey, signaturePlayload, sourceSign).join();
+	}
+
+	/**
+	 * 签名验证交给验签阶段执行,调用方可先处理 IO 再取结果
+	 * 
+	 * @param publicKey
+	 * @param signaturePlayload
+	 * @param sourceSign
+	 * @return
+	 */
+	private CompletableFuture<Boolean> verifyPlayloadAsync(String publicKey,CanonicalPlayload signaturePlayload, String sourceSign) {
 		try {
-			return familySecCrypto.verifySignatureByPublic(certificate, config.getSignatureAlgorithm(), signature, plainText);
+			byte[] signature = SdkUtil.decodeHexStrig(sourceSign);
+			PublicKey key = familySecCrypto.loadPublicKeyByStr(publicKey);
+			SignatureEntry entry = prehashed ? SignatureEntry.prehashed(key, signature, signaturePlayload.digest())
+					: new SignatureEntry(key, signatureAlgorithm, signature, signaturePlayload.originalPacket());
+			return verifyStage.submit(familySecCrypto, entry);
 		} catch (CryptionException e) {
-			e.printStackTrace();
+			logger.error("load publicKey:{} error", publicKey, e);
+			return CompletableFuture.completedFuture(false);
+		} catch (RuntimeException e) {
+			CompletableFuture<Boolean> failed = new CompletableFuture<>();
+			failed.completeExceptionally(e);
+			return failed;
 		}
-		return false;
 	}
 
 	@Override
@@ -457,23 +504,27 @@ public class TkcTransactionExportService extends AbstractTkcRpcBasicService impl
 		    return submitRspModel.setCode(Constants.PARAMETER_ERROR_NULl);
 		}
 		
+		String userPrefix = FormatUtil.redisTransferPrefix(from,created);
+		CompletableFuture<BaseResponseModel<TkcSubmitRspVo>> previousFuture = idempotentService.lookupAsync(userPrefix);
+
 		/**
-		 * 订单是否提前申请
+		 * 订单是否提前申请。无签名调用只能以牌照证明身份: 仅持有该 created 牌照(处理中的重复提交)
+		 * 才返回已受理的结果;牌照释放后的重试走签名接口 tranfer,同一 (from, created) 取回原结果
 		 */
 		boolean isGrant = sequencingService.isTokenGrant(from,created);
 		if (!isGrant){
 		   return submitRspModel.setCode(Constants.ORDER_APPLY_LOCKER); 
 		}
+		BaseResponseModel<TkcSubmitRspVo> previous = previousFuture.join();
+		if (previous != null) {
+			return previous;
+		}
 		
        synchronized(created) {
 			
-			String userPrefix = FormatUtil.redisTransferPrefix(from,created);
-			TkcTransferModel processOrder = (TkcTransferModel) redisRepository.get(userPrefix);
-			if (processOrder!=null) {
-				submitRspModel.setCode(Constants.EXECUTE_PROCESS_ERROR);
-				return submitRspModel;
-			} 
-			redisRepository.set(userPrefix,model,120L,TimeUnit.SECONDS);
+			if (!idempotentService.begin(userPrefix,model)) {
+				return idempotentService.attach(userPrefix);
+			}
 			try {
 
 					TkcSubmitRspVo resultModel = new TkcSubmitRspVo();
@@ -517,6 +568,7 @@ public class TkcTransactionExportService extends AbstractTkcRpcBasicService impl
 			} finally {
 				sequencingService.releaseLocker(from);
 				sequencingService.releaseLocker(to);
+				idempotentService.complete(userPrefix,submitRspModel);
 			}
 			return submitRspModel;
         }	
@@ -539,19 +591,25 @@ public class TkcTransactionExportService extends AbstractTkcRpcBasicService impl
 		    return submitRspModel.setCode(Constants.PARAMETER_ERROR_NULl);
 		}
 		
+		String userPrefix = FormatUtil.redisRechargePrefix(to,created);
+		CompletableFuture<BaseResponseModel<TkcSubmitRspVo>> previousFuture = idempotentService.lookupAsync(userPrefix);
+
+		/**
+		 * 无签名调用只能以牌照证明身份,规则同 directTranfer;牌照释放后的重试走签名接口 recharge
+		 */
 		boolean isGrant = sequencingService.isTokenGrant(to,created);
 		if (!isGrant){
 		   return submitRspModel.setCode(Constants.ORDER_APPLY_LOCKER); 
 		}
+		BaseResponseModel<TkcSubmitRspVo> previous = previousFuture.join();
+		if (previous != null) {
+			return previous;
+		}
 		synchronized(created) {
 			
-			String userPrefix = FormatUtil.redisRechargePrefix(to,created);
-			TkcTransferModel processOrder = (TkcTransferModel) redisRepository.get(userPrefix);
-			if (processOrder!=null) {
-				submitRspModel.setCode(Constants.EXECUTE_PROCESS_ERROR);
-				return submitRspModel;
-			} 
-			redisRepository.set(userPrefix,model,120L,TimeUnit.SECONDS);
+			if (!idempotentService.begin(userPrefix,model)) {
+				return idempotentService.attach(userPrefix);
+			}
 			try {
 			
 					TkcSubmitRspVo resultModel = new TkcSubmitRspVo();
@@ -582,6 +640,7 @@ public class TkcTransactionExportService extends AbstractTkcRpcBasicService impl
 				logger.error("tranfer signaturePlayload:{} error:{} ", args);
 			} finally {			
 			    sequencingService.releaseLocker(to);	
+			    idempotentService.complete(userPrefix,submitRspModel);
 			}
 			return submitRspModel;
 		}
@@ -1,7 +1,5 @@
 package com.utsoft.blockchain.core.service;
 import java.io.File;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Properties;
 
@@ -11,20 +9,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import com.utsoft.blockchain.core.dao.mapper.ChaincodeAccessCodeMapper;
 import com.utsoft.blockchain.core.dao.mapper.ChaincodeMapper;
 import com.utsoft.blockchain.core.dao.mapper.ChaincodeOrgConfigMapper;
-import com.utsoft.blockchain.core.dao.model.ChaincodeAccessCodePo;
 import com.utsoft.blockchain.core.dao.model.ChaincodeOrgConfigPo;
-import com.utsoft.blockchain.core.dao.model.ChaincodePo;
 import com.utsoft.blockchain.core.fabric.channel.ChannelClientPoolManager;
 import com.utsoft.blockchain.core.fabric.model.FabricAuthorizedOrg;
 import com.utsoft.blockchain.core.fabric.model.FabricAuthorizedUser;
-import com.utsoft.blockchain.core.service.interceptor.QueryInterceptor;
-import com.utsoft.blockchain.core.service.interceptor.SystemQueryInterceptor;
 import com.utsoft.blockchain.core.util.CommonUtil;
 import com.utsoft.blockchain.core.util.FormatUtil;
 import com.utsoft.blockchain.core.util.IGlobals;
 import com.utsoft.blockchain.core.util.SystemExceptionHandler;
-
-import tk.mybatis.mapper.entity.Example;
 /**
  * 把与交易无关代码抽象到父类
  * @author hunterfox
@@ -53,49 +45,21 @@ public abstract class AbstractTkcBasicService {
 	protected ChaincodeAccessCodeMapper chaincodeAccessCodeMapper;
 	
 	/**
-	 * 交易指令地图 
-	 * <code>applycode --> ChaincodePo</code>
-	 */
-	protected static HashMap<String,Integer>  chainIdCodeMap = new HashMap<>();
-	
-	protected static HashMap<Integer,ChaincodeID>  chaincodeMap = new HashMap<>();
-	/**
-	 * 区块链查询拦截器
+	 * 交易指令路由 
+	 * <code>applycode --> ChaincodeID</code>
 	 */
-	protected  static List<QueryInterceptor> interceptors = new ArrayList<>();
+	@Autowired
+	protected ApplyCodeRoutingService applyCodeRoutingService;
 	
 	/**
 	 * 初始化交易信息及链接配置信息
 	 */
 	public void init() {
-		
-		
-		Example example = new Example(ChaincodeAccessCodePo.class);
-		example.createCriteria().andEqualTo("status",1);
-		List<ChaincodeAccessCodePo> acesscodePoList =  chaincodeAccessCodeMapper.selectByExample(example);
-		acesscodePoList.stream().forEach(code -> {
-			chainIdCodeMap.put(code.getApplyCode(), code.getChainId());
-			interceptors.add(new SystemQueryInterceptor(code.getApplyCode(),code.getWorldstateUrl()));
-		});
-		
-		example = new Example(ChaincodePo.class);
-		example.createCriteria().andEqualTo("status",1);
-		List<ChaincodePo> chaincodePoList = chaincodeMapper.selectByExample(example);
-	    if (CommonUtil.isCollectNotEmpty(chaincodePoList)) {
-	   
-	    	  chaincodePoList.stream().filter(p-> !chaincodeMap.containsKey(p.getChainId())).forEach(chaincodePo -> {
-	    		
-	    		     ChaincodeID  chaincodeID = ChaincodeID.newBuilder().setName(chaincodePo.getChainCodeName())
-	                  .setVersion(chaincodePo.getCodeVersion())
-	                 .setPath(chaincodePo.getCodePath()).build();
-	    		    chaincodeMap.put(chaincodePo.getChainId(), chaincodeID);
-	      });
-	    }
 	   
 		/**
 		 * 获取组织地址配置
 		 */
-	    chaincodeMap.forEach((chainId,chaincodeID)->{
+		applyCodeRoutingService.getChaincodes().forEach((chainId,chaincodeID)->{
 	    	  
 	    	List<ChaincodeOrgConfigPo> chainOrgList =chaincodeOrgConfigMapper.listNodeConfigAddress(chainId);  
 	    	chainOrgList.stream().forEach(chainOrgpo -> {
@@ -182,7 +146,6 @@ public abstract class AbstractTkcBasicService {
 	 * @return
 	 */
 	protected ChaincodeID getChainCode(String applyCode) {
-		Integer chainId = chainIdCodeMap.get(applyCode);
-		return chaincodeMap.get(chainId);
+		return applyCodeRoutingService.getChainCode(applyCode);
 	}
 }
@@ -0,0 +1,270 @@
+package com.utsoft.blockchain.core.service;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.hyperledger.fabric.sdk.ChaincodeID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import com.utsoft.blockchain.core.dao.mapper.ChaincodeAccessCodeMapper;
+import com.utsoft.blockchain.core.dao.mapper.ChaincodeMapper;
+import com.utsoft.blockchain.core.dao.model.ChaincodeAccessCodePo;
+import com.utsoft.blockchain.core.dao.model.ChaincodePo;
+import com.utsoft.blockchain.core.service.interceptor.QueryInterceptor;
+import com.utsoft.blockchain.core.service.interceptor.SystemQueryInterceptor;
+import com.utsoft.blockchain.core.util.CommonUtil;
+import com.utsoft.blockchain.core.util.IGlobals;
+import com.utsoft.blockchain.core.util.LocalConstants;
+import tk.mybatis.mapper.entity.Example;
+/**
+ * applyCode 路由表
+ * <p>
+ * applyCode --> (chainId, ChaincodeID, 回调地址, 查询拦截器),整表不可变,
+ * 读取只有一次 volatile 读和一次 map 查找;新增业务代码、定时重载或查找未命中时
+ * 复制出新表后整体替换(copy-on-write),读写互不加锁。
+ * 数据库中不存在的 applyCode 在 missTtl 内直接返回 null,不再逐次查库,重载时清空
+ * 同一 chainId 的 ChaincodeID 实例在重载间保持不变,channel 配置以它为 key
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+@Service
+public class ApplyCodeRoutingService {
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	private static final int STATUS_VALID = 1;
+
+	/**
+	 * 不存在的 applyCode 最多缓存个数,超出时整体清空
+	 */
+	private static final int MAX_MISSES = 10000;
+
+	@Autowired
+	private ChaincodeAccessCodeMapper chaincodeAccessCodeMapper;
+
+	@Autowired
+	private ChaincodeMapper chaincodeMapper;
+
+	private volatile RoutingTable table = new RoutingTable(Collections.emptyMap(), Collections.emptyMap());
+
+	/**
+	 * 不存在的 applyCode --> 缓存到期时间(毫秒)
+	 */
+	private final ConcurrentMap<String, Long> misses = new ConcurrentHashMap<>();
+
+	private long missTtlMillis;
+
+	private ScheduledExecutorService refresher;
+
+	@PostConstruct
+	public void init() {
+		missTtlMillis = IGlobals.getLongProperty(LocalConstants.TRANSACTION_ROUTING_MISS_TTL, 5000L);
+		refresh();
+		long interval = IGlobals.getLongProperty(LocalConstants.TRANSACTION_ROUTING_REFRESH, 60L);
+		refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "apply-routing-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+		refresher.scheduleWithFixedDelay(() -> {
+			try {
+				refresh();
+			} catch (Exception ex) {
+				logger.error("apply routing refresh error", ex);
+			}
+		}, interval, interval, TimeUnit.SECONDS);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (refresher != null) {
+			refresher.shutdownNow();
+		}
+	}
+
+	/**
+	 * 从数据库重建整表并替换
+	 */
+	public synchronized void refresh() {
+		RoutingTable current = table;
+		Map<Integer, ChaincodeID> chaincodes = new HashMap<>();
+		Example example = new Example(ChaincodePo.class);
+		example.createCriteria().andEqualTo("status", STATUS_VALID);
+		for (ChaincodePo chaincodePo : chaincodeMapper.selectByExample(example)) {
+			ChaincodeID chaincodeID = current.chaincodes.get(chaincodePo.getChainId());
+			if (chaincodeID == null) {
+				chaincodeID = ChaincodeID.newBuilder().setName(chaincodePo.getChainCodeName())
+						.setVersion(chaincodePo.getCodeVersion()).setPath(chaincodePo.getCodePath()).build();
+			}
+			chaincodes.put(chaincodePo.getChainId(), chaincodeID);
+		}
+		Map<String, ApplyRoute> routes = new HashMap<>();
+		for (ChaincodeAccessCodePo accessCode : chaincodeAccessCodeMapper.selectAll()) {
+			routes.put(accessCode.getApplyCode(), new ApplyRoute(accessCode, chaincodes));
+		}
+		table = new RoutingTable(routes, chaincodes);
+		misses.clear();
+		if (current.routes.size() != routes.size() || current.chaincodes.size() != chaincodes.size()) {
+			logger.info("apply routing reloaded applyCodes:{} chaincodes:{}", routes.size(), chaincodes.size());
+		}
+	}
+
+	/**
+	 * 路由,未命中时查询数据库并加入路由表(其它节点新增的业务代码),
+	 * 数据库中也不存在时在 missTtl 内不再查询
+	 * @param applyCode
+	 * @return 不存在时为 null
+	 */
+	public ApplyRoute getRoute(String applyCode) {
+		if (applyCode == null) {
+			return null;
+		}
+		ApplyRoute route = table.routes.get(applyCode);
+		if (route != null) {
+			return route;
+		}
+		return isKnownMiss(applyCode) ? null : load(applyCode);
+	}
+
+	/**
+	 * 可用业务代码对应的链码
+	 * @param applyCode
+	 * @return
+	 */
+	public ChaincodeID getChainCode(String applyCode) {
+		ApplyRoute route = getRoute(applyCode);
+		return route == null ? null : route.chaincodeID;
+	}
+
+	/**
+	 * 全部可用链码,chainId --> ChaincodeID
+	 * @return
+	 */
+	public Map<Integer, ChaincodeID> getChaincodes() {
+		return table.chaincodes;
+	}
+
+	/**
+	 * 全部查询拦截器
+	 * @return
+	 */
+	public List<QueryInterceptor> getInterceptors() {
+		return table.interceptors;
+	}
+
+	private synchronized ApplyRoute load(String applyCode) {
+		RoutingTable current = table;
+		ApplyRoute route = current.routes.get(applyCode);
+		if (route != null) {
+			return route;
+		}
+		// 排队期间其它线程已查过
+		if (isKnownMiss(applyCode)) {
+			return null;
+		}
+		Example example = new Example(ChaincodeAccessCodePo.class);
+		example.createCriteria().andEqualTo("applyCode", applyCode);
+		List<ChaincodeAccessCodePo> list = chaincodeAccessCodeMapper.selectByExample(example);
+		if (!CommonUtil.isCollectNotEmpty(list)) {
+			if (missTtlMillis > 0) {
+				if (misses.size() >= MAX_MISSES) {
+					misses.clear();
+				}
+				misses.put(applyCode, System.currentTimeMillis() + missTtlMillis);
+			}
+			return null;
+		}
+		route = new ApplyRoute(list.get(0), current.chaincodes);
+		Map<String, ApplyRoute> routes = new HashMap<>(current.routes);
+		routes.put(applyCode, route);
+		table = new RoutingTable(routes, current.chaincodes);
+		misses.remove(applyCode);
+		return route;
+	}
+
+	private boolean isKnownMiss(String applyCode) {
+		Long expireAt = misses.get(applyCode);
+		return expireAt != null && expireAt > System.currentTimeMillis();
+	}
+
+	/**
+	 * 单个业务代码的路由,不可变
+	 */
+	public static final class ApplyRoute {
+
+		private final String applyCode;
+		private final Integer chainId;
+		private final ChaincodeID chaincodeID;
+		private final String callbackUrl;
+		private final boolean callbackBatch;
+		private final List<QueryInterceptor> interceptors;
+
+		ApplyRoute(ChaincodeAccessCodePo accessCode, Map<Integer, ChaincodeID> chaincodes) {
+			boolean valid = Integer.valueOf(STATUS_VALID).equals(accessCode.getStatus());
+			this.applyCode = accessCode.getApplyCode();
+			this.chainId = accessCode.getChainId();
+			this.chaincodeID = valid && chainId != null ? chaincodes.get(chainId) : null;
+			this.callbackUrl = accessCode.getUrlAddress();
+			this.callbackBatch = Integer.valueOf(1).equals(accessCode.getCallbackBatch());
+			this.interceptors = valid
+					? Collections.singletonList(new SystemQueryInterceptor(applyCode, accessCode.getWorldstateUrl()))
+					: Collections.emptyList();
+		}
+
+		public String getApplyCode() {
+			return applyCode;
+		}
+
+		public Integer getChainId() {
+			return chainId;
+		}
+
+		/**
+		 * @return 业务代码未启用或链码不可用时为 null
+		 */
+		public ChaincodeID getChaincodeID() {
+			return chaincodeID;
+		}
+
+		public String getCallbackUrl() {
+			return callbackUrl;
+		}
+
+		/**
+		 * @return 商户开启批量回调
+		 */
+		public boolean isCallbackBatch() {
+			return callbackBatch;
+		}
+
+		public List<QueryInterceptor> getInterceptors() {
+			return interceptors;
+		}
+	}
+
+	private static final class RoutingTable {
+
+		final Map<String, ApplyRoute> routes;
+		final Map<Integer, ChaincodeID> chaincodes;
+		final List<QueryInterceptor> interceptors;
+
+		RoutingTable(Map<String, ApplyRoute> routes, Map<Integer, ChaincodeID> chaincodes) {
+			this.routes = Collections.unmodifiableMap(routes);
+			this.chaincodes = Collections.unmodifiableMap(chaincodes);
+			List<QueryInterceptor> all = new ArrayList<>();
+			routes.values().forEach(route -> all.addAll(route.interceptors));
+			this.interceptors = Collections.unmodifiableList(all);
+		}
+	}
+}
@@ -4,6 +4,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 public interface IRedisRepository<K, V> {
@@ -32,6 +33,21 @@ public interface IRedisRepository<K, V> {
 
     void set(final K key, final V value, final long timeout, final TimeUnit unit);
 
+    /**
+     * SET key value NX PX timeout
+     * @return true 表示写入,false 表示 key 已存在
+     */
+    Boolean setIfAbsent(final K key, final V value, final long timeout, final TimeUnit unit);
+
+    // Async, 未开启多路复用时同步执行并返回已完成的 future
+    CompletableFuture<V> getAsync(final K key);
+
+    CompletableFuture<Void> setAsync(final K key, final V value, final long timeout, final TimeUnit unit);
+
+    CompletableFuture<Boolean> existsAsync(final K key);
+
+    CompletableFuture<Void> delAsync(final K key);
+
     // Hash
     void hDel(final K key, final Object... hKeys);
 
@@ -10,8 +10,9 @@ import java.security.NoSuchProviderException;
 import java.security.PrivateKey;
 import java.security.Security;
 import java.security.spec.InvalidKeySpecException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -21,14 +22,22 @@ import org.bouncycastle.openssl.PEMParser;
 import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
 import org.hyperledger.fabric.sdk.Enrollment;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
+import com.utsoft.blockchain.api.util.SegmentedLruCache;
 import com.utsoft.blockchain.core.dao.mapper.KeystoreMapper;
 import com.utsoft.blockchain.core.dao.model.KeyStorePo;
 import com.utsoft.blockchain.core.fabric.model.FabricAuthorizedUser;
+import com.utsoft.blockchain.core.util.IGlobals;
+import com.utsoft.blockchain.core.util.LocalConstants;
 
 /**
  * A local file-based key value store.
+ * <p>
+ * 已保存的 fabric 用户按 key store 名缓存,容量和有效期有界。
+ * 写入 key store(注册、enroll、reenroll、吊销)时在 redis 中递增该用户的版本号,
+ * 各节点命中缓存时比对版本号,不一致或 redis 不可用时重新加载,其它节点的修改随即可见
  * @author hunterfox
  * @date: 2017年7月31日
  * @version 1.0.0
@@ -38,11 +47,22 @@ public class LocalKeyPrivateStoreService {
 
     private Log logger = LogFactory.getLog(LocalKeyPrivateStoreService.class);
     
-    private final Map<String, FabricAuthorizedUser> members = new HashMap<>();
+    private SegmentedLruCache<String, CachedMember> members;
+
+    private long memberTtlMillis;
     
     @Autowired
     private KeystoreMapper keySotreMapper;
 
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @PostConstruct
+    public void init() {
+        members = new SegmentedLruCache<>(IGlobals.getIntProperty(LocalConstants.CA_MEMBER_CACHE_SIZE, 10000), 16);
+        memberTtlMillis = TimeUnit.SECONDS.toMillis(IGlobals.getLongProperty(LocalConstants.CA_MEMBER_CACHE_TTL, 300L));
+    }
+
 
     /**
      * Get the value associated with name.
@@ -63,15 +83,36 @@ public class LocalKeyPrivateStoreService {
      * @param value Value for the parameter
      */
     public void setValue(String name, String value) {
-    	KeyStorePo keystorePo = keySotreMapper.selectByPrimaryKey(name);
-    	if (keystorePo!=null){
-    		keystorePo.setStore(value);
-        	keySotreMapper.updateByPrimaryKey(keystorePo);
-    	} else {
-    		keystorePo = new KeyStorePo();
-    		keystorePo.setKeyId(name);
-    		keystorePo.setStore(value);
-    		keySotreMapper.insert(keystorePo);
+    	setValue(name, value, keySotreMapper.selectByPrimaryKey(name) != null);
+    }
+
+    /**
+     * Set the value associated with name when the caller already knows whether it exists,
+     * saving the select round trip.
+     *
+     * @param name   The name of the parameter
+     * @param value  Value for the parameter
+     * @param exists whether name is already in the store
+     */
+    public void setValue(String name, String value, boolean exists) {
+    	KeyStorePo keystorePo = new KeyStorePo();
+    	keystorePo.setKeyId(name);
+    	keystorePo.setStore(value);
+    	try {
+    		if (exists) {
+    			keySotreMapper.updateByPrimaryKey(keystorePo);
+    			return;
+    		}
+    		try {
+    			keySotreMapper.insert(keystorePo);
+    		} catch (RuntimeException ex) {
+    			// inserted concurrently by another node
+    			if (keySotreMapper.updateByPrimaryKey(keystorePo) == 0) {
+    				throw ex;
+    			}
+    		}
+    	} finally {
+    		publishChange(name);
     	}
     }
 
@@ -86,18 +127,84 @@ public class LocalKeyPrivateStoreService {
     public FabricAuthorizedUser getMember(String name, String org) {
 
         // Try to get the SampleUser state from the cache
-    	FabricAuthorizedUser fabricAuthorizedUser = members.get(FabricAuthorizedUser.toKeyValStoreName(name, org));
+        String keyValStoreName = FabricAuthorizedUser.toKeyValStoreName(name, org);
+    	FabricAuthorizedUser fabricAuthorizedUser = cachedMember(keyValStoreName);
         if (null != fabricAuthorizedUser) {
             return fabricAuthorizedUser;
         }
 
         // Create the SampleUser and try to restore it's state from the key value store (if found).
+        // 先取版本号再读 store,读取期间的修改会使本次缓存失效
+        String version = memberVersion(keyValStoreName);
         fabricAuthorizedUser = new FabricAuthorizedUser(name, org, this);
+        cacheMember(keyValStoreName, fabricAuthorizedUser, version);
 
         return fabricAuthorizedUser;
 
     }
 
+    /**
+     * Drop the cached user on every node.
+     * @param name
+     * @param org
+     */
+    public void invalidate(String name, String org) {
+        publishChange(FabricAuthorizedUser.toKeyValStoreName(name, org));
+    }
+
+    private FabricAuthorizedUser cachedMember(String keyValStoreName) {
+        CachedMember cached = members.get(keyValStoreName);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.expireAt < System.currentTimeMillis() || cached.version == null
+                || !cached.version.equals(memberVersion(keyValStoreName))) {
+            members.remove(keyValStoreName);
+            return null;
+        }
+        return cached.user;
+    }
+
+    /**
+     * 只缓存 key store 中已有的用户,尚未注册的用户及版本号不可用时不缓存
+     */
+    private void cacheMember(String keyValStoreName, FabricAuthorizedUser user, String version) {
+        if (version != null && user.isStored()) {
+            members.put(keyValStoreName, new CachedMember(user, version, System.currentTimeMillis() + memberTtlMillis));
+        }
+    }
+
+    /**
+     * 当前版本号,近期未修改为 "0",redis 不可用为 null
+     */
+    private String memberVersion(String keyValStoreName) {
+        try {
+            String version = stringRedisTemplate.boundValueOps(versionKey(keyValStoreName)).get();
+            return version != null ? version : "0";
+        } catch (RuntimeException ex) {
+            logger.warn("read member version fail:" + keyValStoreName, ex);
+            return null;
+        }
+    }
+
+    /**
+     * 本节点直接失效,其它节点在下次命中时通过版本号失效
+     */
+    private void publishChange(String keyValStoreName) {
+        members.remove(keyValStoreName);
+        try {
+            // 每次修改写入新的随机版本号,过期后回到 "0" 也不会与缓存中的版本号重合
+            stringRedisTemplate.boundValueOps(versionKey(keyValStoreName)).set(UUID.randomUUID().toString(),
+                    memberTtlMillis * 2, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException ex) {
+            logger.error("publish member change fail:" + keyValStoreName, ex);
+        }
+    }
+
+    private static String versionKey(String keyValStoreName) {
+        return LocalConstants.CA_MEMBER_VERSION_PREFIX + keyValStoreName;
+    }
+
     /**
      * Get the user with a given name
      * @param name
@@ -116,7 +223,8 @@ public class LocalKeyPrivateStoreService {
 
         try {
             // Try to get the SampleUser state from the cache
-        	FabricAuthorizedUser sampleUser = members.get(FabricAuthorizedUser.toKeyValStoreName(name, org));
+            String keyValStoreName = FabricAuthorizedUser.toKeyValStoreName(name, org);
+        	FabricAuthorizedUser sampleUser = cachedMember(keyValStoreName);
             if (null != sampleUser) {
                 return sampleUser;
             }
@@ -131,7 +239,8 @@ public class LocalKeyPrivateStoreService {
 
             sampleUser.setEnrollment(new SampleStoreEnrollement(privateKey, certificate));
 
-            sampleUser.saveState();
+            sampleUser.flush();
+            cacheMember(keyValStoreName, sampleUser, memberVersion(keyValStoreName));
 
             return sampleUser;
         } catch (IOException e) {
@@ -171,6 +280,19 @@ public class LocalKeyPrivateStoreService {
         return privateKey;
     }
 
+    private static final class CachedMember {
+
+        final FabricAuthorizedUser user;
+        final String version;
+        final long expireAt;
+
+        CachedMember(FabricAuthorizedUser user, String version, long expireAt) {
+            this.user = user;
+            this.version = version;
+            this.expireAt = expireAt;
+        }
+    }
+
     static final class SampleStoreEnrollement implements Enrollment, Serializable {
 
         private static final long serialVersionUID = -2784835212445309006L;
@@ -0,0 +1,173 @@
+package com.utsoft.blockchain.core.service;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import com.utsoft.blockchain.core.util.FormatUtil;
+import com.utsoft.blockchain.core.util.IGlobals;
+import com.utsoft.blockchain.core.util.LocalConstants;
+import com.utsoft.blockchain.core.util.RotatingBloomFilter;
+/**
+ * 防重放前置过滤
+ * <p>
+ * 交易提交的去重 key 先查本地轮转布隆过滤器,确定未出现过的跳过 redis 读取;
+ * 查询、注册直接以 SET NX 判重,没有可省的读取,不经过过滤器。
+ * 过滤器的"未出现"只在本节点、本次启动内可靠: 重启后为空,shared 模式下其它节点写入的位
+ * 在同步周期内也不可见,因此只能用来省去读取,受理与否必须以 redis SET NX 的结果为准。
+ * <ul>
+ * <li>off: 不过滤,每次都查询 redis(默认)</li>
+ * <li>local: 仅本节点过滤,适用于单节点或按账户路由的部署</li>
+ * <li>shared: 各节点通过 redis bitmap 交换写入位,同步周期内到达其它节点的重复请求仍可能漏判</li>
+ * </ul>
+ * @author hunterfox
+ * @date: 2017年10月11日
+ * @version 1.0.0
+ */
+@Service
+public class ReplayFilterService {
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	/**
+	 * 每代时长,三代存活,覆盖 120 秒去重窗口
+	 */
+	private static final long GENERATION_SPAN_MILLIS = 60000L;
+	private static final int GENERATIONS = 3;
+
+	@Autowired
+	private RedisTemplate<String, String> redisTemplate;
+
+	private String mode;
+	private RotatingBloomFilter filter;
+	private final Queue<PendingBits> pendings = new ConcurrentLinkedQueue<>();
+	private ScheduledExecutorService synchronizer;
+
+	@PostConstruct
+	public void init() {
+		mode = IGlobals.getProperty(LocalConstants.TRANSACTION_REPLAY_FILTER, "off");
+		if (!"local".equalsIgnoreCase(mode) && !isShared()) {
+			return;
+		}
+		int expected = IGlobals.getIntProperty(LocalConstants.TRANSACTION_REPLAY_EXPECTED, 100000);
+		double fpp = Double.parseDouble(IGlobals.getProperty(LocalConstants.TRANSACTION_REPLAY_FPP, "0.001"));
+		filter = new RotatingBloomFilter(expected, fpp, GENERATION_SPAN_MILLIS, GENERATIONS);
+		if (isShared()) {
+			long interval = IGlobals.getLongProperty(LocalConstants.TRANSACTION_REPLAY_SYNC_INTERVAL, 1000L);
+			synchronizer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "replay-filter-sync");
+				thread.setDaemon(true);
+				return thread;
+			});
+			synchronizer.scheduleWithFixedDelay(this::synchronize, interval, interval, TimeUnit.MILLISECONDS);
+		}
+		logger.info("replay filter mode:{} expected:{} fpp:{}", mode, expected, fpp);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (synchronizer != null) {
+			synchronizer.shutdownNow();
+		}
+	}
+
+	/**
+	 * 是否需要查询 redis 确认重放
+	 * @param key 去重 key
+	 * @return false 表示本节点未记录过,不能据此受理请求
+	 */
+	public boolean mightBeReplay(String key) {
+		return filter == null || filter.mightContain(key);
+	}
+
+	/**
+	 * 记录已受理的去重 key
+	 * @param key
+	 */
+	public void record(String key) {
+		if (filter == null) {
+			return;
+		}
+		int[] indexes = filter.put(key);
+		if (isShared()) {
+			pendings.offer(new PendingBits(filter.currentGeneration(), indexes));
+		}
+	}
+
+	private boolean isShared() {
+		return "shared".equalsIgnoreCase(mode);
+	}
+
+	/**
+	 * 推送本地新增位,拉取存活代的全量位图合并
+	 */
+	private void synchronize() {
+		try {
+			final List<PendingBits> drained = new ArrayList<>();
+			PendingBits pending;
+			while ((pending = pendings.poll()) != null) {
+				drained.add(pending);
+			}
+			final long current = filter.currentGeneration();
+			final long ttlSeconds = TimeUnit.MILLISECONDS.toSeconds(GENERATION_SPAN_MILLIS * GENERATIONS);
+			List<Object> bitmaps = redisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+				// 集群连接不支持 pipeline,逐条执行
+				boolean pipelined = !(connection instanceof RedisClusterConnection);
+				List<Object> results = new ArrayList<>(GENERATIONS);
+				if (pipelined) {
+					connection.openPipeline();
+				}
+				for (PendingBits bits : drained) {
+					byte[] key = bitmapKey(bits.generationId);
+					for (int index : bits.indexes) {
+						connection.setBit(key, index, true);
+					}
+					connection.expire(key, ttlSeconds);
+				}
+				for (int i = 0; i < GENERATIONS; i++) {
+					results.add(connection.get(bitmapKey(current - i)));
+				}
+				return pipelined ? connection.closePipeline() : results;
+			});
+			if (bitmaps == null || bitmaps.size() < GENERATIONS) {
+				return;
+			}
+			int offset = bitmaps.size() - GENERATIONS;
+			for (int i = 0; i < GENERATIONS; i++) {
+				Object bitmap = bitmaps.get(offset + i);
+				if (bitmap instanceof byte[]) {
+					filter.merge(current - i, (byte[]) bitmap);
+				}
+			}
+		} catch (Exception ex) {
+			logger.error("replay filter synchronize error", ex);
+		}
+	}
+
+	private static byte[] bitmapKey(long generationId) {
+		return FormatUtil.redisPrefix(LocalConstants.TKC_REPLAY_FILTER, String.valueOf(generationId)).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static final class PendingBits {
+
+		private final long generationId;
+		private final int[] indexes;
+
+		PendingBits(long generationId, int[] indexes) {
+			this.generationId = generationId;
+			this.indexes = indexes;
+		}
+	}
+}
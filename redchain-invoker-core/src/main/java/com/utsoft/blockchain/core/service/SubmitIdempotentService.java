@@ -0,0 +1,158 @@
+package com.utsoft.blockchain.core.service;
+import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import com.utsoft.blockchain.api.pojo.BaseResponseModel;
+import com.utsoft.blockchain.api.util.Constants;
+import com.utsoft.blockchain.core.service.impl.RedisRepository;
+import com.utsoft.blockchain.core.util.IGlobals;
+import com.utsoft.blockchain.core.util.LocalConstants;
+/**
+ * 交易提交幂等处理
+ * <p>
+ * 去重 key 受理时以 SET NX 写入请求本身(处理中),写入成功的节点才执行,处理完成后覆盖为返回结果;
+ * 重复提交直接拿到原结果,本节点处理中的重复提交等待原请求完成,
+ * 其它节点处理中的仍返回 EXECUTE_PROCESS_ERROR
+ * @author hunterfox
+ * @date: 2017年10月12日
+ * @version 1.0.0
+ */
+@Service
+public class SubmitIdempotentService {
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	@Autowired
+	private RedisRepository<String, Object> redisRepository;
+
+	@Autowired
+	private ReplayFilterService replayFilterService;
+
+	private final ConcurrentMap<String, CompletableFuture<BaseResponseModel<?>>> inflights = new ConcurrentHashMap<>();
+
+	/**
+	 * 查询已受理的提交
+	 * @param key 去重 key
+	 * @return 原结果;未受理过返回null
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> BaseResponseModel<T> lookup(String key) {
+		CompletableFuture<BaseResponseModel<?>> inflight = inflights.get(key);
+		if (inflight != null) {
+			return (BaseResponseModel<T>) await(key, inflight);
+		}
+		if (!replayFilterService.mightBeReplay(key)) {
+			return null;
+		}
+		return toOutcome(redisRepository.get(key));
+	}
+
+	/**
+	 * 异步查询已受理的提交,便于与牌照校验并行
+	 * @param key 去重 key
+	 * @return 同 {@link #lookup(String)}
+	 */
+	public <T> CompletableFuture<BaseResponseModel<T>> lookupAsync(String key) {
+		if (inflights.containsKey(key)) {
+			return CompletableFuture.completedFuture(lookup(key));
+		}
+		if (!replayFilterService.mightBeReplay(key)) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return redisRepository.getAsync(key).thenApply(this::toOutcome);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> BaseResponseModel<T> toOutcome(Object value) {
+		if (value == null) {
+			return null;
+		}
+		if (value instanceof BaseResponseModel) {
+			return (BaseResponseModel<T>) value;
+		}
+		return BaseResponseModel.build(Constants.EXECUTE_PROCESS_ERROR);
+	}
+
+	/**
+	 * 受理失败后取同 key 提交的结果: 本节点处理中的等待完成,否则直接读 redis(不经防重放过滤器)
+	 * @param key
+	 * @return 原结果,取不到时为 EXECUTE_PROCESS_ERROR
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> BaseResponseModel<T> attach(String key) {
+		CompletableFuture<BaseResponseModel<?>> inflight = inflights.get(key);
+		BaseResponseModel<T> previous = inflight != null ? (BaseResponseModel<T>) await(key, inflight)
+				: toOutcome(redisRepository.get(key));
+		if (previous == null) {
+			return BaseResponseModel.build(Constants.EXECUTE_PROCESS_ERROR);
+		}
+		return previous;
+	}
+
+	/**
+	 * 受理提交: 本节点内先占位,再以 SET NX 在 redis 认领,多节点、已完成后的重试都只有一次认领成功
+	 * @param key 去重 key
+	 * @param request 请求内容,作为处理中标记
+	 * @return false 表示同 key 提交已受理(本节点或其它节点处理中,或已完成),应改用 {@link #attach(String)}
+	 */
+	public boolean begin(String key, Serializable request) {
+		CompletableFuture<BaseResponseModel<?>> inflight = new CompletableFuture<>();
+		if (inflights.putIfAbsent(key, inflight) != null) {
+			return false;
+		}
+		try {
+			boolean claimed = Boolean.TRUE.equals(
+					redisRepository.setIfAbsent(key, request, LocalConstants.SUBMIT_IDEMPOTENT_TTL, TimeUnit.SECONDS));
+			replayFilterService.record(key);
+			if (!claimed) {
+				inflights.remove(key, inflight);
+				inflight.complete(toOutcome(redisRepository.get(key)));
+				return false;
+			}
+		} catch (RuntimeException ex) {
+			inflights.remove(key, inflight);
+			inflight.complete(BaseResponseModel.build(Constants.SEVER_INNER_ERROR));
+			throw ex;
+		}
+		return true;
+	}
+
+	/**
+	 * 保存结果并唤醒等待中的重复提交
+	 * @param key
+	 * @param outcome
+	 */
+	public void complete(String key, BaseResponseModel<?> outcome) {
+		try {
+			redisRepository.set(key, outcome, LocalConstants.SUBMIT_IDEMPOTENT_TTL, TimeUnit.SECONDS);
+		} catch (Exception ex) {
+			logger.error("save submit outcome key:{} error", key, ex);
+		} finally {
+			CompletableFuture<BaseResponseModel<?>> inflight = inflights.remove(key);
+			if (inflight != null) {
+				inflight.complete(outcome);
+			}
+		}
+	}
+
+	private BaseResponseModel<?> await(String key, CompletableFuture<BaseResponseModel<?>> inflight) {
+		long waitMillis = IGlobals.getLongProperty(LocalConstants.INVOKEWAITTIME, 100000L);
+		try {
+			return inflight.get(waitMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} catch (TimeoutException ex) {
+			logger.warn("wait inflight submit key:{} timeout", key);
+		} catch (Exception ex) {
+			logger.error("wait inflight submit key:{} error", key, ex);
+		}
+		return BaseResponseModel.build(Constants.EXECUTE_PROCESS_ERROR);
+	}
+}
@@ -0,0 +1,219 @@
+package com.utsoft.blockchain.core.service.applycall;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.alibaba.fastjson.JSON;
+import com.utsoft.blockchain.api.exception.ServiceProcessException;
+import com.utsoft.blockchain.api.util.Constants;
+import com.utsoft.blockchain.core.dao.model.TransactionResultPo;
+import com.utsoft.blockchain.core.pojo.TransactionCallAck;
+import com.utsoft.blockchain.core.util.IGlobals;
+import com.utsoft.blockchain.core.util.LocalConstants;
+/**
+ * 批量回调
+ * <p>
+ * 开启批量回调的商户(callback_batch=1),同一回调地址在时间窗内到期的回调记录
+ * 合并为一个 json 数组 POST,攒满条数立即发送;
+ * 商户应答 json 数组 [{txId, address, status, msg}],按 txId + address 逐条确认,
+ * 未出现在应答中的记录按失败处理,等待重试;请求未发出(熔断或排队已满)时整批以
+ * {@link CallbackRejectedException} 失败,不计投递次数
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+@Component
+public class CallbackBatcher {
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	private static final int HTTP_OK = 200;
+
+	@Autowired
+	private CallbackHttpDispatcher dispatcher;
+
+	@Autowired
+	private PushIntermissionClient intermissionClient;
+
+	private final ConcurrentMap<String, Batch> batches = new ConcurrentHashMap<>();
+
+	private int maxItems;
+	private long windowMillis;
+	private ScheduledExecutorService timer;
+
+	@PostConstruct
+	public void init() {
+		maxItems = Math.max(1, IGlobals.getIntProperty(LocalConstants.TRANSACTION_CALLBACK_MERGE_ITEMS, 100));
+		windowMillis = IGlobals.getLongProperty(LocalConstants.TRANSACTION_CALLBACK_MERGE_WINDOW, 20L);
+		timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "callback-batcher");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (timer != null) {
+			timer.shutdownNow();
+		}
+		// 未发送的记录租约到期后重新认领
+	}
+
+	/**
+	 * 加入回调地址的当前批次
+	 * @param callbackUrl
+	 * @param transactionResult
+	 * @return 商户确认为 true,未确认为 false,整批发送失败时以 {@link ServiceProcessException} 失败
+	 */
+	public CompletableFuture<Boolean> submit(String callbackUrl, TransactionResultPo transactionResult) {
+		CompletableFuture<Boolean> future = new CompletableFuture<>();
+		Batch batch = batches.computeIfAbsent(callbackUrl, key -> new Batch());
+		List<Item> ready = null;
+		synchronized (batch) {
+			batch.items.add(new Item(transactionResult, future));
+			if (batch.items.size() >= maxItems) {
+				ready = batch.take();
+			} else if (batch.items.size() == 1) {
+				long epoch = batch.epoch;
+				timer.schedule(() -> flush(callbackUrl, batch, epoch), windowMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+		if (ready != null) {
+			post(callbackUrl, ready);
+		}
+		return future;
+	}
+
+	/**
+	 * 时间窗到期;批次已因攒满发送过则跳过
+	 */
+	private void flush(String callbackUrl, Batch batch, long epoch) {
+		List<Item> ready;
+		synchronized (batch) {
+			if (batch.epoch != epoch || batch.items.isEmpty()) {
+				return;
+			}
+			ready = batch.take();
+		}
+		post(callbackUrl, ready);
+	}
+
+	private void post(String callbackUrl, List<Item> items) {
+		List<Map<String, Object>> payload = new ArrayList<>(items.size());
+		for (Item item : items) {
+			payload.add(intermissionClient.payload(item.transactionResult));
+		}
+		dispatcher.post(callbackUrl, JSON.toJSONBytes(payload)).whenComplete((reply, ex) -> {
+			try {
+				if (ex == null && reply.getCode() == HTTP_OK) {
+					acknowledge(items, parse(reply.getBody()));
+				} else {
+					fail(callbackUrl, items, ex != null ? ex : new IllegalStateException("http status " + reply.getCode()));
+				}
+			} catch (Exception e) {
+				logger.error("batch call back fail url:{} items:{}", callbackUrl, items.size(), e);
+				for (Item item : items) {
+					item.future.completeExceptionally(e);
+				}
+			}
+		});
+	}
+
+	private void acknowledge(List<Item> items, List<TransactionCallAck> acks) {
+		Map<String, TransactionCallAck> acked = new HashMap<>(acks.size() * 2);
+		for (TransactionCallAck ack : acks) {
+			acked.put(key(ack.getTxId(), ack.getAddress()), ack);
+		}
+		for (Item item : items) {
+			TransactionResultPo transactionResult = item.transactionResult;
+			TransactionCallAck ack = acked.get(key(transactionResult.getTxId(), transactionResult.getTo()));
+			try {
+				if (ack != null) {
+					intermissionClient.updateResult(transactionResult, 200, (byte) ack.getStatus());
+				} else {
+					intermissionClient.updateResult(transactionResult, -1, (byte) -1);
+				}
+				item.future.complete(ack != null);
+			} catch (Exception ex) {
+				item.future.completeExceptionally(ex);
+			}
+		}
+	}
+
+	private void fail(String callbackUrl, List<Item> items, Throwable cause) {
+		CallbackRejectedException rejected = CallbackRejectedException.of(cause);
+		if (rejected != null) {
+			for (Item item : items) {
+				item.future.completeExceptionally(rejected);
+			}
+			return;
+		}
+		ServiceProcessException failure = new ServiceProcessException(Constants.EXECUTE_FAIL_ERROR,
+				"batch pushStatus fail:" + callbackUrl, cause);
+		for (Item item : items) {
+			try {
+				intermissionClient.updateResult(item.transactionResult, -1, (byte) -1);
+			} catch (Exception ex) {
+				logger.error("update call back fail:{}", item.transactionResult, ex);
+			}
+			item.future.completeExceptionally(failure);
+		}
+	}
+
+	private List<TransactionCallAck> parse(String body) {
+		if (body == null || body.isEmpty()) {
+			return new ArrayList<>(0);
+		}
+		try {
+			List<TransactionCallAck> acks = JSON.parseArray(body, TransactionCallAck.class);
+			return acks == null ? new ArrayList<>(0) : acks;
+		} catch (RuntimeException ex) {
+			logger.warn("batch call back response illegal:{}", body);
+			return new ArrayList<>(0);
+		}
+	}
+
+	private static String key(String txId, String address) {
+		return txId + "|" + address;
+	}
+
+	private static final class Item {
+
+		final TransactionResultPo transactionResult;
+		final CompletableFuture<Boolean> future;
+
+		Item(TransactionResultPo transactionResult, CompletableFuture<Boolean> future) {
+			this.transactionResult = transactionResult;
+			this.future = future;
+		}
+	}
+
+	/**
+	 * 一个回调地址正在收集的批次,epoch 每发送一批加 1
+	 */
+	private static final class Batch {
+
+		List<Item> items = new ArrayList<>();
+		long epoch;
+
+		List<Item> take() {
+			List<Item> ready = items;
+			items = new ArrayList<>();
+			epoch++;
+			return ready;
+		}
+	}
+}
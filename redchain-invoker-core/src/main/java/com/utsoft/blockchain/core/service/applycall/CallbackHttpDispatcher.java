@@ -0,0 +1,396 @@
+package com.utsoft.blockchain.core.service.applycall;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import com.utsoft.blockchain.core.util.CircuitBreaker;
+import com.utsoft.blockchain.core.util.IGlobals;
+import com.utsoft.blockchain.core.util.LatencyHistogram;
+import com.utsoft.blockchain.core.util.LocalConstants;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+/**
+ * 回调 http 异步发送
+ * <p>
+ * 共用一个带连接池(keep-alive 复用)的 OkHttpClient,请求异步发出,不占用回调工作线程;
+ * 每个回调地址独立限制并发数和排队数(bulkhead),慢端点只会占满自己的配额,排队满即快速失败,
+ * 由回调记录的重试机制稍后再投递,不影响其它商户。
+ * 每个回调地址另有熔断器,按失败率和慢调用率打开,打开期间不发出请求,到期后半开试探。
+ * 按地址统计成功/失败次数和耗时直方图,定时输出日志
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+@Component
+public class CallbackHttpDispatcher {
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	private static final MediaType JSON_UTF8 = MediaType.parse("application/json;charset=UTF-8");
+
+	private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+	private OkHttpClient client;
+	private int concurrency;
+	private int queueLimit;
+	private int breakerWindow;
+	private int breakerMinCalls;
+	private double breakerFailureRate;
+	private double breakerSlowRate;
+	private long breakerSlowMillis;
+	private long breakerOpenMillis;
+	private int breakerProbes;
+	private ScheduledExecutorService reporter;
+
+	@PostConstruct
+	public void init() {
+		concurrency = IGlobals.getIntProperty(LocalConstants.TRANSACTION_CALLBACK_HTTP_CONCURRENCY, 8);
+		queueLimit = IGlobals.getIntProperty(LocalConstants.TRANSACTION_CALLBACK_HTTP_QUEUE, 200);
+		int maxRequests = IGlobals.getIntProperty(LocalConstants.TRANSACTION_CALLBACK_HTTP_MAX_REQUESTS, 256);
+		breakerWindow = IGlobals.getIntProperty(LocalConstants.TRANSACTION_CALLBACK_BREAKER_WINDOW, 50);
+		breakerMinCalls = IGlobals.getIntProperty(LocalConstants.TRANSACTION_CALLBACK_BREAKER_MIN_CALLS, 20);
+		breakerFailureRate = Double.parseDouble(IGlobals.getProperty(LocalConstants.TRANSACTION_CALLBACK_BREAKER_FAILURE_RATE, "0.5"));
+		breakerSlowRate = Double.parseDouble(IGlobals.getProperty(LocalConstants.TRANSACTION_CALLBACK_BREAKER_SLOW_RATE, "0.5"));
+		breakerSlowMillis = IGlobals.getLongProperty(LocalConstants.TRANSACTION_CALLBACK_BREAKER_SLOW_CALL, 2000L);
+		breakerOpenMillis = IGlobals.getLongProperty(LocalConstants.TRANSACTION_CALLBACK_BREAKER_OPEN, 30000L);
+		breakerProbes = IGlobals.getIntProperty(LocalConstants.TRANSACTION_CALLBACK_BREAKER_PROBES, 3);
+		AtomicInteger threadIndex = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+				new SynchronousQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "callback-http-" + threadIndex.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		Dispatcher dispatcher = new Dispatcher(executor);
+		// 按地址的限流在本类完成,OkHttp 只做总量兜底
+		dispatcher.setMaxRequests(maxRequests);
+		dispatcher.setMaxRequestsPerHost(maxRequests);
+		client = new OkHttpClient.Builder()
+				.connectTimeout(IGlobals.getLongProperty(LocalConstants.TRANSACTION_CALLBACK_HTTP_CONNECT_TIMEOUT, 3000L), TimeUnit.MILLISECONDS)
+				.readTimeout(IGlobals.getLongProperty(LocalConstants.TRANSACTION_CALLBACK_HTTP_READ_TIMEOUT, 5000L), TimeUnit.MILLISECONDS)
+				.writeTimeout(IGlobals.getLongProperty(LocalConstants.TRANSACTION_CALLBACK_HTTP_READ_TIMEOUT, 5000L), TimeUnit.MILLISECONDS)
+				.connectionPool(new ConnectionPool(IGlobals.getIntProperty(LocalConstants.TRANSACTION_CALLBACK_HTTP_MAX_IDLE, 32),
+						IGlobals.getLongProperty(LocalConstants.TRANSACTION_CALLBACK_HTTP_KEEP_ALIVE, 300L), TimeUnit.SECONDS))
+				.dispatcher(dispatcher)
+				// 回调非幂等,失败交给回调记录重试
+				.retryOnConnectionFailure(false)
+				.build();
+
+		long interval = IGlobals.getLongProperty(LocalConstants.TRANSACTION_CALLBACK_HTTP_REPORT, 60L);
+		reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "callback-http-reporter");
+			thread.setDaemon(true);
+			return thread;
+		});
+		reporter.scheduleWithFixedDelay(this::report, interval, interval, TimeUnit.SECONDS);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (reporter != null) {
+			reporter.shutdownNow();
+		}
+		if (client != null) {
+			client.dispatcher().cancelAll();
+			client.dispatcher().executorService().shutdown();
+			client.connectionPool().evictAll();
+		}
+	}
+
+	/**
+	 * 回调地址熔断中(打开或半开试探已满)时返回预计可再次放行的时间,调用方据此推迟投递,不必发出请求
+	 * @param url
+	 * @return 可再次放行的时间(毫秒),当前可放行时为 0
+	 */
+	public long rejectUntil(String url) {
+		Endpoint endpoint = endpoints.get(url);
+		return endpoint == null ? 0L : endpoint.breaker.rejectUntil();
+	}
+
+	/**
+	 * 异步 POST json
+	 * <p>
+	 * 结果在 http 线程上完成,后续处理应尽快返回;
+	 * 熔断中或端点排队已满时请求未发出,以 {@link CallbackRejectedException} 失败,io 异常以 {@link IOException} 失败
+	 * @param url
+	 * @param json
+	 * @return
+	 */
+	public CompletableFuture<Reply> post(String url, byte[] json) {
+		CompletableFuture<Reply> future = new CompletableFuture<>();
+		Request request;
+		try {
+			request = new Request.Builder().url(url).post(RequestBody.create(JSON_UTF8, json)).build();
+		} catch (IllegalArgumentException ex) {
+			future.completeExceptionally(ex);
+			return future;
+		}
+		Endpoint endpoint = endpoints.computeIfAbsent(url, key -> new Endpoint(concurrency, new CircuitBreaker(breakerWindow,
+				breakerMinCalls, breakerFailureRate, breakerSlowRate, breakerSlowMillis, breakerOpenMillis, breakerProbes)));
+		if (!endpoint.breaker.tryAcquire()) {
+			endpoint.shortCircuited.increment();
+			long retryAt = endpoint.breaker.rejectUntil();
+			future.completeExceptionally(new CallbackRejectedException("callback endpoint circuit open:" + url,
+					retryAt > 0 ? retryAt : System.currentTimeMillis()));
+		} else if (endpoint.permits.tryAcquire()) {
+			start(endpoint, request, future);
+		} else if (endpoint.queued.incrementAndGet() <= queueLimit) {
+			endpoint.waiting.offer(() -> start(endpoint, request, future));
+			drain(endpoint);
+		} else {
+			endpoint.queued.decrementAndGet();
+			endpoint.breaker.release();
+			endpoint.rejected.increment();
+			future.completeExceptionally(new CallbackRejectedException("callback endpoint busy:" + url, System.currentTimeMillis()));
+		}
+		return future;
+	}
+
+	/**
+	 * 已占用端点并发配额后发出请求,结束时先归还配额再完成 future
+	 */
+	private void start(Endpoint endpoint, Request request, CompletableFuture<Reply> future) {
+		long begin = System.nanoTime();
+		Call call;
+		try {
+			call = client.newCall(request);
+		} catch (RuntimeException ex) {
+			endpoint.breaker.release();
+			finish(endpoint);
+			future.completeExceptionally(ex);
+			return;
+		}
+		call.enqueue(new Callback() {
+
+			@Override
+			public void onFailure(Call call, IOException ex) {
+				long elapsed = System.nanoTime() - begin;
+				endpoint.latency.record(elapsed);
+				endpoint.breaker.onFailure(elapsed);
+				if (ex instanceof SocketTimeoutException) {
+					endpoint.timeouts.increment();
+				} else {
+					endpoint.ioErrors.increment();
+				}
+				finish(endpoint);
+				future.completeExceptionally(ex);
+			}
+
+			@Override
+			public void onResponse(Call call, Response response) throws IOException {
+				Reply reply;
+				ResponseBody body = response.body();
+				try {
+					reply = new Reply(response.code(), body == null ? null : body.string());
+				} catch (IOException ex) {
+					onFailure(call, ex);
+					return;
+				} finally {
+					if (body != null) {
+						body.close();
+					}
+				}
+				long elapsed = System.nanoTime() - begin;
+				endpoint.latency.record(elapsed);
+				if (reply.getCode() >= 200 && reply.getCode() < 300) {
+					endpoint.success.increment();
+					endpoint.breaker.onSuccess(elapsed);
+				} else {
+					endpoint.httpErrors.increment();
+					endpoint.breaker.onFailure(elapsed);
+				}
+				finish(endpoint);
+				future.complete(reply);
+			}
+		});
+	}
+
+	private void finish(Endpoint endpoint) {
+		endpoint.permits.release();
+		drain(endpoint);
+	}
+
+	/**
+	 * 有空闲配额时发出排队中的请求;入队与归还配额并发时由后到的一方发出
+	 */
+	private void drain(Endpoint endpoint) {
+		while (!endpoint.waiting.isEmpty() && endpoint.permits.tryAcquire()) {
+			Runnable next = endpoint.waiting.poll();
+			if (next == null) {
+				endpoint.permits.release();
+				return;
+			}
+			endpoint.queued.decrementAndGet();
+			next.run();
+		}
+	}
+
+	/**
+	 * 各回调地址统计快照
+	 * @return
+	 */
+	public Map<String, EndpointStats> snapshot() {
+		Map<String, EndpointStats> snapshot = new TreeMap<>();
+		endpoints.forEach((url, endpoint) -> snapshot.put(url, new EndpointStats(endpoint, concurrency)));
+		return snapshot;
+	}
+
+	private void report() {
+		try {
+			snapshot().forEach((url, stats) -> logger.info("callback endpoint:{} {}", url, stats));
+		} catch (Exception ex) {
+			logger.error("callback endpoint report error", ex);
+		}
+	}
+
+	/**
+	 * http 应答
+	 */
+	public static final class Reply {
+
+		private final int code;
+		private final String body;
+
+		Reply(int code, String body) {
+			this.code = code;
+			this.body = body;
+		}
+
+		public int getCode() {
+			return code;
+		}
+
+		public String getBody() {
+			return body;
+		}
+	}
+
+	private static final class Endpoint {
+
+		final Semaphore permits;
+		final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+		final AtomicInteger queued = new AtomicInteger();
+		final LatencyHistogram latency = new LatencyHistogram();
+		final LongAdder success = new LongAdder();
+		final LongAdder httpErrors = new LongAdder();
+		final LongAdder ioErrors = new LongAdder();
+		final LongAdder timeouts = new LongAdder();
+		final LongAdder rejected = new LongAdder();
+		final LongAdder shortCircuited = new LongAdder();
+		final CircuitBreaker breaker;
+
+		Endpoint(int concurrency, CircuitBreaker breaker) {
+			this.permits = new Semaphore(concurrency);
+			this.breaker = breaker;
+		}
+	}
+
+	/**
+	 * 单个回调地址的统计
+	 */
+	public static final class EndpointStats {
+
+		private final int active;
+		private final int queued;
+		private final long success;
+		private final long httpErrors;
+		private final long ioErrors;
+		private final long timeouts;
+		private final long rejected;
+		private final long shortCircuited;
+		private final CircuitBreaker.State breaker;
+		private final long breakerOpened;
+		private final LatencyHistogram.Snapshot latency;
+
+		EndpointStats(Endpoint endpoint, int concurrency) {
+			this.active = concurrency - endpoint.permits.availablePermits();
+			this.queued = endpoint.queued.get();
+			this.success = endpoint.success.sum();
+			this.httpErrors = endpoint.httpErrors.sum();
+			this.ioErrors = endpoint.ioErrors.sum();
+			this.timeouts = endpoint.timeouts.sum();
+			this.rejected = endpoint.rejected.sum();
+			this.shortCircuited = endpoint.shortCircuited.sum();
+			this.breaker = endpoint.breaker.getState();
+			this.breakerOpened = endpoint.breaker.getOpened();
+			this.latency = endpoint.latency.snapshot();
+		}
+
+		public int getActive() {
+			return active;
+		}
+
+		public int getQueued() {
+			return queued;
+		}
+
+		public long getSuccess() {
+			return success;
+		}
+
+		public long getHttpErrors() {
+			return httpErrors;
+		}
+
+		public long getIoErrors() {
+			return ioErrors;
+		}
+
+		public long getTimeouts() {
+			return timeouts;
+		}
+
+		public long getRejected() {
+			return rejected;
+		}
+
+		public long getShortCircuited() {
+			return shortCircuited;
+		}
+
+		public CircuitBreaker.State getBreaker() {
+			return breaker;
+		}
+
+		public long getBreakerOpened() {
+			return breakerOpened;
+		}
+
+		public LatencyHistogram.Snapshot getLatency() {
+			return latency;
+		}
+
+		@Override
+		public String toString() {
+			return "active=" + active + " queued=" + queued + " success=" + success + " httpErrors=" + httpErrors
+					+ " ioErrors=" + ioErrors + " timeouts=" + timeouts + " rejected=" + rejected + " shortCircuited="
+					+ shortCircuited + " breaker=" + breaker + "/" + breakerOpened + " latency[" + latency + "]";
+		}
+	}
+}
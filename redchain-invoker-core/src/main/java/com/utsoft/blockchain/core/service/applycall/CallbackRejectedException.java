@@ -0,0 +1,42 @@
+package com.utsoft.blockchain.core.service.applycall;
+import java.util.concurrent.RejectedExecutionException;
+/**
+ * 回调请求未发出(回调地址熔断中或排队已满)
+ * <p>
+ * 商户没有收到请求,不应计入投递次数,调用方按 {@link #getRetryAt()} 推迟后再投递
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+public class CallbackRejectedException extends RejectedExecutionException {
+
+	private static final long serialVersionUID = -3121785040622871806L;
+
+	private final long retryAt;
+
+	public CallbackRejectedException(String message, long retryAt) {
+		super(message);
+		this.retryAt = retryAt;
+	}
+
+	/**
+	 * @return 最早可再次投递的时间(毫秒)
+	 */
+	public long getRetryAt() {
+		return retryAt;
+	}
+
+	/**
+	 * 从异步结果的异常链中取出
+	 * @param ex
+	 * @return 不是未发出的请求时为 null
+	 */
+	public static CallbackRejectedException of(Throwable ex) {
+		for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+			if (cause instanceof CallbackRejectedException) {
+				return (CallbackRejectedException) cause;
+			}
+		}
+		return null;
+	}
+}
@@ -2,20 +2,22 @@ package com.utsoft.blockchain.core.service.applycall;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
+import com.alibaba.fastjson.JSON;
 import com.utsoft.blockchain.api.exception.ServiceProcessException;
+import com.utsoft.blockchain.api.util.Constants;
 import com.utsoft.blockchain.core.dao.mapper.TransactionResultMapper;
 import com.utsoft.blockchain.core.dao.model.TransactionResultPo;
 import com.utsoft.blockchain.core.pojo.TransactionCallRsp;
 /**
  * 回调client 状态跟踪
+ * <p>
+ * http 请求经 {@link CallbackHttpDispatcher} 异步发出(连接池复用,按回调地址限流)
  * @author hunterfox
  * @date: 2017年8月15日
  * @version 1.0.0
@@ -23,8 +25,12 @@ import com.utsoft.blockchain.core.pojo.TransactionCallRsp;
 @Component
 public class PushIntermissionClient {
 
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	private static final int HTTP_OK = 200;
+
 	@Autowired
-	private RestTemplate template;
+	private CallbackHttpDispatcher dispatcher;
    
 	@Autowired
 	private TransactionResultMapper transactionResultMapper;
@@ -39,62 +45,91 @@ public class PushIntermissionClient {
 		return transactionResultMapper.updateCallBackResult(transactionResult)> 0 ? true :false ;
 	} 
 	/**
+	 * 同步回调,等待 {@link #sendPushmsgAsync(String, TransactionResultPo)} 完成
 	 * @param transactionResult
 	 * @return
 	 * @throws ServiceProcessException
 	 */
     public boolean sendPushmsg(String callbackUrl ,TransactionResultPo transactionResult) throws ServiceProcessException {
-	  
- 
-    	    Map<String,Object> params = new HashMap<String, Object>();
-    	    params.put("reqId", transactionResult.getSubmitId());
-			params.put("txId", transactionResult.getTxId());
-			params.put("txTime", transactionResult.getCallbackTime()!=null?transactionResult.getCallbackTime().getTime():0L);
-			params.put("status", transactionResult.getBlockStatus());
-			params.put("address", transactionResult.getTo());
-			params.put("forward", transactionResult.getForward());
-			
-			
-			MultiValueMap<String, String> headers = new LinkedMultiValueMap<String, String>();
-			Map<String,String> map = new HashMap<String, String>();
-	        map.put("Content-Type", "application/json;charset=UTF-8");//application/json,;charset=UTF-8
-	        headers.setAll(map);
-			
-			HttpEntity<Map<String, Object>> request = new HttpEntity<>(params, headers);
-			try {
-				ResponseEntity<TransactionCallRsp> rsp = template.postForEntity(callbackUrl,request,
-						TransactionCallRsp.class);
-				
-				if (rsp.getStatusCode() == HttpStatus.OK) {
+    	try {
+			return sendPushmsgAsync(callbackUrl, transactionResult).join();
+		} catch (CompletionException ex) {
+			if (ex.getCause() instanceof ServiceProcessException) {
+				throw (ServiceProcessException) ex.getCause();
+			}
+			throw new ServiceProcessException(Constants.EXECUTE_FAIL_ERROR, "pushStatus fail", ex.getCause());
+		}
+	}
+
+	/**
+	 * 异步回调,不占用调用线程;回调结果写回回调记录后完成
+	 * <p>
+	 * 应答 200 为 true,其它应答为 false,网络异常以 {@link ServiceProcessException} 失败;
+	 * 请求未发出(熔断或排队已满)时以 {@link CallbackRejectedException} 失败,不写回、不计投递次数
+	 * @param callbackUrl
+	 * @param transactionResult
+	 * @return
+	 */
+    public CompletableFuture<Boolean> sendPushmsgAsync(String callbackUrl ,TransactionResultPo transactionResult) {
 
-					TransactionCallRsp tcRsp = rsp.getBody();
-					transactionResult.setStatus(200);
-					transactionResult.setCallbackTime(new Date());
-					transactionResult.setCounter((byte) (transactionResult.getCounter() + 1));
-					transactionResult.setResultStatus((byte) tcRsp.getStatus());
-					transactionResultMapper.updateCallBackResult(transactionResult);
-					return true;
-				}
-				TransactionCallRsp tcRsp = rsp.getBody();
-				if (tcRsp != null) {
-					transactionResult.setResultStatus((byte) tcRsp.getStatus());
-				} else
-					transactionResult.setResultStatus((byte) -1);
-				transactionResult.setStatus(-1);
-				transactionResult.setCallbackTime(new Date());
-				transactionResult.setCounter((byte) (transactionResult.getCounter() + 1));
-				transactionResultMapper.updateCallBackResult(transactionResult);
-				return false;
-			} catch (Exception ex) {
-			
-				transactionResult.setResultStatus((byte) -1);
-				transactionResult.setStatus(-1);
-				transactionResult.setCallbackTime(new Date());
-				transactionResult.setCounter((byte) (transactionResult.getCounter() + 1));
-				transactionResultMapper.updateCallBackResult(transactionResult);
-				throw new ServiceProcessException(com.utsoft.blockchain.api.util.Constants.EXECUTE_FAIL_ERROR,
-						"pushStatus fail", ex);
+		return dispatcher.post(callbackUrl, JSON.toJSONBytes(payload(transactionResult))).handle((reply, ex) -> {
+			CallbackRejectedException rejected = CallbackRejectedException.of(ex);
+			if (rejected != null) {
+				throw new CompletionException(rejected);
+			}
+			if (ex != null) {
+				updateResult(transactionResult, -1, (byte) -1);
+				throw new CompletionException(new ServiceProcessException(Constants.EXECUTE_FAIL_ERROR, "pushStatus fail", ex));
 			}
+			TransactionCallRsp tcRsp = parse(reply.getBody());
+			if (reply.getCode() == HTTP_OK && tcRsp != null) {
+				updateResult(transactionResult, 200, (byte) tcRsp.getStatus());
+				return true;
+			}
+			updateResult(transactionResult, -1, tcRsp != null ? (byte) tcRsp.getStatus() : (byte) -1);
+			return false;
+		});
 	}
-}
 
+	/**
+	 * 回调报文,批量回调时为数组元素
+	 * @param transactionResult
+	 * @return
+	 */
+	Map<String, Object> payload(TransactionResultPo transactionResult) {
+		Map<String,Object> params = new HashMap<String, Object>();
+	    params.put("reqId", transactionResult.getSubmitId());
+		params.put("txId", transactionResult.getTxId());
+		params.put("txTime", transactionResult.getCallbackTime()!=null?transactionResult.getCallbackTime().getTime():0L);
+		params.put("status", transactionResult.getBlockStatus());
+		params.put("address", transactionResult.getTo());
+		params.put("forward", transactionResult.getForward());
+		return params;
+	}
+
+	/**
+	 * 写回一次投递结果,投递次数加 1
+	 * @param transactionResult
+	 * @param status 200 成功,-1 失败
+	 * @param resultStatus 商户应答状态,无应答为 -1
+	 */
+	void updateResult(TransactionResultPo transactionResult, int status, byte resultStatus) {
+		transactionResult.setResultStatus(resultStatus);
+		transactionResult.setStatus(status);
+		transactionResult.setCallbackTime(new Date());
+		transactionResult.setCounter((byte) (transactionResult.getCounter() + 1));
+		transactionResultMapper.updateCallBackResult(transactionResult);
+	}
+
+	private TransactionCallRsp parse(String body) {
+		if (body == null || body.isEmpty()) {
+			return null;
+		}
+		try {
+			return JSON.parseObject(body, TransactionCallRsp.class);
+		} catch (RuntimeException ex) {
+			logger.warn("call back response illegal:{}", body);
+			return null;
+		}
+	}
+}
@@ -1,28 +1,53 @@
 package com.utsoft.blockchain.core.service.deamon;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import com.utsoft.blockchain.api.exception.ServiceProcessException;
-import com.utsoft.blockchain.core.dao.mapper.ChaincodeAccessCodeMapper;
 import com.utsoft.blockchain.core.dao.mapper.TransactionResultMapper;
-import com.utsoft.blockchain.core.dao.model.ChaincodeAccessCodePo;
 import com.utsoft.blockchain.core.dao.model.TransactionResultPo;
+import com.utsoft.blockchain.core.service.ApplyCodeRoutingService;
+import com.utsoft.blockchain.core.service.ApplyCodeRoutingService.ApplyRoute;
+import com.utsoft.blockchain.core.service.applycall.CallbackBatcher;
+import com.utsoft.blockchain.core.service.applycall.CallbackHttpDispatcher;
+import com.utsoft.blockchain.core.service.applycall.CallbackRejectedException;
 import com.utsoft.blockchain.core.service.applycall.PushIntermissionClient;
 import com.utsoft.blockchain.core.util.CommonUtil;
-import tk.mybatis.mapper.entity.Example;
+import com.utsoft.blockchain.core.util.IGlobals;
+import com.utsoft.blockchain.core.util.LocalConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 /**
  * 异步调用用户账号操作
  * 比如充值成功，转账等等
+ * <p>
+ * 交易提交后 {@link #notify(TransactionResultPo)} 入队,写入线程按条数或毫秒级时间窗
+ * 以多行 insert 组提交,写入成功即由本节点认领并交给工作线程回调,通知延迟为毫秒级。
+ * 各节点另按周期认领到期的回调记录(租约批次 + 到期时间),只处理宕机、工作线程已满或失败待重试的记录;
+ * 每次最多认领工作线程空闲容量条,节点宕机后租约到期由其它节点接管。
+ * 投递失败按 {@link CallbackRetryPolicy} 退避,写入下次投递时间(next_attempt_at)并延长租约,
+ * 由本节点延迟队列到期重投;认领只读取已到投递时间的记录。
+ * 开启批量回调的商户经 {@link CallbackBatcher} 按回调地址合并发送。
+ * 回调地址熔断中或排队已满、请求未发出的记录不计投递次数,推迟到可放行之后并随机打散,
+ * 避免积压记录在半开时同时涌入;租约覆盖得到时只进本节点延迟队列,否则写一次下次投递时间。
+ * 内存占用与积压量无关,吞吐随节点数扩展
  * @author hunterfox
  * @date: 2017年8月15日
  * @version 1.0.0
@@ -35,88 +60,411 @@ public class ASynTransactionTask implements Runnable{
 	@Autowired
 	private TransactionResultMapper transactionResultMapper;
 	
-	@Autowired
-	private ChaincodeAccessCodeMapper chaincodeAccessCodeMapper;
-	
 	@Autowired
 	private PushIntermissionClient intermissionClient;
-	 
-	//private ExecutorService executor = Executors.newSingleThreadExecutor();
+
+	@Autowired
+	private CallbackRetryPolicy retryPolicy;
+
+	@Autowired
+	private CallbackBatcher callbackBatcher;
+
+	@Autowired
+	private ApplyCodeRoutingService applyCodeRoutingService;
+
+	@Autowired
+	private CallbackHttpDispatcher httpDispatcher;
 	
 	/**
-	 * 控制任务执行状态
+	 * 控制任务执行状态,同一时刻只有一个认领循环
 	 */
-	private ReadWriteLock myLock = new ReentrantReadWriteLock();
-	
 	private AtomicBoolean  isRunning = new AtomicBoolean(false);
+
+	/**
+	 * 节点标识(每次启动不同),认领批次为 nodeId-序号
+	 */
+	private final String nodeId = CommonUtil.getProcessId();
+	private final AtomicLong claimSequence = new AtomicLong();
+
+	private int batchSize;
+	private int leaseSeconds;
+	/**
+	 * 已认领未处理完的记录数上限
+	 */
+	private Semaphore inflight;
+	private ThreadPoolExecutor workers;
+	private ScheduledExecutorService poller;
+
+	/**
+	 * 待写入的回调记录,写入线程组提交
+	 */
+	private BlockingQueue<TransactionResultPo> pendings;
+	private int flushRows;
+	private static final long INSERT_RETRY_MIN_MILLIS = 100L;
+	private static final long INSERT_RETRY_MAX_MILLIS = 5000L;
+	private long flushNanos;
+	private volatile boolean writing;
+	private Thread writer;
+
+	/**
+	 * 本节点持有租约、等待退避到期的记录
+	 */
+	private final DelayQueue<Retry> retries = new DelayQueue<>();
+	private int retryQueueSize;
+	private Thread retrier;
+	/**
+	 * 推迟投递的随机打散(毫秒)
+	 */
+	private long deferSpreadMillis;
+
+	@PostConstruct
+	public void init() {
+		int workerCount = IGlobals.getIntProperty(LocalConstants.TRANSACTION_CALLBACK_WORKERS, 8);
+		batchSize = IGlobals.getIntProperty(LocalConstants.TRANSACTION_CALLBACK_BATCH, 200);
+		leaseSeconds = IGlobals.getIntProperty(LocalConstants.TRANSACTION_CALLBACK_LEASE, 60);
+		long interval = IGlobals.getLongProperty(LocalConstants.TRANSACTION_CALLBACK_INTERVAL, 5000L);
+		inflight = new Semaphore(Math.max(batchSize, workerCount * 2));
+		AtomicInteger threadIndex = new AtomicInteger();
+		workers = new ThreadPoolExecutor(workerCount, workerCount, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				runnable -> {
+					Thread thread = new Thread(runnable, "callback-worker-" + threadIndex.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "callback-poller");
+			thread.setDaemon(true);
+			return thread;
+		});
+		poller.scheduleWithFixedDelay(this, interval, interval, TimeUnit.MILLISECONDS);
+
+		flushRows = IGlobals.getIntProperty(LocalConstants.TRANSACTION_CALLBACK_FLUSH_ROWS, 200);
+		flushNanos = TimeUnit.MILLISECONDS.toNanos(IGlobals.getLongProperty(LocalConstants.TRANSACTION_CALLBACK_FLUSH_INTERVAL, 5L));
+		pendings = new ArrayBlockingQueue<>(IGlobals.getIntProperty(LocalConstants.TRANSACTION_CALLBACK_QUEUE_SIZE, 10000));
+		writing = true;
+		writer = new Thread(this::writeLoop, "callback-writer");
+		writer.setDaemon(true);
+		writer.start();
+
+		retryQueueSize = IGlobals.getIntProperty(LocalConstants.TRANSACTION_CALLBACK_RETRY_QUEUE_SIZE, 10000);
+		deferSpreadMillis = Math.max(1L, IGlobals.getLongProperty(LocalConstants.TRANSACTION_CALLBACK_BREAKER_SPREAD, 10000L));
+		retrier = new Thread(this::retryLoop, "callback-retry");
+		retrier.setDaemon(true);
+		retrier.start();
+		logger.info("callback dispatcher node:{} workers:{} batch:{} lease:{}s flush:{} rows/{}ms", nodeId, workerCount,
+				batchSize, leaseSeconds, flushRows, TimeUnit.NANOSECONDS.toMillis(flushNanos));
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (writer != null) {
+			writing = false;
+			writer.interrupt();
+			try {
+				writer.join(TimeUnit.SECONDS.toMillis(5));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (retrier != null) {
+			// 延迟队列中的记录租约到期后重新认领
+			retrier.interrupt();
+		}
+		if (poller != null) {
+			poller.shutdownNow();
+		}
+		if (workers != null) {
+			// 未处理完的记录租约到期后重新认领
+			workers.shutdown();
+		}
+	}
 	 
-	@Scheduled(fixedDelay = 5000)
+	/**
+	 * 认领并分发,直到没有到期记录或工作线程已满
+	 */
 	public void run() {
-			
-		   myLock.writeLock().lock();
-		   isRunning.compareAndSet(false, true);
-		   try
-		   {
- 			    Example example = new Example(TransactionResultPo.class);
-			    List<TransactionResultPo> dataList = transactionResultMapper.selectByExample(example);
-				if (CommonUtil.isCollectNotEmpty(dataList)) {
-					 
-					    dataList.stream().forEach(transactionResult -> {	 
-							  handlerMsg(transactionResult);
-					 });
-				 } 
-		   } finally {
-			   isRunning.compareAndSet(true, false);
-			   myLock.writeLock().unlock();  
-		   }
+		if (!isRunning.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			while (true) {
+				int capacity = Math.min(batchSize, inflight.availablePermits());
+				if (capacity == 0) {
+					break;
+				}
+				String owner = nodeId + "-" + claimSequence.incrementAndGet();
+				int claimed = transactionResultMapper.claimDueResults(owner, leaseSeconds, capacity);
+				if (claimed == 0) {
+					break;
+				}
+				List<TransactionResultPo> dataList = transactionResultMapper.selectClaimed(owner);
+				for (TransactionResultPo transactionResult : dataList) {
+					dispatch(transactionResult);
+				}
+				if (claimed < capacity) {
+					break;
+				}
+			}
+		} catch (Exception ex) {
+			logger.error("claim call back fail node:{}", nodeId, ex);
+		} finally {
+			isRunning.set(false);
+		}
+	}
+
+	private void dispatch(TransactionResultPo transactionResult) {
+		inflight.acquireUninterruptibly();
+		execute(transactionResult);
+	}
+
+	/**
+	 * 已占用 inflight 许可后提交工作线程
+	 * @param transactionResult
+	 */
+	private void execute(TransactionResultPo transactionResult) {
+		try {
+			// http 回调异步完成后才归还许可,inflight 同时限制了未完成的回调请求数
+			workers.execute(() -> handlerMsg(transactionResult).whenComplete((delivered, ex) -> inflight.release()));
+		} catch (RuntimeException ex) {
+			inflight.release();
+			throw ex;
+		}
 	}
 	
+	/**
+	 * 退避到期后重投,记录仍在本节点租约内
+	 */
+	private void retryLoop() {
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				dispatch(retries.take().transactionResult);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (Exception ex) {
+				logger.error("retry call back fail node:{}", nodeId, ex);
+			}
+		}
+	}
+
 	/**
 	 * 通知启动回调
+	 * <p>
+	 * 入队后立即返回,由写入线程组提交;队列满或写入线程未启动时在调用线程直接写入
 	 * @param transactionResult
 	 */
 	public void notify(TransactionResultPo transactionResult) {
-		
-		//transactionResultMapper.insert(transactionResult);
-		/*if (!isRunning.get()) {
-			executor.submit(this);
-		}*/	
+		if (writing && pendings.offer(transactionResult)) {
+			return;
+		}
+		List<TransactionResultPo> batch = new ArrayList<>(1);
+		batch.add(transactionResult);
+		commit(batch);
+	}
+
+	/**
+	 * 组提交: 取到首条后继续收集,直到满 flushRows 条或等待满 flushNanos
+	 */
+	private void writeLoop() {
+		List<TransactionResultPo> batch = new ArrayList<>(flushRows);
+		while (writing || !pendings.isEmpty()) {
+			try {
+				TransactionResultPo first = writing ? pendings.take() : pendings.poll();
+				if (first == null) {
+					break;
+				}
+				batch.add(first);
+				pendings.drainTo(batch, flushRows - batch.size());
+				long deadline = System.nanoTime() + flushNanos;
+				while (batch.size() < flushRows) {
+					long remaining = deadline - System.nanoTime();
+					TransactionResultPo next = remaining > 0 ? pendings.poll(remaining, TimeUnit.NANOSECONDS) : null;
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+					pendings.drainTo(batch, flushRows - batch.size());
+				}
+			} catch (InterruptedException e) {
+				// 关闭时继续写完队列中剩余记录
+			}
+			if (!batch.isEmpty()) {
+				commit(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	/**
+	 * 多行 insert 写入;工作线程有空闲时写入前即由本节点认领,写入成功后直接回调,
+	 * 其余记录租约为空,由认领循环处理。写入失败时阻塞重试,不丢记录
+	 * @param batch
+	 */
+	private void commit(List<TransactionResultPo> batch) {
+		String owner = nodeId + "-" + claimSequence.incrementAndGet();
+		Date leaseExpire = new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(leaseSeconds));
+		List<TransactionResultPo> claimed = new ArrayList<>(batch.size());
+		Date now = new Date();
+		for (TransactionResultPo transactionResult : batch) {
+			if (transactionResult.getGmtCreate() == null) {
+				transactionResult.setGmtCreate(now);
+			}
+			transactionResult.setNextAttemptAt(now);
+			if (inflight != null && inflight.tryAcquire()) {
+				transactionResult.setLeaseOwner(owner);
+				transactionResult.setLeaseExpire(leaseExpire);
+				claimed.add(transactionResult);
+			}
+		}
+		List<TransactionResultPo> durable = insert(batch);
+		for (TransactionResultPo transactionResult : claimed) {
+			if (durable.contains(transactionResult)) {
+				execute(transactionResult);
+			} else {
+				inflight.release();
+			}
+		}
+	}
+
+	/**
+	 * 整批写入,失败按退避重试直到成功(insertBatch 重复写入幂等),期间写入线程阻塞、队列积压,
+	 * 队列满后调用方线程同样在此等待;只有关闭时被中断才放弃,并逐条记录错误日志
+	 * @param batch
+	 * @return 写入成功的记录
+	 */
+	private List<TransactionResultPo> insert(List<TransactionResultPo> batch) {
+		long backoff = INSERT_RETRY_MIN_MILLIS;
+		while (true) {
+			try {
+				transactionResultMapper.insertBatch(batch);
+				return batch;
+			} catch (Exception ex) {
+				logger.error("insert {} call backs fail, retry after {}ms", batch.size(), backoff, ex);
+			}
+			try {
+				TimeUnit.MILLISECONDS.sleep(backoff);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for (TransactionResultPo transactionResult : batch) {
+					logger.error("call back not stored on shutdown:{}", transactionResult);
+				}
+				return new ArrayList<>(0);
+			}
+			backoff = Math.min(backoff * 2, INSERT_RETRY_MAX_MILLIS);
+		}
 	}
 	
-	private void handlerMsg(TransactionResultPo transactionResult) {	
+	private CompletableFuture<Boolean> handlerMsg(TransactionResultPo transactionResult) {	
 		try {
-			if (transactionResult.getCounter() >=3 || transactionResult.getStatus()==200) {
-				transactionResultMapper.updateMoveCallBackHisotryResult(transactionResult);
-				return;
+			if (retryPolicy.exhausted(transactionResult) || transactionResult.getStatus()==200) {
+				transactionResultMapper.markCallBackDone(transactionResult);
+				return CompletableFuture.completedFuture(true);
 			}
-			String callbackUrl = getAddressUrl(transactionResult);
+			ApplyRoute route = applyCodeRoutingService.getRoute(transactionResult.getApplyCode());
+			String callbackUrl = route == null ? null : route.getCallbackUrl();
 			if (CommonUtil.isNullOrEmpty(callbackUrl)) {
 				transactionResult.setStatus(2);
 				transactionResult.setCallbackTime(new Date());
-				transactionResultMapper.updateMoveCallBackHisotryResult(transactionResult);
-				return;
+				transactionResultMapper.markCallBackDone(transactionResult);
+				return CompletableFuture.completedFuture(true);
 			}
-			intermissionClient.sendNotPushmsg(callbackUrl, transactionResult);
-		 } catch (ServiceProcessException ex) {
-			 logger.error("handlermsg call back:{}", transactionResult,ex);
-		  } catch (Exception ex) {
-			 logger.error("handlermsg call back:{}", transactionResult,ex);
+			long rejectUntil = httpDispatcher.rejectUntil(callbackUrl);
+			if (rejectUntil > 0) {
+				defer(transactionResult, rejectUntil);
+				return CompletableFuture.completedFuture(false);
+			}
+			Date lease = transactionResult.getLeaseExpire();
+			Date nextAttempt = transactionResult.getNextAttemptAt();
+			boolean hold = planRetry(transactionResult);
+			CompletableFuture<Boolean> sent = route.isCallbackBatch()
+					? callbackBatcher.submit(callbackUrl, transactionResult)
+					: intermissionClient.sendPushmsgAsync(callbackUrl, transactionResult);
+			return sent.handle((delivered, ex) -> {
+				CallbackRejectedException rejected = CallbackRejectedException.of(ex);
+				if (rejected != null) {
+					// 请求未发出,未写回;恢复库中的租约再推迟
+					transactionResult.setLeaseExpire(lease);
+					transactionResult.setNextAttemptAt(nextAttempt);
+					defer(transactionResult, rejected.getRetryAt());
+					return false;
+				}
+				if (ex != null) {
+					logger.error("handlermsg call back:{}", transactionResult, ex);
+				}
+				if (ex == null && delivered) {
+					// 回调完成即标记待归档,由 CallbackArchiver 批量迁移
+					transactionResultMapper.markCallBackDone(transactionResult);
+					return true;
+				}
+				if (retryPolicy.exhausted(transactionResult)) {
+					transactionResultMapper.markCallBackDone(transactionResult);
+				} else if (hold) {
+					retries.offer(new Retry(transactionResult));
+				}
+				return false;
+			});
+		} catch (Exception ex) {
+			logger.error("handlermsg call back:{}", transactionResult,ex);
+			return CompletableFuture.completedFuture(false);
 		}
 	 }
+
 	/**
-	 * 获取地址
+	 * 按本次失败预先算好下次投递时间,随失败结果一并写回;投递成功则记录归档,不受影响。
+	 * 本节点延迟队列未满时租约延长到下次投递后,到期由本节点重投,
+	 * 否则租约在下次投递时间到期,由任意节点认领
 	 * @param transactionResult
-	 * @return
-	 */
-	private String getAddressUrl(TransactionResultPo transactionResult) {
-		 Example example = new Example(ChaincodeAccessCodePo.class);
-    	 example.createCriteria().andEqualTo("applyCode",transactionResult.getApplyCode());
-    	 List<ChaincodeAccessCodePo> list = chaincodeAccessCodeMapper.selectByExample(example);
-    		
-    	 String callbackUrl = null;
-    	 if (CommonUtil.isCollectNotEmpty(list)) {
-    	     callbackUrl = list.get(0).getUrlAddress();
-    	 }
-    	 return  callbackUrl;
-	}	
+	 * @return 是否由本节点延迟队列重投
+	 */
+	private boolean planRetry(TransactionResultPo transactionResult) {
+		long delay = retryPolicy.delayMillis(transactionResult.getCounter() + 1);
+		long nextAttempt = System.currentTimeMillis() + delay;
+		boolean hold = retries.size() < retryQueueSize;
+		transactionResult.setNextAttemptAt(new Date(nextAttempt));
+		transactionResult.setLeaseExpire(new Date(hold ? nextAttempt + TimeUnit.SECONDS.toMillis(leaseSeconds) : nextAttempt));
+		return hold;
+	}
+	/**
+	 * 请求未能发出,推迟到可放行时间之后并随机打散;投递次数不变。
+	 * 现有租约已覆盖推迟时间且延迟队列未满时只在内存排队,不写库
+	 * @param transactionResult
+	 * @param retryAt 可放行的时间
+	 */
+	private void defer(TransactionResultPo transactionResult, long retryAt) {
+		long nextAttempt = Math.max(retryAt, System.currentTimeMillis())
+				+ ThreadLocalRandom.current().nextLong(deferSpreadMillis);
+		boolean hold = retries.size() < retryQueueSize;
+		Date lease = transactionResult.getLeaseExpire();
+		transactionResult.setNextAttemptAt(new Date(nextAttempt));
+		if (!hold || lease == null || lease.getTime() <= nextAttempt) {
+			transactionResult.setLeaseExpire(new Date(hold ? nextAttempt + TimeUnit.SECONDS.toMillis(leaseSeconds) : nextAttempt));
+			transactionResultMapper.deferCallBack(transactionResult);
+		}
+		if (hold) {
+			retries.offer(new Retry(transactionResult));
+		}
+	}
+
+	/**
+	 * 延迟队列元素,到期时间取下次投递时间
+	 */
+	private static final class Retry implements Delayed {
+
+		private final TransactionResultPo transactionResult;
+		private final long dueMillis;
+
+		Retry(TransactionResultPo transactionResult) {
+			this.transactionResult = transactionResult;
+			this.dueMillis = transactionResult.getNextAttemptAt().getTime();
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(dueMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			return Long.compare(dueMillis, ((Retry) other).dueMillis);
+		}
+	}
 }
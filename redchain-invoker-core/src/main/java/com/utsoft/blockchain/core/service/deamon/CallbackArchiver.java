@@ -0,0 +1,146 @@
+package com.utsoft.blockchain.core.service.deamon;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import com.utsoft.blockchain.core.dao.mapper.TransactionResultMapper;
+import com.utsoft.blockchain.core.util.CommonUtil;
+import com.utsoft.blockchain.core.util.IGlobals;
+import com.utsoft.blockchain.core.util.LocalConstants;
+/**
+ * 回调记录批量归档
+ * <p>
+ * 回调结束的记录只标记 done_at,由本任务按批迁移: 写入归档批次号后
+ * 一条 insert ... select 迁入历史表,再按批次号一条 delete,
+ * 热点表上每批只有三条语句,不再逐条 insert + delete。
+ * 历史表按 gmt_create 月分区,本任务提前从 pmax 拆出后续月份分区,
+ * 超过保留月数的分区整体 drop
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+@Component
+public class CallbackArchiver {
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	private static final String PARTITION_MAX = "pmax";
+	private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+	private static final long MAINTAIN_INTERVAL_MINUTES = 60L;
+
+	@Autowired
+	private TransactionResultMapper transactionResultMapper;
+
+	private final String nodeId = CommonUtil.getProcessId();
+	private final AtomicLong batchSequence = new AtomicLong();
+
+	private int chunk;
+	private int staleSeconds;
+	private int partitionsAhead;
+	private int retentionMonths;
+	private ScheduledExecutorService archiver;
+
+	@PostConstruct
+	public void init() {
+		long interval = IGlobals.getLongProperty(LocalConstants.TRANSACTION_ARCHIVE_INTERVAL, 1000L);
+		chunk = IGlobals.getIntProperty(LocalConstants.TRANSACTION_ARCHIVE_CHUNK, 500);
+		staleSeconds = IGlobals.getIntProperty(LocalConstants.TRANSACTION_ARCHIVE_STALE, 600);
+		partitionsAhead = IGlobals.getIntProperty(LocalConstants.TRANSACTION_ARCHIVE_PARTITIONS_AHEAD, 2);
+		retentionMonths = IGlobals.getIntProperty(LocalConstants.TRANSACTION_ARCHIVE_RETENTION, 0);
+		archiver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "callback-archiver");
+			thread.setDaemon(true);
+			return thread;
+		});
+		archiver.scheduleWithFixedDelay(this::archive, interval, interval, TimeUnit.MILLISECONDS);
+		archiver.scheduleWithFixedDelay(this::maintainPartitions, 0L, MAINTAIN_INTERVAL_MINUTES, TimeUnit.MINUTES);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (archiver != null) {
+			archiver.shutdownNow();
+		}
+	}
+
+	/**
+	 * 迁移待归档记录,直到不足一批
+	 */
+	void archive() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				String batch = nodeId + "-a" + batchSequence.incrementAndGet();
+				int claimed = transactionResultMapper.claimArchive(batch, chunk, staleSeconds);
+				if (claimed == 0) {
+					break;
+				}
+				transactionResultMapper.archiveBatch(batch);
+				transactionResultMapper.deleteArchived(batch);
+				if (claimed < chunk) {
+					break;
+				}
+			}
+		} catch (Exception ex) {
+			// 认领超时(按 archive_claimed_at)的记录重新认领,历史表按主键去重
+			logger.error("archive call back fail node:{}", nodeId, ex);
+		}
+	}
+
+	/**
+	 * 补齐当前及后续月份分区,删除超过保留期的分区
+	 */
+	void maintainPartitions() {
+		try {
+			List<String> partitions = transactionResultMapper.listHistoryPartitions();
+			if (!partitions.contains(PARTITION_MAX)) {
+				logger.warn("t_chain_transaction_his is not partitioned, skip partition maintenance");
+				return;
+			}
+			LocalDate month = LocalDate.now().withDayOfMonth(1);
+			for (int i = 0; i <= partitionsAhead; i++) {
+				LocalDate start = month.plusMonths(i);
+				String name = start.format(PARTITION_NAME);
+				if (!partitions.contains(name) && isAfterLast(partitions, name)) {
+					transactionResultMapper.addHistoryPartition(name, start.plusMonths(1).toString());
+					partitions.add(partitions.size() - 1, name);
+					logger.info("history partition {} added", name);
+				}
+			}
+			if (retentionMonths > 0) {
+				String oldest = month.minusMonths(retentionMonths).format(PARTITION_NAME);
+				// 至少保留一个月分区和 pmax
+				int remaining = partitions.size();
+				for (String name : partitions) {
+					if (!PARTITION_MAX.equals(name) && name.compareTo(oldest) < 0 && remaining > 2) {
+						transactionResultMapper.dropHistoryPartition(name);
+						remaining--;
+						logger.info("history partition {} dropped", name);
+					}
+				}
+			}
+		} catch (Exception ex) {
+			logger.error("history partition maintenance fail", ex);
+		}
+	}
+
+	/**
+	 * 只能从 pmax 拆出比现有月分区都晚的分区
+	 */
+	private static boolean isAfterLast(List<String> partitions, String name) {
+		for (String partition : partitions) {
+			if (!PARTITION_MAX.equals(partition) && partition.compareTo(name) >= 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
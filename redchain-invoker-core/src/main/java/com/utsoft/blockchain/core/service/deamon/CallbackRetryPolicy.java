@@ -0,0 +1,72 @@
+package com.utsoft.blockchain.core.service.deamon;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+import com.utsoft.blockchain.core.dao.model.TransactionResultPo;
+import com.utsoft.blockchain.core.util.IGlobals;
+import com.utsoft.blockchain.core.util.LocalConstants;
+/**
+ * 回调重试策略
+ * <p>
+ * 指数退避加随机抖动: 第 n 次失败后延迟 min(maxDelay, base * 2^(n-1)),
+ * 其中一半固定、一半随机,避免同一商户的失败记录在同一时刻集中重试;
+ * 最多投递次数可按 applyCode 单独配置
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+@Component
+public class CallbackRetryPolicy {
+
+	private long baseMillis;
+	private long maxDelayMillis;
+	private int defaultAttempts;
+
+	private final ConcurrentMap<String, Integer> attempts = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void init() {
+		baseMillis = Math.max(1L, IGlobals.getLongProperty(LocalConstants.TRANSACTION_CALLBACK_RETRY_BASE, 1000L));
+		maxDelayMillis = Math.max(baseMillis, IGlobals.getLongProperty(LocalConstants.TRANSACTION_CALLBACK_RETRY_MAX_DELAY, 600000L));
+		defaultAttempts = IGlobals.getIntProperty(LocalConstants.TRANSACTION_CALLBACK_RETRY_ATTEMPTS, 3);
+	}
+
+	/**
+	 * 最多投递次数
+	 * @param applyCode
+	 * @return
+	 */
+	public int maxAttempts(String applyCode) {
+		if (applyCode == null) {
+			return defaultAttempts;
+		}
+		return attempts.computeIfAbsent(applyCode,
+				key -> IGlobals.getIntProperty(LocalConstants.TRANSACTION_CALLBACK_RETRY_LIMITS + key, defaultAttempts));
+	}
+
+	/**
+	 * 投递次数已用完
+	 * @param transactionResult
+	 * @return
+	 */
+	public boolean exhausted(TransactionResultPo transactionResult) {
+		return transactionResult.getCounter() >= maxAttempts(transactionResult.getApplyCode());
+	}
+
+	/**
+	 * 第 attempt 次失败后的等待时长
+	 * @param attempt 已失败次数,从 1 开始
+	 * @return 毫秒
+	 */
+	public long delayMillis(int attempt) {
+		int shift = Math.min(Math.max(attempt, 1) - 1, 62);
+		long delay = baseMillis << shift;
+		if (delay <= 0 || delay > maxDelayMillis || (delay >> shift) != baseMillis) {
+			delay = maxDelayMillis;
+		}
+		long half = delay / 2;
+		return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+	}
+}
@@ -74,6 +74,7 @@ public class CaUserServiceImpl implements ICaUserService {
 				 String key = IGlobals.getProperty("ca.encryption.key", "QWE123zxcw");
 				 adminUser.setEnrollmentSecret(CommonUtil.decrypText(key, fabricCaUserPo.getEnrollmentSecret()));
 				 adminUser.setMspId(fabricCaUserPo.getMspId());
+				 adminUser.flush();
 				if (caClientManager.adminInstall(adminUser)) {
 					fabricCaUserMapper.updateFabricUserStatus(adminUser.getName());
 				}
@@ -146,8 +147,8 @@ public class CaUserServiceImpl implements ICaUserService {
 		} else {
 
 			FabricCaUserPo fabricCaUserPo = userlist.get(0);
-			FabricAuthorizedUser user = new FabricAuthorizedUser(fabricCaUserPo.getUserName(),
-					fabricCaUserPo.getOrganization(), localKeyPrivateStoreService);
+			FabricAuthorizedUser user = localKeyPrivateStoreService.getMember(fabricCaUserPo.getUserName(),
+					fabricCaUserPo.getOrganization());
 			String privateKey,publicKey;
 			try {
 				privateKey = familySecCrypto.convertPrivatelicKey(user.getEnrollment().getKey());
@@ -182,8 +183,7 @@ public class CaUserServiceImpl implements ICaUserService {
 			if (fabricOpational.isPresent()) {
 
 				FabricCaUserPo userPo = fabricOpational.get();
-				FabricAuthorizedUser user = new FabricAuthorizedUser(userPo.getUserName(), userPo.getOrganization(),
-						localKeyPrivateStoreService);
+				FabricAuthorizedUser user = localKeyPrivateStoreService.getMember(userPo.getUserName(), userPo.getOrganization());
 				if (user.getEnrollment() == null) {
 					throw new ServiceProcessException(Constants.EXECUTE_FAIL_ERROR,"user not enroll");
 				}
@@ -212,8 +212,7 @@ public class CaUserServiceImpl implements ICaUserService {
 		List<FabricCaUserPo> userlist = fabricCaUserMapper.selectByExample(example);
 		if (CommonUtil.isCollectNotEmpty(userlist)) {
 			FabricCaUserPo userPo = userlist.get(0);
-			return new FabricAuthorizedUser(userPo.getUserName(), userPo.getOrganization(),
-					localKeyPrivateStoreService);
+			return localKeyPrivateStoreService.getMember(userPo.getUserName(), userPo.getOrganization());
 		}
 		return null;
 	}
@@ -0,0 +1,160 @@
+package com.utsoft.blockchain.core.service.impl;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+/**
+ * redis 异步多路复用执行器
+ * <p>
+ * 调用线程只入队并拿到 future,少量工作线程各自占用一个连接,
+ * 把队列中积攒的命令合并为一个 pipeline 发送,按顺序回填结果。
+ * 请求线程不再等待连接池;集群连接不支持 pipeline,退化为逐条执行。
+ * 队列有界,积压满时命令在调用线程同步执行,由连接池对调用方形成背压。
+ * @author hunterfox
+ * @date: 2017年10月13日
+ * @version 1.0.0
+ */
+public class PipelinedRedisExecutor {
+
+	private static final Logger logger = LoggerFactory.getLogger(PipelinedRedisExecutor.class);
+
+	private final RedisTemplate<?, ?> redisTemplate;
+	private final BlockingQueue<Command<?>> commands;
+	private final Thread[] workers;
+	private final int maxBatch;
+	private volatile boolean running = true;
+
+	/**
+	 * @param redisTemplate 提供连接
+	 * @param connections 工作线程(连接)数
+	 * @param maxBatch 单个 pipeline 最多命令数
+	 * @param capacity 队列最多积压命令数
+	 */
+	public PipelinedRedisExecutor(RedisTemplate<?, ?> redisTemplate, int connections, int maxBatch, int capacity) {
+		this.redisTemplate = redisTemplate;
+		this.maxBatch = maxBatch;
+		this.commands = new LinkedBlockingQueue<>(capacity);
+		this.workers = new Thread[connections];
+		for (int i = 0; i < connections; i++) {
+			workers[i] = new Thread(this::work, "redis-pipeline-" + i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+	}
+
+	/**
+	 * 提交命令
+	 * @param action 在连接上发出命令,pipeline 模式下返回值被忽略
+	 * @param mapper 原始结果转换
+	 * @param statusReply 命令是否只返回状态(OK),此类结果不出现在 pipeline 结果中
+	 * @return
+	 */
+	public <T> CompletableFuture<T> submit(Function<RedisConnection, Object> action, Function<Object, T> mapper, boolean statusReply) {
+		Command<T> command = new Command<>(action, mapper, statusReply);
+		if (!running) {
+			command.future.completeExceptionally(new IllegalStateException("redis pipeline executor shutdown"));
+		} else if (!commands.offer(command)) {
+			// 队列已满,同步执行
+			execute(Collections.singletonList(command));
+		}
+		return command.future;
+	}
+
+	public void shutdown() {
+		running = false;
+		for (Thread worker : workers) {
+			worker.interrupt();
+		}
+		Command<?> command;
+		while ((command = commands.poll()) != null) {
+			command.future.completeExceptionally(new IllegalStateException("redis pipeline executor shutdown"));
+		}
+	}
+
+	private void work() {
+		List<Command<?>> batch = new ArrayList<>(maxBatch);
+		while (running) {
+			try {
+				Command<?> first = commands.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				commands.drainTo(batch, maxBatch - 1);
+				execute(batch);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void execute(List<? extends Command<?>> batch) {
+		try {
+			List<Object> results = redisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+				if (connection instanceof RedisClusterConnection) {
+					List<Object> replies = new ArrayList<>(batch.size());
+					for (Command<?> command : batch) {
+						replies.add(command.action.apply(connection));
+					}
+					return replies;
+				}
+				connection.openPipeline();
+				for (Command<?> command : batch) {
+					command.action.apply(connection);
+				}
+				return connection.closePipeline();
+			});
+			boolean positional = results != null && results.size() == batch.size();
+			int index = 0;
+			for (Command<?> command : batch) {
+				if (positional) {
+					command.complete(results.get(index++));
+				} else if (command.statusReply) {
+					command.complete(null);
+				} else {
+					command.complete(results == null || index >= results.size() ? null : results.get(index++));
+				}
+			}
+		} catch (Exception ex) {
+			logger.error("redis pipeline batch size:{} error", batch.size(), ex);
+			for (Command<?> command : batch) {
+				command.future.completeExceptionally(ex);
+			}
+		}
+	}
+
+	private static final class Command<T> {
+
+		private final Function<RedisConnection, Object> action;
+		private final Function<Object, T> mapper;
+		private final boolean statusReply;
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+
+		Command(Function<RedisConnection, Object> action, Function<Object, T> mapper, boolean statusReply) {
+			this.action = action;
+			this.mapper = mapper;
+			this.statusReply = statusReply;
+		}
+
+		void complete(Object reply) {
+			try {
+				future.complete(mapper.apply(reply));
+			} catch (Exception ex) {
+				future.completeExceptionally(ex);
+			}
+		}
+	}
+}
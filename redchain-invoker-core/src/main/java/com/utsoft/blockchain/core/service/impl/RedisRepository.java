@@ -1,19 +1,30 @@
 package com.utsoft.blockchain.core.service.impl;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.redis.core.BoundHashOperations;
 import org.springframework.data.redis.core.BoundListOperations;
 import org.springframework.data.redis.core.BoundSetOperations;
 import org.springframework.data.redis.core.BoundValueOperations;
 import org.springframework.data.redis.core.BoundZSetOperations;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Repository;
 import com.utsoft.blockchain.core.service.IRedisRepository;
+import com.utsoft.blockchain.core.util.IGlobals;
+import com.utsoft.blockchain.core.util.LocalConstants;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
 /**
  * @author hunterfox
  * @date: 2017年8月7日
@@ -24,9 +35,36 @@ import com.utsoft.blockchain.core.service.IRedisRepository;
 @Repository("redisRepository")
 public class RedisRepository<K, V> implements IRedisRepository<K, V> {
 
+	/**
+	 * SET NX PX 参数;spring-data-redis 1.x 的 set(..., SetOption) 没有返回值,
+	 * 集群连接又不支持 eval,直接调用 jedis 原生命令取写入结果
+	 */
+	private static final byte[] NX = "NX".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] PX = "PX".getBytes(StandardCharsets.UTF_8);
+	private static final String OK = "OK";
+
 	@Autowired
 	private RedisTemplate<K, V> redisTemplate;
 
+	private PipelinedRedisExecutor pipelinedExecutor;
+
+	@PostConstruct
+	public void initAsync() {
+		int connections = IGlobals.getIntProperty(LocalConstants.REDIS_ASYNC_CONNECTIONS, 0);
+		if (connections > 0) {
+			int maxBatch = IGlobals.getIntProperty(LocalConstants.REDIS_ASYNC_MAX_BATCH, 128);
+			int capacity = IGlobals.getIntProperty(LocalConstants.REDIS_ASYNC_QUEUE_CAPACITY, 4096);
+			pipelinedExecutor = new PipelinedRedisExecutor(redisTemplate, connections, maxBatch, capacity);
+		}
+	}
+
+	@PreDestroy
+	public void destroyAsync() {
+		if (pipelinedExecutor != null) {
+			pipelinedExecutor.shutdown();
+		}
+	}
+
 	private BoundValueOperations<K, V> getBoundValueOps(K key) {
 		return redisTemplate.boundValueOps(key);
 	}
@@ -103,6 +141,86 @@ public class RedisRepository<K, V> implements IRedisRepository<K, V> {
 		ops.set(value, timeout, unit);
 	}
 
+	@Override
+	public Boolean setIfAbsent(final K key, final V value, final long timeout, final TimeUnit unit) {
+		final byte[] rawKey = rawKey(key);
+		final byte[] rawValue = rawValue(value);
+		final long millis = unit.toMillis(timeout);
+		return redisTemplate.execute((RedisCallback<Boolean>) connection -> {
+			Object nativeConnection = connection.getNativeConnection();
+			String reply;
+			if (nativeConnection instanceof JedisCluster) {
+				reply = ((JedisCluster) nativeConnection).set(rawKey, rawValue, NX, PX, millis);
+			} else if (nativeConnection instanceof Jedis) {
+				reply = ((Jedis) nativeConnection).set(rawKey, rawValue, NX, PX, millis);
+			} else {
+				throw new InvalidDataAccessApiUsageException("SET NX PX unsupported by " + nativeConnection);
+			}
+			return OK.equals(reply);
+		});
+	}
+
+	// Async
+	@Override
+	public CompletableFuture<V> getAsync(final K key) {
+		if (pipelinedExecutor == null) {
+			return CompletableFuture.completedFuture(get(key));
+		}
+		final byte[] rawKey = rawKey(key);
+		return pipelinedExecutor.submit(connection -> connection.get(rawKey), this::deserializeValue, false);
+	}
+
+	@Override
+	public CompletableFuture<Void> setAsync(final K key, final V value, final long timeout, final TimeUnit unit) {
+		if (pipelinedExecutor == null) {
+			set(key, value, timeout, unit);
+			return CompletableFuture.completedFuture(null);
+		}
+		final byte[] rawKey = rawKey(key);
+		final byte[] rawValue = rawValue(value);
+		return pipelinedExecutor.submit(connection -> {
+			connection.pSetEx(rawKey, unit.toMillis(timeout), rawValue);
+			return null;
+		}, reply -> null, true);
+	}
+
+	@Override
+	public CompletableFuture<Boolean> existsAsync(final K key) {
+		if (pipelinedExecutor == null) {
+			return CompletableFuture.completedFuture(exists(key));
+		}
+		final byte[] rawKey = rawKey(key);
+		return pipelinedExecutor.submit(connection -> connection.exists(rawKey), reply -> Boolean.TRUE.equals(reply), false);
+	}
+
+	@Override
+	public CompletableFuture<Void> delAsync(final K key) {
+		if (pipelinedExecutor == null) {
+			del(key);
+			return CompletableFuture.completedFuture(null);
+		}
+		final byte[] rawKey = rawKey(key);
+		return pipelinedExecutor.submit(connection -> connection.del(rawKey), reply -> null, false);
+	}
+
+	@SuppressWarnings("unchecked")
+	private byte[] rawKey(K key) {
+		return ((RedisSerializer<K>) redisTemplate.getKeySerializer()).serialize(key);
+	}
+
+	@SuppressWarnings("unchecked")
+	private byte[] rawValue(V value) {
+		return ((RedisSerializer<V>) redisTemplate.getValueSerializer()).serialize(value);
+	}
+
+	@SuppressWarnings("unchecked")
+	private V deserializeValue(Object reply) {
+		if (!(reply instanceof byte[])) {
+			return null;
+		}
+		return ((RedisSerializer<V>) redisTemplate.getValueSerializer()).deserialize((byte[]) reply);
+	}
+
 	// Hash
 	public void hDel(final K key, final Object... hKeys) {
 		BoundHashOperations<K, K, V> ops = this.getBoundHashOps(key);
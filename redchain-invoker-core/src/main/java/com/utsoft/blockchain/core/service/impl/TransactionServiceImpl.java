@@ -128,6 +128,6 @@ public class TransactionServiceImpl extends AbstractTkcBasicService implements I
 
 	@Override
 	public List<QueryInterceptor> getInterceptor() {
-		return interceptors;
+		return applyCodeRoutingService.getInterceptors();
 	}
 }
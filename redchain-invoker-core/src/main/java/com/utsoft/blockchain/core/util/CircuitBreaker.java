@@ -0,0 +1,197 @@
+package com.utsoft.blockchain.core.util;
+/**
+ * 熔断器
+ * <p>
+ * 按最近 window 次调用统计失败率和慢调用率,调用数达到 minCalls 且任一比例超过阈值即打开;
+ * 打开期间直接拒绝,openMillis 后进入半开,只放行 probes 个试探请求,
+ * 全部成功则关闭并清空统计,任一失败或过慢重新打开。
+ * 每个回调地址一个实例,方法同步,竞争只在同一地址的请求之间
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+public class CircuitBreaker {
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private static final byte OK = 0;
+	private static final byte FAILURE = 1;
+	private static final byte SLOW = 2;
+
+	private final byte[] outcomes;
+	private final int minCalls;
+	private final double failureRate;
+	private final double slowRate;
+	private final long slowNanos;
+	private final long openMillis;
+	private final int probes;
+
+	private State state = State.CLOSED;
+	private int next;
+	private int calls;
+	private int failures;
+	private int slows;
+	private long openUntil;
+	private long halfOpenedAt;
+	private int probesInFlight;
+	private int probeSuccesses;
+	private long opened;
+
+	/**
+	 * @param window 统计的最近调用次数
+	 * @param minCalls 至少多少次调用后才判断
+	 * @param failureRate 失败率阈值 0 ~ 1,0 表示不按失败率熔断
+	 * @param slowRate 慢调用率阈值 0 ~ 1,0 表示不按慢调用熔断
+	 * @param slowMillis 超过即为慢调用(毫秒)
+	 * @param openMillis 打开时长(毫秒)
+	 * @param probes 半开时试探请求数
+	 */
+	public CircuitBreaker(int window, int minCalls, double failureRate, double slowRate, long slowMillis,
+			long openMillis, int probes) {
+		if (window <= 0 || probes <= 0) {
+			throw new IllegalArgumentException("illegal circuit breaker window or probes");
+		}
+		this.outcomes = new byte[window];
+		this.minCalls = Math.min(Math.max(minCalls, 1), window);
+		this.failureRate = failureRate;
+		this.slowRate = slowRate;
+		this.slowNanos = slowMillis * 1000000L;
+		this.openMillis = openMillis;
+		this.probes = probes;
+	}
+
+	/**
+	 * 申请发出一次调用;返回 true 后必须以 onSuccess / onFailure / release 之一结束
+	 * @return false 表示熔断中
+	 */
+	public synchronized boolean tryAcquire() {
+		if (state == State.OPEN) {
+			if (System.currentTimeMillis() < openUntil) {
+				return false;
+			}
+			state = State.HALF_OPEN;
+			halfOpenedAt = System.currentTimeMillis();
+			probesInFlight = 0;
+			probeSuccesses = 0;
+		}
+		if (state == State.HALF_OPEN) {
+			if (probesInFlight + probeSuccesses >= probes) {
+				return false;
+			}
+			probesInFlight++;
+		}
+		return true;
+	}
+
+	/**
+	 * 已申请但未发出(如排队已满)
+	 */
+	public synchronized void release() {
+		if (state == State.HALF_OPEN && probesInFlight > 0) {
+			probesInFlight--;
+		}
+	}
+
+	/**
+	 * 调用成功,耗时超过慢调用阈值时按慢调用计
+	 * @param nanos
+	 */
+	public synchronized void onSuccess(long nanos) {
+		boolean slow = nanos > slowNanos;
+		if (state == State.HALF_OPEN) {
+			probesInFlight = Math.max(0, probesInFlight - 1);
+			if (slow) {
+				open();
+			} else if (++probeSuccesses >= probes) {
+				close();
+			}
+			return;
+		}
+		if (state == State.CLOSED) {
+			record(slow ? SLOW : OK);
+		}
+	}
+
+	/**
+	 * 调用失败
+	 * @param nanos
+	 */
+	public synchronized void onFailure(long nanos) {
+		if (state == State.HALF_OPEN) {
+			probesInFlight = Math.max(0, probesInFlight - 1);
+			open();
+			return;
+		}
+		if (state == State.CLOSED) {
+			record(FAILURE);
+		}
+	}
+
+	/**
+	 * 当前调用会被拒绝时,返回预计可再次放行的时间
+	 * <p>
+	 * 打开期间为恢复试探的时间;半开且试探名额已满时,按试探在一个打开时长内有结果估计
+	 * @return 可再次放行的时间(毫秒),当前可放行时为 0
+	 */
+	public synchronized long rejectUntil() {
+		long now = System.currentTimeMillis();
+		if (state == State.OPEN && now < openUntil) {
+			return openUntil;
+		}
+		if (state == State.HALF_OPEN && probesInFlight + probeSuccesses >= probes) {
+			return Math.max(now, halfOpenedAt + openMillis);
+		}
+		return 0L;
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	/**
+	 * @return 累计打开次数
+	 */
+	public synchronized long getOpened() {
+		return opened;
+	}
+
+	private void record(byte outcome) {
+		if (calls == outcomes.length) {
+			byte evicted = outcomes[next];
+			if (evicted == FAILURE) {
+				failures--;
+			} else if (evicted == SLOW) {
+				slows--;
+			}
+		} else {
+			calls++;
+		}
+		outcomes[next] = outcome;
+		next = (next + 1) % outcomes.length;
+		if (outcome == FAILURE) {
+			failures++;
+		} else if (outcome == SLOW) {
+			slows++;
+		}
+		if (calls >= minCalls
+				&& ((failureRate > 0 && failures >= failureRate * calls) || (slowRate > 0 && slows >= slowRate * calls))) {
+			open();
+		}
+	}
+
+	private void open() {
+		state = State.OPEN;
+		openUntil = System.currentTimeMillis() + openMillis;
+		opened++;
+	}
+
+	private void close() {
+		state = State.CLOSED;
+		next = 0;
+		calls = 0;
+		failures = 0;
+		slows = 0;
+	}
+}
@@ -3,6 +3,7 @@ import static java.lang.String.format;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
@@ -15,6 +16,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.Properties;
+import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -44,6 +46,12 @@ public class CommonUtil {
 	 private static final String Algorithm = "Blowfish"; //定义加密算法,可用 DES,DESede,Blowfish  
 	  
 	 public static DateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+	 /**
+	  * 本进程标识: pid@host 加启动时生成的随机串。容器内每次重启都是 1@host,
+	  * 仅用 pid@host 会与上次运行留下的认领批次重名
+	  */
+	 private static final String PROCESS_ID = processName() + "-" + UUID.randomUUID().toString().substring(24);
 		
 	 private CommonUtil() {
 	}
@@ -419,4 +427,17 @@ public class CommonUtil {
         }
     }
 
+    /**
+     * 进程实例标识,同一进程内不变,重启后不同
+     * @return pid@host-随机串,不超过 45 字符
+     */
+    public static String getProcessId() {
+    	return PROCESS_ID;
+    }
+
+    private static String processName() {
+    	String name = ManagementFactory.getRuntimeMXBean().getName();
+    	return name.length() > 32 ? name.substring(0, 32) : name;
+    }
+
 }
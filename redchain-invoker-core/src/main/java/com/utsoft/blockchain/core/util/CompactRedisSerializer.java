@@ -0,0 +1,607 @@
+package com.utsoft.blockchain.core.util;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import com.alibaba.fastjson.JSONObject;
+import com.utsoft.blockchain.api.pojo.BaseResponseModel;
+import com.utsoft.blockchain.api.pojo.TkcSubmitRspVo;
+import com.utsoft.blockchain.api.pojo.TkcTransactionBlockInfoVo;
+import com.utsoft.blockchain.api.pojo.TkcTransferModel;
+import com.utsoft.blockchain.api.pojo.TransactionBaseModel;
+import com.utsoft.blockchain.api.pojo.UserInfoRequstModel;
+/**
+ * redis 紧凑二进制序列化
+ * <p>
+ * 格式: 魔数(0xC7) + 版本 + 类型号 + 若干(字段号<<3|线型, 值) + 结束符 0。
+ * 整数用 zigzag varint,字符串为长度前缀 UTF-8;
+ * Map/JSONObject 写为 Map 类型号 + 条目数 + 逐个(类型标记, 值) 的键值,
+ * String/Long/Integer/BigDecimal/Date/Boolean 按类型标记紧凑写入,其它值类型及其它 Map 实现用 JDK 序列化;
+ * 与默认值相同的空 Map 不写入,null 写为空字节。
+ * 读取时跳过未知字段,新增字段只需分配新的字段号。
+ * 未登记的类型仍用 JDK 序列化写入;读取按首字节识别,两种格式都能读,
+ * 用于从 JDK 序列化平滑迁移(writeCompact=false 时只读不写新格式)
+ * @author hunterfox
+ * @date: 2017年10月12日
+ * @version 1.0.0
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+	static final int MAGIC = 0xC7;
+	static final int VERSION = 1;
+
+	static final int TYPE_TRANSACTION_BASE = 1;
+	static final int TYPE_TRANSFER = 2;
+	static final int TYPE_USER_INFO = 3;
+	static final int TYPE_BLOCK_INFO = 4;
+	static final int TYPE_RESPONSE = 5;
+	static final int TYPE_SUBMIT_RSP = 6;
+
+	private static final int WIRE_VARINT = 0;
+	private static final int WIRE_BYTES = 1;
+
+	static final int MAP_JDK = 0;
+	static final int MAP_HASH = 1;
+	static final int MAP_LINKED = 2;
+	static final int MAP_JSON = 3;
+
+	static final int VALUE_NULL = 0;
+	static final int VALUE_STRING = 1;
+	static final int VALUE_LONG = 2;
+	static final int VALUE_INTEGER = 3;
+	static final int VALUE_DECIMAL = 4;
+	static final int VALUE_DATE = 5;
+	static final int VALUE_BOOLEAN = 6;
+	static final int VALUE_JDK = 7;
+
+	private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+	private final boolean writeCompact;
+
+	/**
+	 * @param writeCompact false 时仍按 JDK 序列化写入,仅具备读取新格式的能力
+	 */
+	public CompactRedisSerializer(boolean writeCompact) {
+		this.writeCompact = writeCompact;
+	}
+
+	public CompactRedisSerializer() {
+		this(true);
+	}
+
+	@Override
+	public byte[] serialize(Object value) throws SerializationException {
+		if (value == null) {
+			return new byte[0];
+		}
+		if (writeCompact) {
+			Writer writer = new Writer();
+			if (write(writer, value)) {
+				return writer.toByteArray();
+			}
+		}
+		return jdkSerializer.serialize(value);
+	}
+
+	@Override
+	public Object deserialize(byte[] bytes) throws SerializationException {
+		if (bytes == null || bytes.length == 0) {
+			return null;
+		}
+		if ((bytes[0] & 0xFF) != MAGIC) {
+			return jdkSerializer.deserialize(bytes);
+		}
+		return read(new Reader(bytes, 0, bytes.length));
+	}
+
+	/**
+	 * @return false 表示类型未登记
+	 */
+	private boolean write(Writer writer, Object value) {
+		Class<?> type = value.getClass();
+		if (type == TkcTransferModel.class) {
+			writer.header(TYPE_TRANSFER);
+			TkcTransferModel model = (TkcTransferModel) value;
+			writeTransactionBase(writer, model);
+			writer.string(8, model.getFrom());
+		} else if (type == TransactionBaseModel.class) {
+			writer.header(TYPE_TRANSACTION_BASE);
+			writeTransactionBase(writer, (TransactionBaseModel) value);
+		} else if (type == UserInfoRequstModel.class) {
+			writer.header(TYPE_USER_INFO);
+			UserInfoRequstModel model = (UserInfoRequstModel) value;
+			writer.string(1, model.getUserName());
+			writer.string(2, model.getPassword());
+			writer.string(3, model.getCreated());
+		} else if (type == TkcTransactionBlockInfoVo.class) {
+			writer.header(TYPE_BLOCK_INFO);
+			TkcTransactionBlockInfoVo model = (TkcTransactionBlockInfoVo) value;
+			if (model.getBlockNumber() != null) {
+				writer.varint(1, model.getBlockNumber());
+			}
+			writer.string(2, model.getPreviousHash());
+			writer.string(3, model.getChainCurrentHash());
+			writer.varint(4, model.getBytes());
+			writer.varint(5, model.getHeight());
+			writer.string(6, model.getDatahash());
+			if (model.getTxValCodeNumber() != null) {
+				writer.varint(7, model.getTxValCodeNumber());
+			}
+			writeMap(writer, 9, model.getCommits(), JSONObject.class);
+		} else if (type == TkcSubmitRspVo.class) {
+			writer.header(TYPE_SUBMIT_RSP);
+			TkcSubmitRspVo model = (TkcSubmitRspVo) value;
+			writer.string(1, model.getTxId());
+			writer.varint(2, model.getStatus());
+			writeMap(writer, 4, model.getExternals(), HashMap.class);
+		} else if (type == BaseResponseModel.class) {
+			BaseResponseModel<?> model = (BaseResponseModel<?>) value;
+			Writer data = null;
+			if (model.getData() != null) {
+				data = new Writer();
+				if (!write(data, model.getData())) {
+					return false;
+				}
+			}
+			writer.header(TYPE_RESPONSE);
+			writer.varint(1, model.getCode());
+			writer.string(2, model.getMessage());
+			writer.varint(3, model.getTimestamp());
+			if (data != null) {
+				writer.bytes(4, data.buffer, 0, data.position);
+			}
+		} else {
+			return false;
+		}
+		writer.end();
+		return true;
+	}
+
+	private void writeTransactionBase(Writer writer, TransactionBaseModel model) {
+		writer.string(1, model.getPublicKey());
+		writer.string(2, model.getApplyCategory());
+		writer.string(3, model.getServiceCode());
+		writer.string(4, model.getTo());
+		writer.string(5, model.getSubmitJson());
+		writer.string(6, model.getCreated());
+		writeMap(writer, 9, model.getExternals(), HashMap.class);
+	}
+
+	/**
+	 * @param defaultType 模型字段默认值的类型,该类型的空 Map 读取时由默认值还原,不写入
+	 */
+	private void writeMap(Writer writer, int field, Map<String, Object> value, Class<?> defaultType) {
+		if (value != null && value.isEmpty() && value.getClass() == defaultType) {
+			return;
+		}
+		Writer map = new Writer();
+		if (value != null) {
+			Class<?> type = value.getClass();
+			int kind = type == HashMap.class ? MAP_HASH
+					: type == LinkedHashMap.class ? MAP_LINKED : type == JSONObject.class ? MAP_JSON : MAP_JDK;
+			map.rawVarint(kind);
+			if (kind == MAP_JDK) {
+				map.rawBytes(jdkSerializer.serialize(value));
+			} else {
+				map.rawVarint(value.size());
+				for (Map.Entry<String, Object> entry : value.entrySet()) {
+					writeValue(map, entry.getKey());
+					writeValue(map, entry.getValue());
+				}
+			}
+		}
+		writer.bytes(field, map.buffer, 0, map.position);
+	}
+
+	private void writeValue(Writer writer, Object value) {
+		if (value == null) {
+			writer.rawVarint(VALUE_NULL);
+			return;
+		}
+		Class<?> type = value.getClass();
+		if (type == String.class) {
+			writer.rawVarint(VALUE_STRING);
+			writer.rawBytes(((String) value).getBytes(StandardCharsets.UTF_8));
+		} else if (type == Long.class) {
+			writer.rawVarint(VALUE_LONG);
+			writer.rawLong((Long) value);
+		} else if (type == Integer.class) {
+			writer.rawVarint(VALUE_INTEGER);
+			writer.rawLong((Integer) value);
+		} else if (type == BigDecimal.class) {
+			BigDecimal decimal = (BigDecimal) value;
+			writer.rawVarint(VALUE_DECIMAL);
+			writer.rawLong(decimal.scale());
+			writer.rawBytes(decimal.unscaledValue().toByteArray());
+		} else if (type == Date.class) {
+			writer.rawVarint(VALUE_DATE);
+			writer.rawLong(((Date) value).getTime());
+		} else if (type == Boolean.class) {
+			writer.rawVarint(VALUE_BOOLEAN);
+			writer.rawVarint((Boolean) value ? 1 : 0);
+		} else {
+			writer.rawVarint(VALUE_JDK);
+			writer.rawBytes(jdkSerializer.serialize(value));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<String, Object> readMap(Reader reader) {
+		int length = reader.readVarint();
+		reader.check(length);
+		if (length == 0) {
+			return null;
+		}
+		Reader map = new Reader(reader.bytes, reader.position, reader.position + length);
+		reader.position += length;
+		int kind = map.readVarint();
+		if (kind == MAP_JDK) {
+			return (Map<String, Object>) jdkSerializer.deserialize(map.readBytes());
+		}
+		int size = map.readVarint();
+		Map<String, Object> value;
+		switch (kind) {
+		case MAP_HASH:
+			value = new HashMap<>();
+			break;
+		case MAP_LINKED:
+			value = new LinkedHashMap<>();
+			break;
+		case MAP_JSON:
+			value = new JSONObject();
+			break;
+		default:
+			throw new SerializationException("unknown compact map type:" + kind);
+		}
+		for (int i = 0; i < size; i++) {
+			value.put((String) readValue(map), readValue(map));
+		}
+		return value;
+	}
+
+	private Object readValue(Reader reader) {
+		int type = reader.readVarint();
+		switch (type) {
+		case VALUE_NULL:
+			return null;
+		case VALUE_STRING:
+			return reader.readString();
+		case VALUE_LONG:
+			return reader.readLong();
+		case VALUE_INTEGER:
+			return (int) reader.readLong();
+		case VALUE_DECIMAL:
+			int scale = (int) reader.readLong();
+			return new BigDecimal(new BigInteger(reader.readBytes()), scale);
+		case VALUE_DATE:
+			return new Date(reader.readLong());
+		case VALUE_BOOLEAN:
+			return reader.readVarint() != 0;
+		case VALUE_JDK:
+			return jdkSerializer.deserialize(reader.readBytes());
+		default:
+			throw new SerializationException("unknown compact map value type:" + type);
+		}
+	}
+
+	private Object read(Reader reader) {
+		if (reader.readByte() != MAGIC) {
+			throw new SerializationException("malformed compact redis value");
+		}
+		int version = reader.readVarint();
+		if (version > VERSION) {
+			throw new SerializationException("unsupported compact redis version:" + version);
+		}
+		int type = reader.readVarint();
+		switch (type) {
+		case TYPE_TRANSFER:
+			return readTransactionBase(reader, new TkcTransferModel(null, null, null));
+		case TYPE_TRANSACTION_BASE:
+			return readTransactionBase(reader, new TransactionBaseModel(null, null, null));
+		case TYPE_USER_INFO:
+			return readUserInfo(reader);
+		case TYPE_BLOCK_INFO:
+			return readBlockInfo(reader);
+		case TYPE_SUBMIT_RSP:
+			return readSubmitRsp(reader);
+		case TYPE_RESPONSE:
+			return readResponse(reader);
+		default:
+			throw new SerializationException("unknown compact redis type:" + type);
+		}
+	}
+
+	private TransactionBaseModel readTransactionBase(Reader reader, TransactionBaseModel model) {
+		int tag;
+		while ((tag = reader.readVarint()) != 0) {
+			switch (tag >>> 3) {
+			case 1:
+				model.setPublicKey(reader.readString());
+				break;
+			case 2:
+				model.setApplyCategory(reader.readString());
+				break;
+			case 3:
+				model.setServiceCode(reader.readString());
+				break;
+			case 4:
+				model.setTo(reader.readString());
+				break;
+			case 5:
+				model.setSubmitJson(reader.readString());
+				break;
+			case 6:
+				model.setCreated(reader.readString());
+				break;
+			case 8:
+				if (model instanceof TkcTransferModel) {
+					((TkcTransferModel) model).setFrom(reader.readString());
+				} else {
+					reader.skip(tag);
+				}
+				break;
+			case 9:
+				model.setExternals(readMap(reader));
+				break;
+			default:
+				reader.skip(tag);
+			}
+		}
+		return model;
+	}
+
+	private static UserInfoRequstModel readUserInfo(Reader reader) {
+		UserInfoRequstModel model = new UserInfoRequstModel();
+		int tag;
+		while ((tag = reader.readVarint()) != 0) {
+			switch (tag >>> 3) {
+			case 1:
+				model.setUserName(reader.readString());
+				break;
+			case 2:
+				model.setPassword(reader.readString());
+				break;
+			case 3:
+				model.setCreated(reader.readString());
+				break;
+			default:
+				reader.skip(tag);
+			}
+		}
+		return model;
+	}
+
+	private TkcTransactionBlockInfoVo readBlockInfo(Reader reader) {
+		TkcTransactionBlockInfoVo model = new TkcTransactionBlockInfoVo();
+		int tag;
+		while ((tag = reader.readVarint()) != 0) {
+			switch (tag >>> 3) {
+			case 1:
+				model.setBlockNumber(reader.readLong());
+				break;
+			case 2:
+				model.setPreviousHash(reader.readString());
+				break;
+			case 3:
+				model.setChainCurrentHash(reader.readString());
+				break;
+			case 4:
+				model.setBytes((int) reader.readLong());
+				break;
+			case 5:
+				model.setHeight(reader.readLong());
+				break;
+			case 6:
+				model.setDatahash(reader.readString());
+				break;
+			case 7:
+				model.setTxValCodeNumber((int) reader.readLong());
+				break;
+			case 9:
+				model.setCommits((JSONObject) readMap(reader));
+				break;
+			default:
+				reader.skip(tag);
+			}
+		}
+		return model;
+	}
+
+	private TkcSubmitRspVo readSubmitRsp(Reader reader) {
+		TkcSubmitRspVo model = new TkcSubmitRspVo();
+		int tag;
+		while ((tag = reader.readVarint()) != 0) {
+			switch (tag >>> 3) {
+			case 1:
+				model.setTxId(reader.readString());
+				break;
+			case 2:
+				model.setStatus((int) reader.readLong());
+				break;
+			case 4:
+				model.setExternals(readMap(reader));
+				break;
+			default:
+				reader.skip(tag);
+			}
+		}
+		return model;
+	}
+
+	private BaseResponseModel<Object> readResponse(Reader reader) {
+		BaseResponseModel<Object> model = BaseResponseModel.build();
+		int tag;
+		while ((tag = reader.readVarint()) != 0) {
+			switch (tag >>> 3) {
+			case 1:
+				model.setCode((int) reader.readLong());
+				break;
+			case 2:
+				model.setMessage(reader.readString());
+				break;
+			case 3:
+				model.setTimestamp(reader.readLong());
+				break;
+			case 4:
+				int length = reader.readVarint();
+				reader.check(length);
+				Reader data = new Reader(reader.bytes, reader.position, reader.position + length);
+				reader.position += length;
+				model.setData(read(data));
+				break;
+			default:
+				reader.skip(tag);
+			}
+		}
+		return model;
+	}
+
+	/**
+	 * 可扩容写缓冲
+	 */
+	static final class Writer {
+
+		private byte[] buffer = new byte[128];
+		private int position;
+
+		void header(int type) {
+			ensure(3);
+			buffer[position++] = (byte) MAGIC;
+			rawVarint(VERSION);
+			rawVarint(type);
+		}
+
+		void end() {
+			rawVarint(0);
+		}
+
+		void varint(int field, long value) {
+			rawVarint(field << 3 | WIRE_VARINT);
+			rawLong(value);
+		}
+
+		void string(int field, String value) {
+			if (value == null) {
+				return;
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			bytes(field, bytes, 0, bytes.length);
+		}
+
+		void bytes(int field, byte[] bytes, int offset, int length) {
+			rawVarint(field << 3 | WIRE_BYTES);
+			rawVarint(length);
+			ensure(length);
+			System.arraycopy(bytes, offset, buffer, position, length);
+			position += length;
+		}
+
+		void rawLong(long value) {
+			rawVarint((value << 1) ^ (value >> 63));
+		}
+
+		void rawBytes(byte[] bytes) {
+			rawVarint(bytes.length);
+			ensure(bytes.length);
+			System.arraycopy(bytes, 0, buffer, position, bytes.length);
+			position += bytes.length;
+		}
+
+		void rawVarint(long value) {
+			ensure(10);
+			while ((value & ~0x7FL) != 0) {
+				buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			buffer[position++] = (byte) value;
+		}
+
+		private void ensure(int length) {
+			if (position + length > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + length));
+			}
+		}
+
+		byte[] toByteArray() {
+			return Arrays.copyOf(buffer, position);
+		}
+	}
+
+	static final class Reader {
+
+		private final byte[] bytes;
+		private final int limit;
+		private int position;
+
+		Reader(byte[] bytes, int position, int limit) {
+			this.bytes = bytes;
+			this.position = position;
+			this.limit = limit;
+		}
+
+		int readByte() {
+			check(1);
+			return bytes[position++] & 0xFF;
+		}
+
+		int readVarint() {
+			return (int) readRawVarint();
+		}
+
+		long readLong() {
+			long value = readRawVarint();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		byte[] readBytes() {
+			int length = readVarint();
+			check(length);
+			byte[] value = Arrays.copyOfRange(bytes, position, position + length);
+			position += length;
+			return value;
+		}
+
+		String readString() {
+			int length = readVarint();
+			check(length);
+			String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+			position += length;
+			return value;
+		}
+
+		void skip(int tag) {
+			if ((tag & 7) == WIRE_VARINT) {
+				readRawVarint();
+			} else {
+				int length = readVarint();
+				check(length);
+				position += length;
+			}
+		}
+
+		private long readRawVarint() {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				check(1);
+				byte b = bytes[position++];
+				value |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new SerializationException("malformed varint");
+		}
+
+		private void check(int length) {
+			if (length < 0 || position + length > limit) {
+				throw new SerializationException("truncated compact redis value");
+			}
+		}
+	}
+}
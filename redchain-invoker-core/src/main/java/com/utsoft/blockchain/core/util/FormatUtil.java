@@ -1,5 +1,8 @@
 package com.utsoft.blockchain.core.util;
 import static java.lang.String.format;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 /**
  * 
  * @author hunterfox
@@ -8,6 +11,13 @@ import static java.lang.String.format;
  */
 public class FormatUtil {
 
+	private static final Map<String,String> KEY_ABBREVIATIONS = new HashMap<>();
+	static {
+		KEY_ABBREVIATIONS.put(LocalConstants.USER_TRANSACTION_ID,"g");
+		KEY_ABBREVIATIONS.put(LocalConstants.TKC_TRANSFER_MOVE,"t");
+		KEY_ABBREVIATIONS.put(LocalConstants.TKC_RECHAHRGE_MOVE,"r");
+		KEY_ABBREVIATIONS.put(LocalConstants.TKC_REPLAY_FILTER,"bf");
+	}
 	
 	/**
 	 * 
@@ -26,6 +36,9 @@ public class FormatUtil {
 	   * @return
 	   */
 	  public static String redis_cache_prefix(String prefix,String ... keys) {  
+		  if (isCompactKeyLayout()) {
+			  return compact_cache_prefix(prefix,null,keys);
+		  }
 		  StringBuilder sb = new StringBuilder ();
 		  sb.append(prefix).append("tkc-#$");
 		  if (keys!=null)
@@ -35,6 +48,40 @@ public class FormatUtil {
 		  return sb.toString();
 	  }
 	  
+	  /**
+	   * 紧凑 key: {hashTag}:类别缩写:key...
+	   * 同一地址的全部 key 以地址为 hash tag,集群下落在同一个 slot
+	   * @param hashTag
+	   * @param category 可为null
+	   * @param keys
+	   * @return
+	   */
+	  private static String compact_cache_prefix(String hashTag,String category,String ... keys) {
+		  StringBuilder sb = new StringBuilder ();
+		  sb.append('{').append(abbreviate(hashTag)).append('}');
+		  if (category!=null) {
+			  sb.append(':').append(abbreviate(category));
+		  }
+		  if (keys!=null)
+		    for (String key: keys) {
+			  sb.append(':').append(abbreviate(key));
+		    }
+		  return sb.toString();
+	  }
+	  
+	  private static String abbreviate(String key) {
+		  String abbreviation = KEY_ABBREVIATIONS.get(key);
+		  return abbreviation == null ? key : abbreviation;
+	  }
+	  
+	  /**
+	   * spring.redis.key-layout=compact 时启用紧凑 key
+	   * @return
+	   */
+	  public static boolean isCompactKeyLayout() {
+		  return "compact".equalsIgnoreCase(IGlobals.getProperty(LocalConstants.REDIS_KEY_LAYOUT, "legacy"));
+	  }
+	  
 	  public static String redisPrefix(String prefix,String ... key) {
 		 return  redis_cache_prefix(prefix,key);
 	  }
@@ -44,10 +91,16 @@ public class FormatUtil {
 		  }
 	  
 	  public static String redisTransferPrefix(String ... key) {
+		 if (isCompactKeyLayout()) {
+			 return compact_cache_prefix(key[0],LocalConstants.TKC_TRANSFER_MOVE,Arrays.copyOfRange(key,1,key.length));
+		 }
 		 return redis_cache_prefix(LocalConstants.TKC_TRANSFER_MOVE,key);
 	  }  
 	  
 	  public static String redisRechargePrefix(String ... key) {
+		 if (isCompactKeyLayout()) {
+			 return compact_cache_prefix(key[0],LocalConstants.TKC_RECHAHRGE_MOVE,Arrays.copyOfRange(key,1,key.length));
+		 }
 		 return redis_cache_prefix(LocalConstants.TKC_RECHAHRGE_MOVE,key);
 	}  
-}
+}
\ No newline at end of file
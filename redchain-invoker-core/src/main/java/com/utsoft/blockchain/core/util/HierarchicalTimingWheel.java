@@ -0,0 +1,233 @@
+package com.utsoft.blockchain.core.util;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+/**
+ * 分层时间轮
+ * <p>
+ * 第一层每格 tickMs,超出本层范围的任务放入上一层(每格为下层整圈),
+ * 任务随时钟推进逐层降级,最终在底层到期执行。
+ * 只有非空的格子进入 DelayQueue,工作线程不会空转。
+ * 到期任务在工作线程内执行,必须轻量且不能阻塞。
+ * @author hunterfox
+ * @date: 2017年10月9日
+ * @version 1.0.0
+ */
+public class HierarchicalTimingWheel {
+
+	private static final Logger logger = LoggerFactory.getLogger(HierarchicalTimingWheel.class);
+
+	private final DelayQueue<Bucket> delayQueue = new DelayQueue<>();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Level root;
+	private final long tickMs;
+	private final Thread worker;
+	private volatile boolean running = true;
+
+	/**
+	 * @param name 工作线程名称
+	 * @param tickMs 底层每格时长(毫秒)
+	 * @param wheelSize 每层格数
+	 */
+	public HierarchicalTimingWheel(String name, long tickMs, int wheelSize) {
+		if (tickMs <= 0 || wheelSize <= 0) {
+			throw new IllegalArgumentException("tickMs and wheelSize must be positive");
+		}
+		this.tickMs = tickMs;
+		this.root = new Level(tickMs, wheelSize, System.currentTimeMillis());
+		this.worker = new Thread(this::work, name);
+		this.worker.setDaemon(true);
+		this.worker.start();
+	}
+
+	/**
+	 * 延时执行任务
+	 * @param task
+	 * @param delay
+	 * @param unit
+	 * @return 可取消的句柄
+	 */
+	public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+		Timeout timeout = new Timeout(task, System.currentTimeMillis() + unit.toMillis(delay));
+		lock.lock();
+		try {
+			addOrRun(timeout);
+		} finally {
+			lock.unlock();
+		}
+		return timeout;
+	}
+
+	public void shutdown() {
+		running = false;
+		worker.interrupt();
+	}
+
+	private void addOrRun(Timeout timeout) {
+		if (!root.add(timeout) && !timeout.isCancelled()) {
+			try {
+				timeout.task.run();
+			} catch (Exception ex) {
+				logger.error("timing wheel task error:{}", timeout, ex);
+			}
+		}
+	}
+
+	private void work() {
+		while (running) {
+			try {
+				Bucket bucket = delayQueue.poll(tickMs, TimeUnit.MILLISECONDS);
+				if (bucket == null) {
+					continue;
+				}
+				lock.lock();
+				try {
+					while (bucket != null) {
+						root.advanceClock(bucket.getExpiration());
+						for (Timeout timeout : bucket.flush()) {
+							addOrRun(timeout);
+						}
+						bucket = delayQueue.poll();
+					}
+				} finally {
+					lock.unlock();
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * 时间轮中的一层
+	 */
+	private final class Level {
+
+		private final long tickMs;
+		private final int wheelSize;
+		private final long interval;
+		private final Bucket[] buckets;
+		private long currentTime;
+		private Level overflow;
+
+		Level(long tickMs, int wheelSize, long startMs) {
+			this.tickMs = tickMs;
+			this.wheelSize = wheelSize;
+			this.interval = tickMs * wheelSize;
+			this.currentTime = startMs - (startMs % tickMs);
+			this.buckets = new Bucket[wheelSize];
+			for (int i = 0; i < wheelSize; i++) {
+				buckets[i] = new Bucket();
+			}
+		}
+
+		/**
+		 * @return false 表示已经到期(或已取消),调用方直接执行
+		 */
+		boolean add(Timeout timeout) {
+			long expiration = timeout.deadline;
+			if (timeout.isCancelled() || expiration < currentTime + tickMs) {
+				return false;
+			}
+			if (expiration < currentTime + interval) {
+				long virtualId = expiration / tickMs;
+				Bucket bucket = buckets[(int) (virtualId % wheelSize)];
+				bucket.add(timeout);
+				if (bucket.setExpiration(virtualId * tickMs)) {
+					delayQueue.offer(bucket);
+				}
+				return true;
+			}
+			if (overflow == null) {
+				overflow = new Level(interval, wheelSize, currentTime);
+			}
+			return overflow.add(timeout);
+		}
+
+		void advanceClock(long timeMs) {
+			if (timeMs >= currentTime + tickMs) {
+				currentTime = timeMs - (timeMs % tickMs);
+				if (overflow != null) {
+					overflow.advanceClock(currentTime);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 时间格,由外层锁保护
+	 */
+	private static final class Bucket implements Delayed {
+
+		private final AtomicLong expiration = new AtomicLong(-1L);
+		private List<Timeout> timeouts = new ArrayList<>();
+
+		void add(Timeout timeout) {
+			timeouts.add(timeout);
+		}
+
+		boolean setExpiration(long expirationMs) {
+			return expiration.getAndSet(expirationMs) != expirationMs;
+		}
+
+		long getExpiration() {
+			return expiration.get();
+		}
+
+		List<Timeout> flush() {
+			List<Timeout> flushed = timeouts;
+			timeouts = new ArrayList<>();
+			expiration.set(-1L);
+			return flushed;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(Math.max(getExpiration() - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			return Long.compare(getExpiration(), ((Bucket) other).getExpiration());
+		}
+	}
+
+	/**
+	 * 任务句柄
+	 */
+	public static final class Timeout {
+
+		private final Runnable task;
+		private final long deadline;
+		private volatile boolean cancelled;
+
+		Timeout(Runnable task, long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		public void cancel() {
+			cancelled = true;
+		}
+
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		public long getDeadline() {
+			return deadline;
+		}
+
+		@Override
+		public String toString() {
+			return "Timeout [deadline=" + deadline + ", cancelled=" + cancelled + "]";
+		}
+	}
+}
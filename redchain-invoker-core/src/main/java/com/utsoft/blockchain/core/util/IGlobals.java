@@ -54,9 +54,9 @@ public class IGlobals {
      * @return the property value specified by name.
      */
     public static String getProperty(String name, String defaultValue) {
-        String value = getProperty(name);
+        Object value = IGlobals.getInstance().properties.get(name);
         if (value != null) {
-            return value;
+            return String.valueOf(value);
         }
         else {
             return defaultValue;
@@ -132,7 +132,7 @@ public class IGlobals {
      *      Otherwise <tt>false</tt> is returned.
      */
     public static boolean getBooleanProperty(String name, boolean defaultValue) {
-        String value = getProperty(name);
+        String value = getProperty(name, null);
         if (value != null) {
             return Boolean.valueOf(value);
         }
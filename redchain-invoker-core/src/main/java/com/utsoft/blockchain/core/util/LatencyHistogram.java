@@ -0,0 +1,123 @@
+package com.utsoft.blockchain.core.util;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * 耗时直方图
+ * <p>
+ * 固定的毫秒分桶(1,2,5 递增),记录无锁、无分配;
+ * 分位数取所在桶的上界,精度够用于定位慢端点
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+public class LatencyHistogram {
+
+	/**
+	 * 各桶上界(毫秒),最后一个桶收容超出部分
+	 */
+	private static final long[] BOUNDS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000 };
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalMillis = new LongAdder();
+
+	/**
+	 * @param nanos 耗时(纳秒)
+	 */
+	public void record(long nanos) {
+		long millis = TimeUnit.NANOSECONDS.toMillis(Math.max(0, nanos));
+		int index = 0;
+		while (index < BOUNDS.length && millis > BOUNDS[index]) {
+			index++;
+		}
+		buckets.incrementAndGet(index);
+		count.increment();
+		totalMillis.add(millis);
+	}
+
+	public Snapshot snapshot() {
+		long[] counts = new long[buckets.length()];
+		long total = 0;
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		return new Snapshot(counts, total, totalMillis.sum());
+	}
+
+	/**
+	 * 某一时刻的统计
+	 */
+	public static final class Snapshot {
+
+		private final long[] counts;
+		private final long count;
+		private final long totalMillis;
+
+		Snapshot(long[] counts, long count, long totalMillis) {
+			this.counts = counts;
+			this.count = count;
+			this.totalMillis = totalMillis;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getMeanMillis() {
+			return count == 0 ? 0 : totalMillis / count;
+		}
+
+		public long getP50Millis() {
+			return percentile(0.50);
+		}
+
+		public long getP90Millis() {
+			return percentile(0.90);
+		}
+
+		public long getP99Millis() {
+			return percentile(0.99);
+		}
+
+		/**
+		 * 各桶计数,key 为桶上界,"+Inf" 为溢出桶
+		 * @return
+		 */
+		public Map<String, Long> getBuckets() {
+			Map<String, Long> result = new LinkedHashMap<>();
+			for (int i = 0; i < counts.length; i++) {
+				result.put(i < BOUNDS.length ? "le" + BOUNDS[i] : "+Inf", counts[i]);
+			}
+			return result;
+		}
+
+		/**
+		 * @param quantile 0 ~ 1
+		 * @return 所在桶的上界(毫秒),落在溢出桶时为 -1
+		 */
+		public long percentile(double quantile) {
+			if (count == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(quantile * count);
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return i < BOUNDS.length ? BOUNDS[i] : -1;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public String toString() {
+			return "count=" + count + " mean=" + getMeanMillis() + "ms p50=" + getP50Millis() + "ms p90="
+					+ getP90Millis() + "ms p99=" + getP99Millis() + "ms";
+		}
+	}
+}
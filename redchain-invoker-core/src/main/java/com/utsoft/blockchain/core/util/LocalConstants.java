@@ -13,6 +13,202 @@ public class LocalConstants {
 	 public static final String DEPLOYWAITTIME = "fabric.deployWaitTime";
 	 public static final String PROPOSALWAITTIME = "fabric.proposalWaitTime";
 	 public static final String USER_TRANSACTION_ID = "user.transaction.id";
+	 /**
+	  * 交易牌照有效期(秒)
+	  */
+	 public static final long TRANSACTION_GRANT_TTL = 90L;
+	 /**
+	  * 交易提交去重及结果保存时长(秒)
+	  */
+	 public static final long SUBMIT_IDEMPOTENT_TTL = 120L;
+	 /**
+	  * 牌照锁定策略: redis(多节点共享) 或 local(单节点内存)
+	  */
+	 public static final String TRANSACTION_LOCK_STRATEGY = "transaction.lock.strategy";
+	 /**
+	  * 热点账户统计保留条数
+	  */
+	 public static final String TRANSACTION_CONTENTION_TOPK = "transaction.contention.topk";
+	 /**
+	  * 热点账户统计输出周期(秒)
+	  */
+	 public static final String TRANSACTION_CONTENTION_INTERVAL = "transaction.contention.interval";
+	 /**
+	  * 防重放过滤模式: off / local / shared
+	  */
+	 public static final String TRANSACTION_REPLAY_FILTER = "transaction.replay.filter";
+	 /**
+	  * 防重放过滤每分钟预计请求量
+	  */
+	 public static final String TRANSACTION_REPLAY_EXPECTED = "transaction.replay.expected";
+	 /**
+	  * 防重放过滤误判率
+	  */
+	 public static final String TRANSACTION_REPLAY_FPP = "transaction.replay.fpp";
+	 /**
+	  * shared 模式下位图同步周期(毫秒)
+	  */
+	 public static final String TRANSACTION_REPLAY_SYNC_INTERVAL = "transaction.replay.sync-interval";
+	 /**
+	  * 回调处理线程数
+	  */
+	 public static final String TRANSACTION_CALLBACK_WORKERS = "transaction.callback.workers";
+	 /**
+	  * 单次认领的回调记录上限
+	  */
+	 public static final String TRANSACTION_CALLBACK_BATCH = "transaction.callback.batch";
+	 /**
+	  * 认领租约时长(秒),节点宕机后租约到期由其它节点接管
+	  */
+	 public static final String TRANSACTION_CALLBACK_LEASE = "transaction.callback.lease";
+	 /**
+	  * 回调认领周期(毫秒)
+	  */
+	 public static final String TRANSACTION_CALLBACK_INTERVAL = "transaction.callback.interval";
+	 /**
+	  * 回调记录组提交: 攒够条数即写入
+	  */
+	 public static final String TRANSACTION_CALLBACK_FLUSH_ROWS = "transaction.callback.flush-rows";
+	 /**
+	  * 回调记录组提交: 首条入队后最长等待(毫秒)
+	  */
+	 public static final String TRANSACTION_CALLBACK_FLUSH_INTERVAL = "transaction.callback.flush-interval";
+	 /**
+	  * 待写入回调记录队列长度,满时调用线程直接写入
+	  */
+	 public static final String TRANSACTION_CALLBACK_QUEUE_SIZE = "transaction.callback.queue-size";
+	 /**
+	  * 回调 http: 单个回调地址的并发请求上限
+	  */
+	 public static final String TRANSACTION_CALLBACK_HTTP_CONCURRENCY = "transaction.callback.http.concurrency";
+	 /**
+	  * 回调 http: 单个回调地址并发已满时的排队上限,超出直接失败等待重试
+	  */
+	 public static final String TRANSACTION_CALLBACK_HTTP_QUEUE = "transaction.callback.http.queue";
+	 /**
+	  * 回调 http: 全部地址的并发请求上限
+	  */
+	 public static final String TRANSACTION_CALLBACK_HTTP_MAX_REQUESTS = "transaction.callback.http.max-requests";
+	 /**
+	  * 回调 http: 连接超时(毫秒)
+	  */
+	 public static final String TRANSACTION_CALLBACK_HTTP_CONNECT_TIMEOUT = "transaction.callback.http.connect-timeout";
+	 /**
+	  * 回调 http: 读写超时(毫秒)
+	  */
+	 public static final String TRANSACTION_CALLBACK_HTTP_READ_TIMEOUT = "transaction.callback.http.read-timeout";
+	 /**
+	  * 回调 http: 连接池保留的空闲连接数
+	  */
+	 public static final String TRANSACTION_CALLBACK_HTTP_MAX_IDLE = "transaction.callback.http.max-idle";
+	 /**
+	  * 回调 http: 空闲连接保活时长(秒)
+	  */
+	 public static final String TRANSACTION_CALLBACK_HTTP_KEEP_ALIVE = "transaction.callback.http.keep-alive";
+	 /**
+	  * 回调 http: 端点统计日志输出周期(秒)
+	  */
+	 public static final String TRANSACTION_CALLBACK_HTTP_REPORT = "transaction.callback.http.report";
+	 /**
+	  * 回调熔断: 统计最近调用次数
+	  */
+	 public static final String TRANSACTION_CALLBACK_BREAKER_WINDOW = "transaction.callback.breaker.window";
+	 /**
+	  * 回调熔断: 至少多少次调用后才判断
+	  */
+	 public static final String TRANSACTION_CALLBACK_BREAKER_MIN_CALLS = "transaction.callback.breaker.min-calls";
+	 /**
+	  * 回调熔断: 失败率阈值
+	  */
+	 public static final String TRANSACTION_CALLBACK_BREAKER_FAILURE_RATE = "transaction.callback.breaker.failure-rate";
+	 /**
+	  * 回调熔断: 慢调用率阈值
+	  */
+	 public static final String TRANSACTION_CALLBACK_BREAKER_SLOW_RATE = "transaction.callback.breaker.slow-rate";
+	 /**
+	  * 回调熔断: 慢调用耗时(毫秒)
+	  */
+	 public static final String TRANSACTION_CALLBACK_BREAKER_SLOW_CALL = "transaction.callback.breaker.slow-call";
+	 /**
+	  * 回调熔断: 打开时长(毫秒),到期后半开试探
+	  */
+	 public static final String TRANSACTION_CALLBACK_BREAKER_OPEN = "transaction.callback.breaker.open";
+	 /**
+	  * 回调熔断: 半开时试探请求数
+	  */
+	 public static final String TRANSACTION_CALLBACK_BREAKER_PROBES = "transaction.callback.breaker.probes";
+	 /**
+	  * 回调熔断: 推迟投递的记录在可放行时间后按该时长(毫秒)随机打散
+	  */
+	 public static final String TRANSACTION_CALLBACK_BREAKER_SPREAD = "transaction.callback.breaker.spread";
+	 /**
+	  * 回调重试: 退避基数(毫秒),第 n 次失败后延迟 base * 2^(n-1),取一半固定加一半随机
+	  */
+	 public static final String TRANSACTION_CALLBACK_RETRY_BASE = "transaction.callback.retry.base";
+	 /**
+	  * 回调重试: 单次延迟上限(毫秒)
+	  */
+	 public static final String TRANSACTION_CALLBACK_RETRY_MAX_DELAY = "transaction.callback.retry.max-delay";
+	 /**
+	  * 回调重试: 默认最多投递次数,超过后归档
+	  */
+	 public static final String TRANSACTION_CALLBACK_RETRY_ATTEMPTS = "transaction.callback.retry.attempts";
+	 /**
+	  * 回调重试: 按 applyCode 配置最多投递次数,key 为前缀 + applyCode
+	  */
+	 public static final String TRANSACTION_CALLBACK_RETRY_LIMITS = "transaction.callback.retry.limits.";
+	 /**
+	  * 回调重试: 本节点延迟队列容量,超出的记录到期后由认领循环处理
+	  */
+	 public static final String TRANSACTION_CALLBACK_RETRY_QUEUE_SIZE = "transaction.callback.retry.queue-size";
+	 /**
+	  * 批量回调: 单次 POST 最多合并条数
+	  */
+	 public static final String TRANSACTION_CALLBACK_MERGE_ITEMS = "transaction.callback.merge.items";
+	 /**
+	  * 批量回调: 同一回调地址收集时间窗(毫秒)
+	  */
+	 public static final String TRANSACTION_CALLBACK_MERGE_WINDOW = "transaction.callback.merge.window";
+	 /**
+	  * applyCode 路由表定时重载周期(秒)
+	  */
+	 public static final String TRANSACTION_ROUTING_REFRESH = "transaction.routing.refresh";
+	 /**
+	  * 不存在的 applyCode 缓存时长(毫秒),期间不再查询数据库
+	  */
+	 public static final String TRANSACTION_ROUTING_MISS_TTL = "transaction.routing.miss-ttl";
+	 /**
+	  * 回调记录归档周期(毫秒)
+	  */
+	 public static final String TRANSACTION_ARCHIVE_INTERVAL = "transaction.archive.interval";
+	 /**
+	  * 每批归档条数
+	  */
+	 public static final String TRANSACTION_ARCHIVE_CHUNK = "transaction.archive.chunk";
+	 /**
+	  * 归档批次超时(秒),超时未删除的记录重新认领
+	  */
+	 public static final String TRANSACTION_ARCHIVE_STALE = "transaction.archive.stale";
+	 /**
+	  * 历史表提前建立的月分区数
+	  */
+	 public static final String TRANSACTION_ARCHIVE_PARTITIONS_AHEAD = "transaction.archive.partitions-ahead";
+	 /**
+	  * 历史表保留月数,更早的分区整体删除;0 表示不删除
+	  */
+	 public static final String TRANSACTION_ARCHIVE_RETENTION = "transaction.archive.retention";
+	 /**
+	  * fabric 用户缓存容量
+	  */
+	 public static final String CA_MEMBER_CACHE_SIZE = "ca.member.cache-size";
+	 /**
+	  * fabric 用户缓存有效期(秒),redis 版本号之外的兜底
+	  */
+	 public static final String CA_MEMBER_CACHE_TTL = "ca.member.cache-ttl";
+	 /**
+	  * fabric 用户版本号 redis key 前缀,写入 key store 时更新,各节点据此失效缓存
+	  */
+	 public static final String CA_MEMBER_VERSION_PREFIX = "CAMEMBER:";
 	 public static final int FABRIC_MANAGER_INVALID = 0;
 	 public static final int FABRIC_MANAGER_VALID = 1;
 	 
@@ -30,6 +226,22 @@ public class LocalConstants {
 	  * 默认过期时间
 	  */
 	 public static final long REDIS_EXPIRE_TTL = 60*60;
+	 /**
+	  * redis key 格式: legacy / compact(带 hash tag,支持集群)
+	  */
+	 public static final String REDIS_KEY_LAYOUT = "spring.redis.key-layout";
+	 /**
+	  * redis 异步多路复用连接数,0 表示关闭
+	  */
+	 public static final String REDIS_ASYNC_CONNECTIONS = "spring.redis.async.connections";
+	 /**
+	  * redis 异步单个 pipeline 最多命令数
+	  */
+	 public static final String REDIS_ASYNC_MAX_BATCH = "spring.redis.async.max-batch";
+	 /**
+	  * redis 异步队列最多积压命令数,满时调用线程同步执行
+	  */
+	 public static final String REDIS_ASYNC_QUEUE_CAPACITY = "spring.redis.async.queue-capacity";
 	 public static final String TKC_PREFIX ="TKCBC";
 	 
 	 public static final  String TKC_TRANSFER_MOVE = "TKC_TRANSFER_MOVE";
@@ -37,4 +249,8 @@ public class LocalConstants {
 	  * 充值
 	  */
 	 public static final  String TKC_RECHAHRGE_MOVE = "TKC_RECHAHRGE_MOVE";
+	 /**
+	  * 防重放过滤共享位图
+	  */
+	 public static final  String TKC_REPLAY_FILTER = "TKC_REPLAY_FILTER";
 }
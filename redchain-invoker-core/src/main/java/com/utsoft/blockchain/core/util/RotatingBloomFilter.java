@@ -0,0 +1,180 @@
+package com.utsoft.blockchain.core.util;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+/**
+ * 按时间分代轮转的布隆过滤器
+ * <p>
+ * 时间按 spanMillis 切分为代(代号 = 当前时间 / spanMillis,各节点一致),
+ * 写入当前代,查询检查全部存活代;最旧的一代随时间整体丢弃,
+ * 因此一个 key 至少保留 (generations - 1) * spanMillis。
+ * mightContain 返回 false 表示一定没有写入过,返回 true 表示可能写入过。
+ * @author hunterfox
+ * @date: 2017年10月11日
+ * @version 1.0.0
+ */
+public class RotatingBloomFilter {
+
+	private final long spanMillis;
+	private final int numBits;
+	private final int numHashes;
+	private final Generation[] generations;
+
+	/**
+	 * @param expectedInsertions 每代预计写入量
+	 * @param fpp 期望误判率
+	 * @param spanMillis 每代时长
+	 * @param generations 存活代数,至少 2
+	 */
+	public RotatingBloomFilter(int expectedInsertions, double fpp, long spanMillis, int generations) {
+		if (expectedInsertions <= 0 || fpp <= 0 || fpp >= 1 || spanMillis <= 0 || generations < 2) {
+			throw new IllegalArgumentException("illegal bloom filter parameter");
+		}
+		long bits = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+		bits = (bits + 63) & ~63L;
+		this.numBits = (int) Math.min(bits, Integer.MAX_VALUE - 63);
+		this.numHashes = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+		this.spanMillis = spanMillis;
+		this.generations = new Generation[generations];
+	}
+
+	public boolean mightContain(String key) {
+		long now = currentGeneration();
+		long hash1 = hash(key);
+		long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+		for (Generation generation : generations) {
+			if (generation != null && generation.id > now - generations.length && generation.contains(hash1, hash2)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 写入当前代
+	 * @param key
+	 * @return 写入的位下标,供跨节点同步
+	 */
+	public int[] put(String key) {
+		long hash1 = hash(key);
+		long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+		int[] indexes = indexes(hash1, hash2);
+		Generation generation = generation(currentGeneration());
+		for (int index : indexes) {
+			generation.set(index);
+		}
+		return indexes;
+	}
+
+	/**
+	 * 合并其它节点的位图,格式与 redis bitmap 一致(第 0 位为首字节最高位)
+	 * @param generationId
+	 * @param bitmap
+	 */
+	public void merge(long generationId, byte[] bitmap) {
+		if (bitmap == null || generationId <= currentGeneration() - generations.length) {
+			return;
+		}
+		Generation generation = generation(generationId);
+		int length = Math.min(bitmap.length, numBits >>> 3);
+		for (int i = 0; i < length; i++) {
+			int value = bitmap[i] & 0xFF;
+			while (value != 0) {
+				int highest = Integer.numberOfLeadingZeros(value) - 24;
+				generation.set((i << 3) + highest);
+				value &= ~(0x80 >>> highest);
+			}
+		}
+	}
+
+	public long currentGeneration() {
+		return System.currentTimeMillis() / spanMillis;
+	}
+
+	public long getSpanMillis() {
+		return spanMillis;
+	}
+
+	public int getGenerations() {
+		return generations.length;
+	}
+
+	private Generation generation(long id) {
+		int slot = (int) (id % generations.length);
+		Generation generation = generations[slot];
+		if (generation != null && generation.id == id) {
+			return generation;
+		}
+		synchronized (generations) {
+			generation = generations[slot];
+			if (generation == null || generation.id < id) {
+				generation = new Generation(id, numBits);
+				generations[slot] = generation;
+			}
+			return generation;
+		}
+	}
+
+	private int[] indexes(long hash1, long hash2) {
+		int[] indexes = new int[numHashes];
+		long combined = hash1;
+		for (int i = 0; i < numHashes; i++) {
+			indexes[i] = (int) ((combined & Long.MAX_VALUE) % numBits);
+			combined += hash2;
+		}
+		return indexes;
+	}
+
+	private static long hash(String key) {
+		byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+		long hash = 0xCBF29CE484222325L;
+		for (byte b : bytes) {
+			hash ^= b;
+			hash *= 0x100000001B3L;
+		}
+		return mix(hash);
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private final class Generation {
+
+		private final long id;
+		private final AtomicLongArray words;
+
+		Generation(long id, int numBits) {
+			this.id = id;
+			this.words = new AtomicLongArray(numBits >>> 6);
+		}
+
+		/**
+		 * 按 redis bitmap 位序存放: 位 i 对应 words[i / 64] 的第 (63 - i % 64) 位
+		 */
+		void set(int index) {
+			int word = index >>> 6;
+			long mask = 1L << (63 - (index & 63));
+			long current;
+			do {
+				current = words.get(word);
+				if ((current & mask) != 0) {
+					return;
+				}
+			} while (!words.compareAndSet(word, current, current | mask));
+		}
+
+		boolean contains(long hash1, long hash2) {
+			long combined = hash1;
+			for (int i = 0; i < numHashes; i++) {
+				int index = (int) ((combined & Long.MAX_VALUE) % numBits);
+				if ((words.get(index >>> 6) & (1L << (63 - (index & 63)))) == 0) {
+					return false;
+				}
+				combined += hash2;
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package com.utsoft.blockchain.core.util;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+/**
+ * 流式 top-K 统计
+ * <p>
+ * count-min sketch 估算任意 key 的累计权重(只会高估),
+ * 小根堆保留当前估值最大的 k 个 key,内存占用与 key 总数无关。
+ * {@link #decay()} 将全部计数减半,使结果偏向近期热点。
+ * <p>
+ * 按 key 的 hash 分成若干条带,每条带有独立的计数器、小根堆和锁,
+ * 同一 key 总落在同一条带,{@link #add} 只与同条带的 key 竞争;
+ * {@link #top()} 合并各条带的前 k 个后取全局前 k 个。
+ * 计数器总数不变,按条带均分,每条带只容纳约 1/n 的 key,估算误差与不分条带相当
+ * @author hunterfox
+ * @date: 2017年10月10日
+ * @version 1.0.0
+ */
+public class TopKSketch {
+
+	private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F, 0x165667B1, 0xD3A2646C };
+
+	/**
+	 * 每条带每行至少的计数器个数
+	 */
+	private static final int MIN_STRIPE_WIDTH = 64;
+
+	private final int k;
+	private final int depth;
+	private final int mask;
+	private final int stripeMask;
+	private final Stripe[] stripes;
+
+	/**
+	 * @param k 保留条数
+	 * @param depth hash 行数,最大 6
+	 * @param width 每行计数器总数,按条带均分,向上取 2 的幂
+	 * @param stripes 条带数,向上取 2 的幂
+	 */
+	public TopKSketch(int k, int depth, int width, int stripes) {
+		if (k <= 0 || depth <= 0 || depth > SEEDS.length || width <= 0 || stripes <= 0) {
+			throw new IllegalArgumentException("illegal top-k sketch size");
+		}
+		int stripeCount = powerOfTwo(stripes);
+		int size = powerOfTwo(Math.max(width / stripeCount, MIN_STRIPE_WIDTH));
+		this.k = k;
+		this.depth = depth;
+		this.mask = size - 1;
+		this.stripeMask = stripeCount - 1;
+		this.stripes = new Stripe[stripeCount];
+		for (int i = 0; i < stripeCount; i++) {
+			this.stripes[i] = new Stripe(depth, size);
+		}
+	}
+
+	public TopKSketch(int k, int depth, int width) {
+		this(k, depth, width, 16);
+	}
+
+	public TopKSketch(int k) {
+		this(k, 4, 2048);
+	}
+
+	/**
+	 * 累加权重
+	 * @param key
+	 * @param weight
+	 * @return 累加后的估值
+	 */
+	public long add(String key, long weight) {
+		if (key == null || weight <= 0) {
+			return 0;
+		}
+		int hash = key.hashCode();
+		Stripe stripe = stripe(hash);
+		synchronized (stripe) {
+			long estimate = Long.MAX_VALUE;
+			for (int i = 0; i < depth; i++) {
+				long[] row = stripe.counters[i];
+				int index = index(hash, i);
+				row[index] += weight;
+				estimate = Math.min(estimate, row[index]);
+			}
+			Map<String, Item> items = stripe.items;
+			PriorityQueue<Item> heap = stripe.heap;
+			Item item = items.get(key);
+			if (item != null) {
+				heap.remove(item);
+				item.estimate = estimate;
+				heap.offer(item);
+			} else if (items.size() < k) {
+				item = new Item(key, estimate);
+				items.put(key, item);
+				heap.offer(item);
+			} else if (heap.peek().estimate < estimate) {
+				items.remove(heap.poll().key);
+				item = new Item(key, estimate);
+				items.put(key, item);
+				heap.offer(item);
+			}
+			return estimate;
+		}
+	}
+
+	/**
+	 * 估算 key 的累计权重
+	 * @param key
+	 * @return
+	 */
+	public long estimate(String key) {
+		int hash = key.hashCode();
+		Stripe stripe = stripe(hash);
+		synchronized (stripe) {
+			long estimate = Long.MAX_VALUE;
+			for (int i = 0; i < depth; i++) {
+				estimate = Math.min(estimate, stripe.counters[i][index(hash, i)]);
+			}
+			return estimate;
+		}
+	}
+
+	/**
+	 * 计数减半,估值为 0 的条目移出;逐条带进行,期间的 add 不受阻塞
+	 */
+	public void decay() {
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				for (long[] row : stripe.counters) {
+					for (int i = 0; i < row.length; i++) {
+						row[i] >>>= 1;
+					}
+				}
+				List<Item> retained = new ArrayList<>(stripe.heap);
+				stripe.heap.clear();
+				stripe.items.clear();
+				for (Item item : retained) {
+					item.estimate >>>= 1;
+					if (item.estimate > 0) {
+						stripe.items.put(item.key, item);
+						stripe.heap.offer(item);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 按估值从大到小返回当前 top-K 快照
+	 * @return
+	 */
+	public List<Item> top() {
+		List<Item> result = new ArrayList<>();
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				for (Item item : stripe.heap) {
+					result.add(new Item(item.key, item.estimate));
+				}
+			}
+		}
+		Collections.sort(result, (a, b) -> Long.compare(b.estimate, a.estimate));
+		return result.size() > k ? new ArrayList<>(result.subList(0, k)) : result;
+	}
+
+	private Stripe stripe(int hash) {
+		int h = hash * 0x9E3779B9;
+		h ^= h >>> 16;
+		return stripes[h & stripeMask];
+	}
+
+	private int index(int hash, int row) {
+		int h = (hash ^ SEEDS[row]) * 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h & mask;
+	}
+
+	private static int powerOfTwo(int value) {
+		int size = Integer.highestOneBit(value);
+		return size < value ? size << 1 : size;
+	}
+
+	/**
+	 * 一个条带: 计数器、当前前 k 个条目,由条带自身的锁保护
+	 */
+	private static final class Stripe {
+
+		final long[][] counters;
+		final Map<String, Item> items = new HashMap<>();
+		final PriorityQueue<Item> heap = new PriorityQueue<>((a, b) -> Long.compare(a.estimate, b.estimate));
+
+		Stripe(int depth, int width) {
+			this.counters = new long[depth][width];
+		}
+	}
+
+	public static final class Item {
+
+		private final String key;
+		private long estimate;
+
+		Item(String key, long estimate) {
+			this.key = key;
+			this.estimate = estimate;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public long getEstimate() {
+			return estimate;
+		}
+
+		@Override
+		public String toString() {
+			return key + "=" + estimate;
+		}
+	}
+}
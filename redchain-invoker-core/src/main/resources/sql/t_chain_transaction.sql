@@ -0,0 +1,52 @@
+-- 回调记录表变更,按顺序执行
+-- @author hunterfox
+
+-- 2017-10-17 多节点认领回调: 租约批次及到期时间
+alter table t_chain_transaction
+  add column lease_owner varchar(64) null comment '认领批次',
+  add column lease_expire datetime null comment '认领到期时间,null 表示未认领',
+  add index idx_lease_expire (lease_expire),
+  add index idx_lease_owner (lease_owner);
+
+-- 2017-10-17 回调重试退避: 下次投递时间,认领只读取已到期记录
+alter table t_chain_transaction
+  add column next_attempt_at datetime not null default current_timestamp comment '下次投递时间',
+  add index idx_next_attempt (next_attempt_at);
+
+-- 2017-10-17 批量归档: 回调结束时间及归档批次
+alter table t_chain_transaction
+  add column done_at datetime null comment '回调结束(成功/放弃)时间,非 null 表示待归档',
+  add column archive_batch varchar(64) null comment '归档批次',
+  add index idx_done_at (done_at),
+  add index idx_archive_batch (archive_batch);
+
+-- 2017-10-17 历史表按 gmt_create 月分区,过期数据按分区删除;
+-- 旧表改名保留,确认无误后自行清理。后续月份分区由 CallbackArchiver 自动从 pmax 拆分
+rename table t_chain_transaction_his to t_chain_transaction_his_old;
+create table t_chain_transaction_his (
+  txId varchar(64) not null,
+  toAccount varchar(64) not null,
+  submitId varchar(64) null,
+  apply_code varchar(64) null,
+  counter tinyint not null default 0,
+  block_status tinyint not null default 0,
+  result_status tinyint not null default 0,
+  tstatus int not null default 0,
+  forward tinyint not null default 0,
+  callback_time datetime null,
+  gmt_create datetime not null,
+  primary key (txId, toAccount, gmt_create)
+) engine=InnoDB default charset=utf8
+partition by range columns(gmt_create) (
+  partition p201710 values less than ('2017-11-01'),
+  partition p201711 values less than ('2017-12-01'),
+  partition p201712 values less than ('2018-01-01'),
+  partition pmax values less than (maxvalue)
+);
+insert ignore into t_chain_transaction_his(txId,toAccount,submitId,apply_code,counter,block_status,result_status,tstatus,forward,callback_time,gmt_create)
+  select txId,toAccount,submitId,apply_code,counter,block_status,result_status,tstatus,forward,callback_time,ifnull(gmt_create,now())
+  from t_chain_transaction_his_old;
+
+-- 2017-10-17 归档认领时间: 按认领时间而不是回调结束时间判断批次超时
+alter table t_chain_transaction
+  add column archive_claimed_at datetime null comment '归档认领时间';
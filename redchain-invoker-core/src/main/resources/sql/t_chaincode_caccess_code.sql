@@ -0,0 +1,6 @@
+-- 业务接入表变更,按顺序执行
+-- @author hunterfox
+
+-- 2017-10-17 批量回调: 按回调地址合并为 json 数组 POST,默认逐条
+alter table t_chaincode_caccess_code
+  add column callback_batch tinyint not null default 0 comment '回调格式: 0 逐条,1 批量';
@@ -0,0 +1,232 @@
+package com.utsoft.blockchain.core.rpc.provider;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Test;
+import com.utsoft.blockchain.api.pojo.BaseResponseModel;
+import com.utsoft.blockchain.api.pojo.SubmitRspResultDto;
+import com.utsoft.blockchain.api.pojo.TkcSubmitRspVo;
+import com.utsoft.blockchain.api.pojo.TkcTransferModel;
+import com.utsoft.blockchain.api.security.FamilySecCrypto;
+import com.utsoft.blockchain.api.util.Constants;
+import com.utsoft.blockchain.api.util.SignaturePlayload;
+import com.utsoft.blockchain.core.dao.model.TransactionResultPo;
+import com.utsoft.blockchain.core.rpc.locker.TransactionSequencingService;
+import com.utsoft.blockchain.core.service.ITransactionService;
+import com.utsoft.blockchain.core.service.ReplayFilterService;
+import com.utsoft.blockchain.core.service.SubmitIdempotentService;
+import com.utsoft.blockchain.core.service.deamon.ASynTransactionTask;
+import com.utsoft.blockchain.core.service.impl.RedisRepository;
+/**
+ * 交易提交幂等: 牌照释放后的超时重试取回原结果,无签名接口只对持牌照者返回
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+public class TkcTransactionExportServiceTest {
+
+	private static final String FROM = "1BoatSLRHtKNngkdXEeobR76b53LETtpyT";
+	private static final String TO = "1KFHE7w8BhaENAswwryaoccDb6qcT6DbYY";
+
+	private final FamilySecCrypto crypto = FamilySecCrypto.Factory.getCryptoSuite();
+	private final TkcTransactionExportService service = new TkcTransactionExportService();
+	private final Map<String, String> grants = new ConcurrentHashMap<>();
+	private final AtomicInteger submits = new AtomicInteger();
+	private final String publicKey;
+	private final String privateKey;
+
+	public TkcTransactionExportServiceTest() throws Exception {
+		if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+			Security.addProvider(new BouncyCastleProvider());
+		}
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("ECDSA", BouncyCastleProvider.PROVIDER_NAME);
+		generator.initialize(new ECGenParameterSpec("secp256r1"));
+		KeyPair keyPair = generator.generateKeyPair();
+		publicKey = crypto.convertPublicKey(keyPair.getPublic());
+		privateKey = crypto.convertPrivatelicKey(keyPair.getPrivate());
+
+		MapRedisRepository redisRepository = new MapRedisRepository();
+		ReplayFilterService replayFilterService = new ReplayFilterService() {
+			@Override
+			public boolean mightBeReplay(String key) {
+				return true;
+			}
+
+			@Override
+			public void record(String key) {
+			}
+		};
+		SubmitIdempotentService idempotentService = new SubmitIdempotentService();
+		inject(idempotentService, "redisRepository", redisRepository);
+		inject(idempotentService, "replayFilterService", replayFilterService);
+
+		inject(service, "redisRepository", redisRepository);
+		inject(service, "idempotentService", idempotentService);
+		inject(service, "sequencingService", new TransactionSequencingService() {
+			@Override
+			public boolean isTokenGrant(String address, String code) {
+				return code.equals(grants.get(address));
+			}
+
+			@Override
+			public void releaseLocker(String address) {
+				grants.remove(address);
+			}
+		});
+		inject(service, "aSynTransactionTask", new ASynTransactionTask() {
+			@Override
+			public void notify(TransactionResultPo transactionResult) {
+			}
+		});
+		inject(service, "transactionService", Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { ITransactionService.class }, (proxy, method, args) -> {
+					if (!"tranfer".equals(method.getName())) {
+						throw new UnsupportedOperationException(method.getName());
+					}
+					SubmitRspResultDto result = new SubmitRspResultDto();
+					result.setTxId("tx-" + submits.incrementAndGet());
+					result.setStatus(1);
+					return result;
+				}));
+	}
+
+	@Test
+	public void retryAfterReleaseGetsSameTxId() throws Exception {
+		TkcTransferModel model = transfer("1508112000001");
+		String sign = sign(model);
+		grants.put(FROM, model.getCreated());
+
+		BaseResponseModel<TkcSubmitRspVo> first = service.tranfer(model, sign);
+		assertEquals(Constants.OK, first.getCode());
+		assertNotNull(first.getData().getTxId());
+		assertFalse(grants.containsKey(FROM));
+
+		BaseResponseModel<TkcSubmitRspVo> retry = service.tranfer(transfer("1508112000001"), sign);
+		assertEquals(Constants.OK, retry.getCode());
+		assertEquals(first.getData().getTxId(), retry.getData().getTxId());
+		assertEquals(1, submits.get());
+	}
+
+	@Test
+	public void submitWithoutGrantIsRejected() throws Exception {
+		TkcTransferModel model = transfer("1508112000002");
+		BaseResponseModel<TkcSubmitRspVo> response = service.tranfer(model, sign(model));
+		assertEquals(Constants.ORDER_APPLY_LOCKER, response.getCode());
+		assertEquals(0, submits.get());
+	}
+
+	@Test
+	public void signatureIsCheckedBeforeStoredOutcome() throws Exception {
+		TkcTransferModel model = transfer("1508112000003");
+		String sign = sign(model);
+		grants.put(FROM, model.getCreated());
+		assertEquals(Constants.OK, service.tranfer(model, sign).getCode());
+
+		TkcTransferModel forged = transfer("1508112000003");
+		forged.setSubmitJson("{\"amount\":\"999.00\"}");
+		assertEquals(Constants.SINGATURE_ERROR, service.tranfer(forged, sign).getCode());
+	}
+
+	@Test
+	public void directRetryRequiresGrant() throws Exception {
+		TkcTransferModel model = transfer("1508112000004");
+		grants.put(FROM, model.getCreated());
+		BaseResponseModel<TkcSubmitRspVo> first = service.directTranfer(model);
+		assertEquals(Constants.OK, first.getCode());
+
+		assertEquals(Constants.ORDER_APPLY_LOCKER, service.directTranfer(transfer("1508112000004")).getCode());
+
+		TkcTransferModel signed = transfer("1508112000004");
+		BaseResponseModel<TkcSubmitRspVo> retry = service.tranfer(signed, sign(signed));
+		assertEquals(first.getData().getTxId(), retry.getData().getTxId());
+		assertEquals(1, submits.get());
+	}
+
+	@Test
+	public void verifiesOriginalBytesWhenNotPrehashed() throws Exception {
+		inject(service, "prehashed", false);
+		TkcTransferModel model = transfer("1508112000005");
+		String sign = sign(model);
+		grants.put(FROM, model.getCreated());
+		assertEquals(Constants.OK, service.tranfer(model, sign).getCode());
+
+		TkcTransferModel forged = transfer("1508112000006");
+		grants.put(FROM, forged.getCreated());
+		assertEquals(Constants.SINGATURE_ERROR, service.tranfer(forged, sign).getCode());
+	}
+
+	private TkcTransferModel transfer(String created) {
+		TkcTransferModel model = new TkcTransferModel(publicKey, "tkc", "transfer");
+		model.setFrom(FROM);
+		model.setTo(TO);
+		model.setSubmitJson("{\"amount\":\"100.00\"}");
+		model.setCreated(created);
+		return model;
+	}
+
+	private String sign(TkcTransferModel model) throws Exception {
+		SignaturePlayload playload = new SignaturePlayload(crypto);
+		playload.addPlayload(model.getApplyCategory());
+		playload.addPlayload(model.getCreated());
+		playload.addPlayload(model.getFrom());
+		playload.addPlayload(model.getPublicKey());
+		playload.addPlayload(model.getServiceCode());
+		playload.addPlayload(model.getSubmitJson());
+		playload.addPlayload(model.getTo());
+		return playload.doSignature(privateKey);
+	}
+
+	private static void inject(Object target, String name, Object value) throws Exception {
+		for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+			try {
+				Field field = type.getDeclaredField(name);
+				field.setAccessible(true);
+				field.set(target, value);
+				return;
+			} catch (NoSuchFieldException ex) {
+				// 继续查找父类
+			}
+		}
+		throw new NoSuchFieldException(name);
+	}
+
+	/**
+	 * 内存实现,只覆盖提交路径用到的操作
+	 */
+	private static class MapRedisRepository extends RedisRepository<String, Object> {
+
+		private final Map<String, Object> values = new ConcurrentHashMap<>();
+
+		@Override
+		public Object get(String key) {
+			return values.get(key);
+		}
+
+		@Override
+		public CompletableFuture<Object> getAsync(String key) {
+			return CompletableFuture.completedFuture(values.get(key));
+		}
+
+		@Override
+		public void set(String key, Object value, long timeout, TimeUnit unit) {
+			values.put(key, value);
+		}
+
+		@Override
+		public Boolean setIfAbsent(String key, Object value, long timeout, TimeUnit unit) {
+			return values.putIfAbsent(key, value) == null;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.utsoft.blockchain.core.service;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import com.utsoft.blockchain.core.dao.mapper.ChaincodeAccessCodeMapper;
+import com.utsoft.blockchain.core.dao.mapper.ChaincodeMapper;
+import com.utsoft.blockchain.core.dao.model.ChaincodeAccessCodePo;
+/**
+ * applyCode 路由: 不存在的业务代码在缓存时长内不再查库,getRoute 与 getChainCode 走同一未命中路径
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+public class ApplyCodeRoutingServiceTest {
+
+	private static final String APPLY_CODE = "tkc";
+
+	private final ApplyCodeRoutingService service = new ApplyCodeRoutingService();
+	private final List<ChaincodeAccessCodePo> accessCodes = new ArrayList<>();
+	private final AtomicInteger lookups = new AtomicInteger();
+
+	public ApplyCodeRoutingServiceTest() throws Exception {
+		inject(service, "chaincodeAccessCodeMapper", Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { ChaincodeAccessCodeMapper.class }, (proxy, method, args) -> {
+					if ("selectAll".equals(method.getName())) {
+						return Collections.emptyList();
+					}
+					if ("selectByExample".equals(method.getName())) {
+						lookups.incrementAndGet();
+						return new ArrayList<>(accessCodes);
+					}
+					throw new UnsupportedOperationException(method.getName());
+				}));
+		inject(service, "chaincodeMapper", Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { ChaincodeMapper.class }, (proxy, method, args) -> {
+					if ("selectByExample".equals(method.getName())) {
+						return Collections.emptyList();
+					}
+					throw new UnsupportedOperationException(method.getName());
+				}));
+	}
+
+	@Test
+	public void unknownApplyCodeQueriedOncePerTtl() throws Exception {
+		inject(service, "missTtlMillis", 60000L);
+		service.refresh();
+		for (int i = 0; i < 5; i++) {
+			assertNull(service.getRoute(APPLY_CODE));
+			assertNull(service.getChainCode(APPLY_CODE));
+		}
+		assertEquals(1, lookups.get());
+
+		// 重载后重新查询
+		service.refresh();
+		accessCodes.add(accessCode());
+		assertNotNull(service.getRoute(APPLY_CODE));
+		assertEquals(2, lookups.get());
+	}
+
+	@Test
+	public void expiredMissQueriesAgain() throws Exception {
+		inject(service, "missTtlMillis", 20L);
+		service.refresh();
+		assertNull(service.getChainCode(APPLY_CODE));
+		assertNull(service.getRoute(APPLY_CODE));
+		assertEquals(1, lookups.get());
+
+		accessCodes.add(accessCode());
+		Thread.sleep(40L);
+		assertNotNull(service.getRoute(APPLY_CODE));
+		assertEquals(2, lookups.get());
+		// 已加入路由表
+		service.getRoute(APPLY_CODE);
+		assertEquals(2, lookups.get());
+	}
+
+	@Test
+	public void zeroTtlDisablesMissCache() throws Exception {
+		inject(service, "missTtlMillis", 0L);
+		service.refresh();
+		assertNull(service.getRoute(APPLY_CODE));
+		assertNull(service.getChainCode(APPLY_CODE));
+		assertEquals(2, lookups.get());
+	}
+
+	private static ChaincodeAccessCodePo accessCode() {
+		ChaincodeAccessCodePo po = new ChaincodeAccessCodePo();
+		po.setApplyCode(APPLY_CODE);
+		po.setStatus(1);
+		po.setChainId(1);
+		return po;
+	}
+
+	private static void inject(Object target, String name, Object value) throws Exception {
+		Field field = target.getClass().getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(target, value);
+	}
+}
@@ -0,0 +1,106 @@
+package com.utsoft.blockchain.core.service.deamon;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Test;
+import com.utsoft.blockchain.core.dao.model.TransactionResultPo;
+import com.utsoft.blockchain.core.util.IGlobals;
+import com.utsoft.blockchain.core.util.LocalConstants;
+/**
+ * 回调重试退避: 延迟落在 [delay/2, delay],移位溢出时钳位到最大延迟,投递次数可按 applyCode 配置
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+public class CallbackRetryPolicyTest {
+
+	private static final String APPLY_CODE = "tkc";
+
+	private final Map<String, Object> properties = IGlobals.getInstance().getProperties();
+
+	@After
+	public void clear() {
+		properties.remove(LocalConstants.TRANSACTION_CALLBACK_RETRY_BASE);
+		properties.remove(LocalConstants.TRANSACTION_CALLBACK_RETRY_MAX_DELAY);
+		properties.remove(LocalConstants.TRANSACTION_CALLBACK_RETRY_ATTEMPTS);
+		properties.remove(LocalConstants.TRANSACTION_CALLBACK_RETRY_LIMITS + APPLY_CODE);
+	}
+
+	@Test
+	public void delayDoublesWithJitter() {
+		CallbackRetryPolicy policy = policy(1000L, 600000L);
+		for (int attempt = 1; attempt <= 10; attempt++) {
+			assertDelay(1000L << (attempt - 1), policy, attempt);
+		}
+		// 1000 * 2^10 超过最大延迟
+		assertDelay(600000L, policy, 11);
+	}
+
+	@Test
+	public void attemptBelowOneCountsAsFirst() {
+		CallbackRetryPolicy policy = policy(1000L, 600000L);
+		assertDelay(1000L, policy, 0);
+		assertDelay(1000L, policy, -5);
+		assertDelay(1000L, policy, Integer.MIN_VALUE);
+	}
+
+	@Test
+	public void shiftOverflowClampsToMaxDelay() {
+		CallbackRetryPolicy policy = policy(1000L, 600000L);
+		for (int attempt : new int[] { 40, 63, 64, 65, 127, Integer.MAX_VALUE }) {
+			assertDelay(600000L, policy, attempt);
+		}
+
+		// 最大延迟不限制时,移位溢出(包括移入符号位)同样钳位,不出现负数
+		policy = policy(3L, Long.MAX_VALUE);
+		assertDelay(3L << 61, policy, 62);
+		for (int attempt : new int[] { 63, 64, Integer.MAX_VALUE }) {
+			assertDelay(Long.MAX_VALUE, policy, attempt);
+		}
+		policy = policy(1L, Long.MAX_VALUE);
+		assertDelay(1L << 62, policy, 63);
+	}
+
+	@Test
+	public void attemptsPerApplyCode() {
+		properties.put(LocalConstants.TRANSACTION_CALLBACK_RETRY_ATTEMPTS, "3");
+		properties.put(LocalConstants.TRANSACTION_CALLBACK_RETRY_LIMITS + APPLY_CODE, "5");
+		CallbackRetryPolicy policy = new CallbackRetryPolicy();
+		policy.init();
+		assertEquals(5, policy.maxAttempts(APPLY_CODE));
+		assertEquals(3, policy.maxAttempts("other"));
+		assertEquals(3, policy.maxAttempts(null));
+
+		assertFalse(policy.exhausted(result(APPLY_CODE, 4)));
+		assertTrue(policy.exhausted(result(APPLY_CODE, 5)));
+		assertTrue(policy.exhausted(result("other", 3)));
+	}
+
+	private CallbackRetryPolicy policy(long baseMillis, long maxDelayMillis) {
+		properties.put(LocalConstants.TRANSACTION_CALLBACK_RETRY_BASE, baseMillis);
+		properties.put(LocalConstants.TRANSACTION_CALLBACK_RETRY_MAX_DELAY, maxDelayMillis);
+		CallbackRetryPolicy policy = new CallbackRetryPolicy();
+		policy.init();
+		return policy;
+	}
+
+	private static TransactionResultPo result(String applyCode, int counter) {
+		TransactionResultPo po = new TransactionResultPo();
+		po.setApplyCode(applyCode);
+		po.setCounter((byte) counter);
+		return po;
+	}
+
+	/**
+	 * 多次取样,抖动后的延迟都应在 [delay/2, delay]
+	 */
+	private static void assertDelay(long delay, CallbackRetryPolicy policy, int attempt) {
+		for (int i = 0; i < 100; i++) {
+			long actual = policy.delayMillis(attempt);
+			String message = "attempt " + attempt + ": " + actual + " not in [" + delay / 2 + ", " + delay + "]";
+			assertTrue(message, actual >= delay / 2 && actual <= delay);
+		}
+	}
+}
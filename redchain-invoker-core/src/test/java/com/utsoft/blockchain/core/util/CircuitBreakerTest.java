@@ -0,0 +1,164 @@
+package com.utsoft.blockchain.core.util;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import com.utsoft.blockchain.core.util.CircuitBreaker.State;
+/**
+ * 熔断器状态机: 按失败率、慢调用率打开,半开试探名额、release 归还及 rejectUntil 估计
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+public class CircuitBreakerTest {
+
+	private static final long FAST = 1000000L;
+	private static final long SLOW = 500 * 1000000L;
+
+	@Test
+	public void opensOnFailureRateAfterMinCalls() {
+		CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, 0, 100, 60000, 1);
+		breaker.onFailure(FAST);
+		breaker.onFailure(FAST);
+		breaker.onFailure(FAST);
+		assertEquals(State.CLOSED, breaker.getState());
+		assertTrue(breaker.tryAcquire());
+
+		breaker.onSuccess(FAST);
+		assertEquals(State.OPEN, breaker.getState());
+		assertEquals(1L, breaker.getOpened());
+		assertFalse(breaker.tryAcquire());
+	}
+
+	@Test
+	public void opensOnSlowRate() {
+		CircuitBreaker breaker = new CircuitBreaker(4, 4, 0, 0.75, 100, 60000, 1);
+		// 只按慢调用率熔断,失败不计入
+		for (int i = 0; i < 4; i++) {
+			breaker.onFailure(FAST);
+		}
+		breaker.onSuccess(SLOW);
+		breaker.onSuccess(SLOW);
+		assertEquals(State.CLOSED, breaker.getState());
+		breaker.onSuccess(SLOW);
+		assertEquals(State.OPEN, breaker.getState());
+	}
+
+	@Test
+	public void oldOutcomesLeaveTheWindow() {
+		CircuitBreaker breaker = new CircuitBreaker(4, 4, 0.5, 0, 100, 60000, 1);
+		breaker.onFailure(FAST);
+		for (int i = 0; i < 4; i++) {
+			breaker.onSuccess(FAST);
+		}
+		// 第一个失败已移出窗口,再失败一次仍为 1/4
+		breaker.onFailure(FAST);
+		assertEquals(State.CLOSED, breaker.getState());
+		breaker.onFailure(FAST);
+		assertEquals(State.OPEN, breaker.getState());
+	}
+
+	@Test
+	public void rejectUntilWhileOpen() {
+		CircuitBreaker breaker = new CircuitBreaker(2, 1, 0.5, 0, 100, 60000, 1);
+		assertEquals(0L, breaker.rejectUntil());
+		long before = System.currentTimeMillis();
+		breaker.onFailure(FAST);
+		long after = System.currentTimeMillis();
+		long until = breaker.rejectUntil();
+		assertTrue(until >= before + 60000 && until <= after + 60000);
+		assertFalse(breaker.tryAcquire());
+		assertEquals(until, breaker.rejectUntil());
+	}
+
+	@Test
+	public void halfOpenLimitsProbesAndClosesAfterSuccesses() {
+		CircuitBreaker breaker = openedBreaker(2);
+		assertTrue(breaker.tryAcquire());
+		assertEquals(State.HALF_OPEN, breaker.getState());
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire());
+		assertTrue(breaker.rejectUntil() >= System.currentTimeMillis() - 1);
+
+		breaker.onSuccess(FAST);
+		// 成功的试探仍占名额,直到全部成功
+		assertFalse(breaker.tryAcquire());
+		breaker.onSuccess(FAST);
+		assertEquals(State.CLOSED, breaker.getState());
+		assertEquals(0L, breaker.rejectUntil());
+
+		// 关闭时统计已清空,单次失败不足 minCalls
+		breaker.onFailure(FAST);
+		assertEquals(State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	public void releaseReturnsProbeSlot() {
+		CircuitBreaker breaker = openedBreaker(1);
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire());
+		breaker.release();
+		assertEquals(0L, breaker.rejectUntil());
+		assertTrue(breaker.tryAcquire());
+		// 多余的 release 不会让名额变为负数
+		breaker.release();
+		breaker.release();
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire());
+	}
+
+	@Test
+	public void releaseWhileClosedIsIgnored() {
+		CircuitBreaker breaker = new CircuitBreaker(2, 2, 0.5, 0, 100, 60000, 1);
+		assertTrue(breaker.tryAcquire());
+		breaker.release();
+		assertEquals(State.CLOSED, breaker.getState());
+		assertEquals(0L, breaker.rejectUntil());
+	}
+
+	@Test
+	public void probeFailureOrSlowReopens() {
+		CircuitBreaker breaker = openedBreaker(2);
+		assertTrue(breaker.tryAcquire());
+		breaker.onFailure(FAST);
+		assertEquals(State.OPEN, breaker.getState());
+		assertEquals(2L, breaker.getOpened());
+
+		assertTrue(breaker.tryAcquire());
+		assertEquals(State.HALF_OPEN, breaker.getState());
+		breaker.onSuccess(SLOW);
+		assertEquals(State.OPEN, breaker.getState());
+		assertEquals(3L, breaker.getOpened());
+
+		// 重新半开时试探计数归零
+		assertTrue(breaker.tryAcquire());
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire());
+	}
+
+	@Test
+	public void rejectsIllegalArguments() {
+		try {
+			new CircuitBreaker(0, 1, 0.5, 0, 100, 1000, 1);
+			fail("accepted empty window");
+		} catch (IllegalArgumentException expected) {
+		}
+		try {
+			new CircuitBreaker(10, 1, 0.5, 0, 100, 1000, 0);
+			fail("accepted zero probes");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	/**
+	 * 打开时长为 0,下一次申请即进入半开
+	 */
+	private static CircuitBreaker openedBreaker(int probes) {
+		CircuitBreaker breaker = new CircuitBreaker(4, 2, 0.5, 0, 100, 0, probes);
+		breaker.onFailure(FAST);
+		breaker.onFailure(FAST);
+		assertEquals(State.OPEN, breaker.getState());
+		return breaker;
+	}
+}
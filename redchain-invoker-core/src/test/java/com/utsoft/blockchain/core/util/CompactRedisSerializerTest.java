@@ -0,0 +1,272 @@
+package com.utsoft.blockchain.core.util;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Test;
+import com.alibaba.fastjson.JSONObject;
+import com.utsoft.blockchain.api.pojo.BaseResponseModel;
+import com.utsoft.blockchain.api.pojo.TkcSubmitRspVo;
+import com.utsoft.blockchain.api.pojo.TkcTransactionBlockInfoVo;
+import com.utsoft.blockchain.api.pojo.TkcTransferModel;
+import com.utsoft.blockchain.api.pojo.TransactionBaseModel;
+import com.utsoft.blockchain.api.pojo.UserInfoRequstModel;
+/**
+ * 紧凑序列化往返: 每个字段、Map 值类型标记及 JDK 回退、JDK 格式兼容
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+public class CompactRedisSerializerTest {
+
+	private final CompactRedisSerializer serializer = new CompactRedisSerializer();
+
+	@Test
+	public void transferKeepsEveryField() {
+		TkcTransferModel model = new TkcTransferModel("publicKey", "tkc", "transfer");
+		model.setTo("to");
+		model.setFrom("from");
+		model.setSubmitJson("{\"amount\":\"100.00\",\"remark\":\"转账\"}");
+		model.setCreated("1508112000");
+		model.setExternals(externals());
+
+		TkcTransferModel copy = (TkcTransferModel) roundTrip(model);
+		assertEquals("publicKey", copy.getPublicKey());
+		assertEquals("tkc", copy.getApplyCategory());
+		assertEquals("transfer", copy.getServiceCode());
+		assertEquals("to", copy.getTo());
+		assertEquals("from", copy.getFrom());
+		assertEquals(model.getSubmitJson(), copy.getSubmitJson());
+		assertEquals("1508112000", copy.getCreated());
+		assertExternals(copy.getExternals());
+	}
+
+	@Test
+	public void transactionBaseKeepsEveryField() {
+		TransactionBaseModel model = new TransactionBaseModel("publicKey", "tkc", "recharge");
+		model.setTo("to");
+		model.setSubmitJson("{}");
+		model.setCreated("1508112000");
+		model.setExternals(externals());
+
+		TransactionBaseModel copy = (TransactionBaseModel) roundTrip(model);
+		assertSame(TransactionBaseModel.class, copy.getClass());
+		assertEquals("publicKey", copy.getPublicKey());
+		assertEquals("tkc", copy.getApplyCategory());
+		assertEquals("recharge", copy.getServiceCode());
+		assertEquals("to", copy.getTo());
+		assertEquals("{}", copy.getSubmitJson());
+		assertEquals("1508112000", copy.getCreated());
+		assertExternals(copy.getExternals());
+	}
+
+	@Test
+	public void externalsKeepNullAndEmpty() {
+		TransactionBaseModel empty = new TransactionBaseModel("publicKey", "tkc", "recharge");
+		Map<String, Object> copy = ((TransactionBaseModel) roundTrip(empty)).getExternals();
+		assertTrue(copy.isEmpty());
+		assertSame(HashMap.class, copy.getClass());
+
+		TransactionBaseModel nullExternals = new TransactionBaseModel("publicKey", "tkc", "recharge");
+		nullExternals.setExternals(null);
+		assertNull(((TransactionBaseModel) roundTrip(nullExternals)).getExternals());
+
+		TransactionBaseModel ordered = new TransactionBaseModel("publicKey", "tkc", "recharge");
+		ordered.setExternals(new LinkedHashMap<>());
+		assertSame(LinkedHashMap.class, ((TransactionBaseModel) roundTrip(ordered)).getExternals().getClass());
+	}
+
+	@Test
+	public void userInfoKeepsEveryField() {
+		UserInfoRequstModel model = new UserInfoRequstModel();
+		model.setUserName("user");
+		model.setPassword("password");
+		model.setCreated("1508112000");
+
+		UserInfoRequstModel copy = (UserInfoRequstModel) roundTrip(model);
+		assertEquals("user", copy.getUserName());
+		assertEquals("password", copy.getPassword());
+		assertEquals("1508112000", copy.getCreated());
+	}
+
+	@Test
+	public void blockInfoKeepsEveryField() {
+		TkcTransactionBlockInfoVo model = new TkcTransactionBlockInfoVo();
+		model.setBlockNumber(Long.MAX_VALUE);
+		model.setPreviousHash("previous");
+		model.setChainCurrentHash("current");
+		model.setBytes(-1);
+		model.setHeight(1L << 40);
+		model.setDatahash("data");
+		model.setTxValCodeNumber(254);
+		JSONObject commits = new JSONObject();
+		commits.put("txCount", 3L);
+		commits.put("amount", new BigDecimal("0.10"));
+		model.setCommits(commits);
+
+		TkcTransactionBlockInfoVo copy = (TkcTransactionBlockInfoVo) roundTrip(model);
+		assertEquals(Long.valueOf(Long.MAX_VALUE), copy.getBlockNumber());
+		assertEquals("previous", copy.getPreviousHash());
+		assertEquals("current", copy.getChainCurrentHash());
+		assertEquals(-1, copy.getBytes());
+		assertEquals(1L << 40, copy.getHeight());
+		assertEquals("data", copy.getDatahash());
+		assertEquals(Integer.valueOf(254), copy.getTxValCodeNumber());
+		assertEquals(Long.valueOf(3L), copy.getCommits().get("txCount"));
+		assertEquals(new BigDecimal("0.10"), copy.getCommits().get("amount"));
+	}
+
+	@Test
+	public void blockInfoKeepsMissingNumbers() {
+		TkcTransactionBlockInfoVo copy = (TkcTransactionBlockInfoVo) roundTrip(new TkcTransactionBlockInfoVo());
+		assertNull(copy.getBlockNumber());
+		assertNull(copy.getTxValCodeNumber());
+		assertTrue(copy.getCommits().isEmpty());
+	}
+
+	@Test
+	public void submitRspKeepsEveryField() {
+		TkcSubmitRspVo model = new TkcSubmitRspVo();
+		model.setTxId("txId");
+		model.setStatus(-1);
+		model.setExternals(externals());
+
+		TkcSubmitRspVo copy = (TkcSubmitRspVo) roundTrip(model);
+		assertEquals("txId", copy.getTxId());
+		assertEquals(-1, copy.getStatus());
+		assertExternals(copy.getExternals());
+	}
+
+	@Test
+	public void responseKeepsEveryFieldAndData() {
+		TkcSubmitRspVo data = new TkcSubmitRspVo();
+		data.setTxId("txId");
+		data.setStatus(1);
+		BaseResponseModel<TkcSubmitRspVo> model = BaseResponseModel.build(data);
+		model.setCode(-200);
+		model.setMessage("消息");
+		model.setTimestamp(1508112000000L);
+
+		byte[] bytes = serializer.serialize(model);
+		assertEquals(CompactRedisSerializer.MAGIC, bytes[0] & 0xFF);
+		BaseResponseModel<?> copy = (BaseResponseModel<?>) serializer.deserialize(bytes);
+		assertEquals(-200, copy.getCode());
+		assertEquals("消息", copy.getMessage());
+		assertEquals(1508112000000L, copy.getTimestamp());
+		assertEquals("txId", ((TkcSubmitRspVo) copy.getData()).getTxId());
+		assertEquals(1, ((TkcSubmitRspVo) copy.getData()).getStatus());
+	}
+
+	@Test
+	public void unregisteredTypeFallsBackToJdk() {
+		HashMap<String, Object> value = new HashMap<>();
+		value.put("amount", new BigDecimal("1.5"));
+		byte[] bytes = serializer.serialize(value);
+		assertNotEquals(CompactRedisSerializer.MAGIC, bytes[0] & 0xFF);
+		assertEquals(value, serializer.deserialize(bytes));
+
+		BaseResponseModel<Object> response = BaseResponseModel.build((Object) value);
+		bytes = serializer.serialize(response);
+		assertNotEquals(CompactRedisSerializer.MAGIC, bytes[0] & 0xFF);
+		assertEquals(value, ((BaseResponseModel<?>) serializer.deserialize(bytes)).getData());
+	}
+
+	@Test
+	public void readsJdkWrittenValues() {
+		TkcSubmitRspVo model = new TkcSubmitRspVo();
+		model.setTxId("txId");
+		model.setExternals(externals());
+		byte[] bytes = new CompactRedisSerializer(false).serialize(model);
+		assertNotEquals(CompactRedisSerializer.MAGIC, bytes[0] & 0xFF);
+
+		TkcSubmitRspVo copy = (TkcSubmitRspVo) serializer.deserialize(bytes);
+		assertEquals("txId", copy.getTxId());
+		assertExternals(copy.getExternals());
+	}
+
+	@Test
+	public void knownMapValuesSkipJdkSerialization() {
+		Map<String, Object> externals = new LinkedHashMap<>();
+		externals.put("orderId", "A1");
+		externals.put("seq", -7L);
+		externals.put("count", Integer.MIN_VALUE);
+		externals.put("amount", new BigDecimal("-1234567890123456789.0001"));
+		externals.put("created", new Date(1508112000000L));
+		externals.put("paid", Boolean.TRUE);
+		externals.put("remark", null);
+		TkcSubmitRspVo model = new TkcSubmitRspVo();
+		model.setExternals(externals);
+
+		byte[] bytes = serializer.serialize(model);
+		for (int i = 0; i + 1 < bytes.length; i++) {
+			// JDK 序列化流头 0xACED
+			assertTrue((bytes[i] & 0xFF) != 0xAC || (bytes[i + 1] & 0xFF) != 0xED);
+		}
+		Map<String, Object> copy = ((TkcSubmitRspVo) serializer.deserialize(bytes)).getExternals();
+		assertSame(LinkedHashMap.class, copy.getClass());
+		assertEquals(externals, copy);
+		assertArrayEquals(externals.keySet().toArray(), copy.keySet().toArray());
+		assertSame(Integer.class, copy.get("count").getClass());
+		assertSame(Boolean.class, copy.get("paid").getClass());
+	}
+
+	@Test
+	public void unknownMapTypeFallsBackToJdk() {
+		TransactionBaseModel model = new TransactionBaseModel("publicKey", "tkc", "recharge");
+		TreeMap<String, Object> externals = new TreeMap<>();
+		externals.put("orderId", "A1");
+		externals.put("seq", 7L);
+		model.setExternals(externals);
+
+		Map<String, Object> copy = ((TransactionBaseModel) roundTrip(model)).getExternals();
+		assertSame(TreeMap.class, copy.getClass());
+		assertEquals(externals, copy);
+	}
+
+	@Test
+	public void nullAndEmpty() {
+		assertArrayEquals(new byte[0], serializer.serialize(null));
+		assertNull(serializer.deserialize(null));
+		assertNull(serializer.deserialize(new byte[0]));
+	}
+
+	private Object roundTrip(Object value) {
+		byte[] bytes = serializer.serialize(value);
+		assertEquals(CompactRedisSerializer.MAGIC, bytes[0] & 0xFF);
+		return serializer.deserialize(bytes);
+	}
+
+	private static Map<String, Object> externals() {
+		Map<String, Object> externals = new HashMap<>();
+		externals.put("orderId", "A1");
+		externals.put("seq", 7L);
+		externals.put("amount", new BigDecimal("100.00"));
+		externals.put("created", new Date(1508112000000L));
+		externals.put("count", 3);
+		externals.put("paid", Boolean.FALSE);
+		externals.put("createdAt", new Timestamp(1508112000000L));
+		Map<String, Object> nested = new HashMap<>();
+		nested.put("count", 2);
+		externals.put("nested", nested);
+		return externals;
+	}
+
+	private static void assertExternals(Map<String, Object> copy) {
+		assertEquals(externals(), copy);
+		assertSame(Long.class, copy.get("seq").getClass());
+		assertSame(BigDecimal.class, copy.get("amount").getClass());
+		assertSame(Date.class, copy.get("created").getClass());
+		assertSame(Integer.class, copy.get("count").getClass());
+		assertSame(Timestamp.class, copy.get("createdAt").getClass());
+		assertSame(HashMap.class, copy.get("nested").getClass());
+	}
+}
@@ -0,0 +1,123 @@
+package com.utsoft.blockchain.core.util;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import com.utsoft.blockchain.core.util.HierarchicalTimingWheel.Timeout;
+/**
+ * 分层时间轮: 跨层任务按期执行,不早于到期前一格,已取消的不执行,已到期的在调用线程执行
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+public class HierarchicalTimingWheelTest {
+
+	private static final long TICK_MS = 10L;
+	private static final int WHEEL_SIZE = 8;
+
+	@Test
+	public void tasksRunAcrossLevels() throws Exception {
+		HierarchicalTimingWheel wheel = new HierarchicalTimingWheel("wheel-test", TICK_MS, WHEEL_SIZE);
+		try {
+			// 底层覆盖 80ms,第二层 640ms,更长的进入第三层
+			long[] delays = { 15, 35, 79, 80, 150, 333, 639, 700, 900 };
+			CountDownLatch latch = new CountDownLatch(delays.length);
+			Map<Timeout, Long> ranAt = new ConcurrentHashMap<>();
+			Timeout[] timeouts = new Timeout[delays.length];
+			for (int i = 0; i < delays.length; i++) {
+				AtomicReference<Timeout> self = new AtomicReference<>();
+				timeouts[i] = wheel.schedule(() -> {
+					ranAt.put(self.get(), System.currentTimeMillis());
+					latch.countDown();
+				}, delays[i], TimeUnit.MILLISECONDS);
+				self.set(timeouts[i]);
+			}
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+			for (Timeout timeout : timeouts) {
+				long at = ranAt.get(timeout);
+				assertTrue(timeout + " ran early at " + at, at >= timeout.getDeadline() - TICK_MS);
+			}
+		} finally {
+			wheel.shutdown();
+		}
+	}
+
+	@Test
+	public void cancelledTaskDoesNotRun() throws Exception {
+		HierarchicalTimingWheel wheel = new HierarchicalTimingWheel("wheel-test", TICK_MS, WHEEL_SIZE);
+		try {
+			AtomicBoolean cancelledRan = new AtomicBoolean();
+			Timeout cancelled = wheel.schedule(() -> cancelledRan.set(true), 30, TimeUnit.MILLISECONDS);
+			Timeout farCancelled = wheel.schedule(() -> cancelledRan.set(true), 200, TimeUnit.MILLISECONDS);
+			cancelled.cancel();
+			farCancelled.cancel();
+			assertTrue(cancelled.isCancelled());
+
+			// 晚于已取消任务的哨兵执行后,已取消任务必然已经被跳过
+			CountDownLatch latch = new CountDownLatch(1);
+			wheel.schedule(latch::countDown, 300, TimeUnit.MILLISECONDS);
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+			assertFalse(cancelledRan.get());
+		} finally {
+			wheel.shutdown();
+		}
+	}
+
+	@Test
+	public void dueTaskRunsOnCaller() {
+		HierarchicalTimingWheel wheel = new HierarchicalTimingWheel("wheel-test", TICK_MS, WHEEL_SIZE);
+		try {
+			AtomicReference<Thread> runner = new AtomicReference<>();
+			wheel.schedule(() -> runner.set(Thread.currentThread()), 0, TimeUnit.MILLISECONDS);
+			assertSame(Thread.currentThread(), runner.get());
+
+			runner.set(null);
+			wheel.schedule(() -> runner.set(Thread.currentThread()), -1, TimeUnit.SECONDS);
+			assertSame(Thread.currentThread(), runner.get());
+
+			// 任务异常只记录,不影响调用方
+			wheel.schedule(() -> {
+				throw new IllegalStateException("boom");
+			}, 0, TimeUnit.MILLISECONDS);
+		} finally {
+			wheel.shutdown();
+		}
+	}
+
+	@Test
+	public void rejectsIllegalArguments() {
+		try {
+			new HierarchicalTimingWheel("wheel-test", 0, WHEEL_SIZE);
+			fail("accepted zero tick");
+		} catch (IllegalArgumentException expected) {
+		}
+		try {
+			new HierarchicalTimingWheel("wheel-test", TICK_MS, 0);
+			fail("accepted zero wheel size");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	@Test
+	public void deadlineFollowsDelay() {
+		HierarchicalTimingWheel wheel = new HierarchicalTimingWheel("wheel-test", TICK_MS, WHEEL_SIZE);
+		try {
+			long before = System.currentTimeMillis();
+			Timeout timeout = wheel.schedule(() -> {
+			}, 2, TimeUnit.SECONDS);
+			long after = System.currentTimeMillis();
+			assertTrue(timeout.getDeadline() >= before + 2000 && timeout.getDeadline() <= after + 2000);
+			timeout.cancel();
+			assertTrue(timeout.isCancelled());
+		} finally {
+			wheel.shutdown();
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package com.utsoft.blockchain.core.util;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+/**
+ * 分条带 top-K: 合并后的结果按估值排序且不超过 k 条,并发累加不丢计数
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+public class TopKSketchTest {
+
+	@Test
+	public void heavyHittersAcrossStripes() {
+		TopKSketch sketch = new TopKSketch(5);
+		for (int i = 0; i < 1000; i++) {
+			sketch.add("cold-" + i, 1);
+		}
+		for (int i = 0; i < 5; i++) {
+			sketch.add("hot-" + i, 1000 * (i + 1));
+		}
+		List<TopKSketch.Item> top = sketch.top();
+		assertEquals(5, top.size());
+		for (int i = 0; i < 5; i++) {
+			assertEquals("hot-" + (4 - i), top.get(i).getKey());
+			assertTrue(top.get(i).getEstimate() >= 1000 * (5 - i));
+		}
+	}
+
+	@Test
+	public void concurrentAddsAreCounted() throws Exception {
+		TopKSketch sketch = new TopKSketch(4, 4, 2048, 8);
+		int threads = 8;
+		int rounds = 20000;
+		CountDownLatch done = new CountDownLatch(threads);
+		for (int t = 0; t < threads; t++) {
+			Thread worker = new Thread(() -> {
+				for (int i = 0; i < rounds; i++) {
+					sketch.add("account-" + (i & 3), 1);
+				}
+				done.countDown();
+			});
+			worker.start();
+		}
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+		long total = 0;
+		for (TopKSketch.Item item : sketch.top()) {
+			total += item.getEstimate();
+		}
+		// 只有 4 个 key,不会发生碰撞高估
+		assertEquals((long) threads * rounds, total);
+		assertEquals((long) threads * rounds / 4, sketch.estimate("account-0"));
+	}
+
+	@Test
+	public void decayHalvesAndDropsZeroes() {
+		TopKSketch sketch = new TopKSketch(3, 4, 256, 4);
+		sketch.add("a", 8);
+		sketch.add("b", 1);
+		sketch.decay();
+		List<TopKSketch.Item> top = sketch.top();
+		assertEquals(1, top.size());
+		assertEquals("a", top.get(0).getKey());
+		assertEquals(4L, top.get(0).getEstimate());
+		assertEquals(4L, sketch.estimate("a"));
+	}
+
+	@Test
+	public void rejectsIllegalArguments() {
+		try {
+			new TopKSketch(5, 4, 2048, 0);
+			fail("accepted zero stripes");
+		} catch (IllegalArgumentException expected) {
+		}
+		try {
+			new TopKSketch(5, 7, 2048);
+			fail("accepted depth over seeds");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+}
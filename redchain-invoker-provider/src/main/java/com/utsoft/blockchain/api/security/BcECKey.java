@@ -11,6 +11,9 @@ import java.security.cert.X509Certificate;
 import java.security.interfaces.ECPublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
 import org.bouncycastle.asn1.x9.X9ECParameters;
 import org.bouncycastle.crypto.ec.CustomNamedCurves;
 import org.bouncycastle.crypto.params.ECDomainParameters;
@@ -124,6 +127,24 @@ public class BcECKey {
     }
     
     
+    /**
+     * 批量并行从公钥提取地址
+     * @param familySecCrypto
+     * @param publicKeys
+     * @return 与 publicKeys 顺序一致,无法解析的为 null
+     */
+    public static List<RbcAddress> loadAddressesByPublickey(FamilySecCrypto familySecCrypto, List<String> publicKeys) {
+    	RbcAddress[] addresses = new RbcAddress[publicKeys.size()];
+    	IntStream.range(0, addresses.length).parallel().forEach(i -> {
+    		try {
+    			addresses[i] = new BcECKey(familySecCrypto).loadAddressByPublickey(publicKeys.get(i));
+    		} catch (CryptionException | RuntimeException e) {
+    			addresses[i] = null;
+    		}
+    	});
+    	return Arrays.asList(addresses);
+    }
+    
     public RbcAddress fromPublicOnly(BigInteger x, BigInteger y) {
 	     ECPoint  bpoint = publicKeyFromPoint(x, y);
     	 init(bpoint);
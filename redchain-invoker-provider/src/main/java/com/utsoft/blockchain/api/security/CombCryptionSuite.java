@@ -0,0 +1,143 @@
+package com.utsoft.blockchain.api.security;
+import java.math.BigInteger;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
+import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.ECMultiplier;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.math.ec.FixedPointUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.utsoft.blockchain.api.exception.CryptionException;
+import com.utsoft.blockchain.api.util.DigestPool;
+import com.utsoft.blockchain.api.util.SegmentedLruCache;
+/**
+ * 热点公钥预计算套件
+ * <p>
+ * 少数商户、交易所钱包贡献了大部分签名请求。按公钥统计验签次数,
+ * 达到阈值后为该公钥构建 fixed-point comb 表并放入有界缓存,
+ * 之后用 BouncyCastle 轻量 API 验签: u1*G 与 u2*Q 都走查表乘法。
+ * 未达阈值的公钥及非 P-256/SHA256withECDSA 的请求仍走默认 JCA 路径
+ * @author hunterfox
+ * @date: 2017年10月14日
+ * @version 1.0.0
+ */
+public class CombCryptionSuite extends DefaultCryptionSuite {
+
+	private static final Logger logger = LoggerFactory.getLogger(CombCryptionSuite.class);
+
+	private static final String SIGNATURE_ALGORITHM = "SHA256withECDSA";
+	private static final X9ECParameters CURVE_PARAMS = CustomNamedCurves.getByName("secp256r1");
+	private static final ECCurve CURVE = CURVE_PARAMS.getCurve();
+	private static final BigInteger CURVE_N = CURVE_PARAMS.getN();
+	private static final ECPoint G = CURVE_PARAMS.getG();
+	/**
+	 * comb 宽度,每张表 2^width 个点;生成元只有一个,取更宽的表
+	 */
+	private static final int KEY_COMB_WIDTH = 8;
+	private static final int GENERATOR_COMB_WIDTH = 12;
+
+	static {
+		FixedPointUtil.precompute(G, GENERATOR_COMB_WIDTH);
+	}
+
+	private static final int HOT_THRESHOLD = CryptionConfig.getConfig().getCombHotThreshold();
+	/**
+	 * 验签次数统计,淘汰即重新计数
+	 */
+	private static final SegmentedLruCache<PublicKey, AtomicInteger> hits = new SegmentedLruCache<>(CryptionConfig.getConfig().getPublicKeyCacheSize(), 16);
+	/**
+	 * 已预计算的公钥点
+	 */
+	private static final SegmentedLruCache<PublicKey, ECPoint> combTables = new SegmentedLruCache<>(CryptionConfig.getConfig().getCombCacheSize(), 16);
+
+	private final ECMultiplier multiplier = new FixedPointCombMultiplier();
+
+	@Override
+	public boolean verifySignatureByPublic(PublicKey publicKey, String signatureAlgorithm, byte[] signature,
+			byte[] plainText) throws CryptionException {
+		ECPoint q = SIGNATURE_ALGORITHM.equalsIgnoreCase(signatureAlgorithm) ? hotPoint(publicKey) : null;
+		BigInteger[] rs = q == null ? null : FastCryptionSuite.decodeSignature(signature);
+		if (rs == null) {
+			return super.verifySignatureByPublic(publicKey, signatureAlgorithm, signature, plainText);
+		}
+		return verifyDigest(q, rs, digest(plainText));
+	}
+
+	@Override
+	public boolean verifyDigestByPublic(PublicKey publicKey, byte[] signature, byte[] digest) throws CryptionException {
+		ECPoint q = hotPoint(publicKey);
+		BigInteger[] rs = q == null ? null : FastCryptionSuite.decodeSignature(signature);
+		if (rs == null) {
+			return super.verifyDigestByPublic(publicKey, signature, digest);
+		}
+		return verifyDigest(q, rs, digest);
+	}
+
+	/**
+	 * @param rs 已解码的签名;无法解码的签名由调用方交给默认路径,预计算前后的异常、结果一致
+	 */
+	private boolean verifyDigest(ECPoint q, BigInteger[] rs, byte[] digest) {
+		BigInteger r = rs[0];
+		BigInteger s = rs[1];
+		if (r.signum() <= 0 || r.compareTo(CURVE_N) >= 0 || s.signum() <= 0 || s.compareTo(CURVE_N) >= 0) {
+			return false;
+		}
+		BigInteger e = calculateE(digest);
+		BigInteger c = s.modInverse(CURVE_N);
+		BigInteger u1 = e.multiply(c).mod(CURVE_N);
+		BigInteger u2 = r.multiply(c).mod(CURVE_N);
+
+		ECPoint point = multiplier.multiply(G, u1).add(multiplier.multiply(q, u2)).normalize();
+		if (point.isInfinity()) {
+			return false;
+		}
+		return point.getAffineXCoord().toBigInteger().mod(CURVE_N).equals(r);
+	}
+
+	/**
+	 * 统计公钥使用次数,热点公钥返回已预计算的点
+	 * @param publicKey
+	 * @return 非热点或非 P-256 公钥返回 null
+	 */
+	private ECPoint hotPoint(PublicKey publicKey) {
+		ECPoint q = combTables.get(publicKey);
+		if (q != null) {
+			return q;
+		}
+		if (!(publicKey instanceof ECPublicKey) || !CURVE_N.equals(((ECPublicKey) publicKey).getParams().getOrder())) {
+			return null;
+		}
+		AtomicInteger counter = hits.computeIfAbsent(publicKey, key -> new AtomicInteger());
+		if (counter.incrementAndGet() != HOT_THRESHOLD) {
+			return null;
+		}
+		ECPublicKey ecPublicKey = (ECPublicKey) publicKey;
+		q = CURVE.createPoint(ecPublicKey.getW().getAffineX(), ecPublicKey.getW().getAffineY());
+		FixedPointUtil.precompute(q, KEY_COMB_WIDTH);
+		combTables.put(publicKey, q);
+		hits.remove(publicKey);
+		logger.info("build comb table for hot publicKey after {} verifications", HOT_THRESHOLD);
+		return q;
+	}
+
+	private static byte[] digest(byte[] plainText) {
+		byte[] hash = new byte[DigestPool.SHA256_LENGTH];
+		DigestPool.sha256(plainText, 0, plainText.length, hash, 0);
+		return hash;
+	}
+
+	private static BigInteger calculateE(byte[] message) {
+		int log2n = CURVE_N.bitLength();
+		int messageBitLength = message.length * 8;
+		BigInteger e = new BigInteger(1, message);
+		if (log2n < messageBitLength) {
+			e = e.shiftRight(messageBitLength - log2n);
+		}
+		return e;
+	}
+}
@@ -23,6 +23,12 @@ public class CryptionConfig {
     public static final String CERTIFICATE_FORMAT = "sdk.crypto.certificate_format";
     public static final String SIGNATURE_ALGORITHM = "sdk.crypto.default_signature_algorithm";
     public static final String MAX_LOG_STRING_LENGTH = "sdk.log.stringlengthmax";
+    public static final String PUBLIC_KEY_CACHE_SIZE = "sdk.crypto.public_key_cache_size";
+    public static final String VERIFY_QUEUE_SIZE = "sdk.crypto.verify_queue_size";
+    public static final String CRYPTO_SUITE = "sdk.crypto.suite";
+    public static final String COMB_HOT_THRESHOLD = "sdk.crypto.comb_hot_threshold";
+    public static final String COMB_CACHE_SIZE = "sdk.crypto.comb_cache_size";
+    public static final String ADDRESS_CACHE_SIZE = "sdk.crypto.address_cache_size";
  
     private static final Properties sdkProperties = new Properties();
 	private static CryptionConfig config = new CryptionConfig();
@@ -39,6 +45,12 @@ public class CryptionConfig {
           defaultProperty(SECURITY_LEVEL, "256");
           defaultProperty(HASH_ALGORITHM, "SHA2");
           defaultProperty(MAX_LOG_STRING_LENGTH, "64");
+          defaultProperty(PUBLIC_KEY_CACHE_SIZE, "4096");
+          defaultProperty(VERIFY_QUEUE_SIZE, "1024");
+          defaultProperty(CRYPTO_SUITE, "DEFAULT");
+          defaultProperty(COMB_HOT_THRESHOLD, "32");
+          defaultProperty(COMB_CACHE_SIZE, "128");
+          defaultProperty(ADDRESS_CACHE_SIZE, "4096");
 	}
     /**
      * getConfig  for SDK configuration.
@@ -115,6 +127,54 @@ public class CryptionConfig {
    public int maxLogStringLength() {
        return Integer.parseInt(getProperty(MAX_LOG_STRING_LENGTH));
    }
+
+   /**
+    * 已解析公钥缓存容量
+    * @return
+    */
+   public int getPublicKeyCacheSize() {
+       return Integer.parseInt(getProperty(PUBLIC_KEY_CACHE_SIZE));
+   }
+
+   /**
+    * 验签阶段队列长度
+    * @return
+    */
+   public int getVerifyQueueSize() {
+       return Integer.parseInt(getProperty(VERIFY_QUEUE_SIZE));
+   }
+
+   /**
+    * 服务端使用的加解密套件类型,见 {@link FamilySecCrypto.Factory#getCryptoSuite(String)}
+    * @return
+    */
+   public String getCryptoSuite() {
+       return getProperty(CRYPTO_SUITE);
+   }
+
+   /**
+    * 公钥验签达到该次数后构建 comb 表
+    * @return
+    */
+   public int getCombHotThreshold() {
+       return Integer.parseInt(getProperty(COMB_HOT_THRESHOLD));
+   }
+
+   /**
+    * comb 表缓存的公钥数
+    * @return
+    */
+   public int getCombCacheSize() {
+       return Integer.parseInt(getProperty(COMB_CACHE_SIZE));
+   }
+
+   /**
+    * 最近校验通过的地址缓存数
+    * @return
+    */
+   public int getAddressCacheSize() {
+       return Integer.parseInt(getProperty(ADDRESS_CACHE_SIZE));
+   }
    
    /**
     * getProperty return back property for the given value.
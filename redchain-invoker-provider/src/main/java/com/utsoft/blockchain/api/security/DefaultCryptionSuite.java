@@ -4,6 +4,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.KeyFactory;
@@ -31,6 +32,9 @@ import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.xml.bind.DatatypeConverter;
 
@@ -39,9 +43,6 @@ import org.bouncycastle.asn1.DERSequenceGenerator;
 import org.bouncycastle.asn1.nist.NISTNamedCurves;
 import org.bouncycastle.asn1.x9.X9ECParameters;
 import org.bouncycastle.crypto.CryptoException;
-import org.bouncycastle.crypto.Digest;
-import org.bouncycastle.crypto.digests.SHA256Digest;
-import org.bouncycastle.crypto.digests.SHA3Digest;
 import org.bouncycastle.crypto.params.ECDomainParameters;
 import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
 import org.bouncycastle.crypto.signers.ECDSASigner;
@@ -51,7 +52,9 @@ import org.slf4j.LoggerFactory;
 
 import com.utsoft.blockchain.api.exception.CryptionException;
 import com.utsoft.blockchain.api.exception.WrongfulArgumentException;
+import com.utsoft.blockchain.api.util.DigestPool;
 import com.utsoft.blockchain.api.util.SdkUtil;
+import com.utsoft.blockchain.api.util.SegmentedLruCache;
 /**
  * 默认套件
  * 
@@ -70,9 +73,23 @@ public class DefaultCryptionSuite implements FamilySecCrypto {
 	private String curveName;
 	private String hashAlgorithm = config.getHashAlgorithm();
 	private  KeyFactory generator;
+
+	/**
+	 * 已解析公钥,同一钱包每次请求携带相同公钥,分别按编码内容和十六进制文本缓存
+	 */
+	private static final int PUBLIC_KEY_CACHE_SIZE = CryptionConfig.getConfig().getPublicKeyCacheSize();
+	private static final SegmentedLruCache<ByteBuffer, PublicKey> encodedPublicKeys = new SegmentedLruCache<>(PUBLIC_KEY_CACHE_SIZE, 16);
+	private static final SegmentedLruCache<String, PublicKey> hexPublicKeys = new SegmentedLruCache<>(PUBLIC_KEY_CACHE_SIZE, 16);
+	/**
+	 * 输入即摘要的 ECDSA
+	 */
+	private static final String PREHASHED_SIGNATURE_ALGORITHM = "NONEwithECDSA";
+	private static final ThreadLocal<Map<String, Signature>> THREAD_SIGNATURES = ThreadLocal.withInitial(HashMap::new);
 	   
 	 public DefaultCryptionSuite(){
-		 Security.addProvider(new BouncyCastleProvider());
+		 if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+			 Security.addProvider(new BouncyCastleProvider());
+		 }
 		 try {
 			generator= KeyFactory.getInstance("ECDSA", SECURITY_PROVIDER);
 		} catch (NoSuchAlgorithmException e) {
@@ -130,16 +147,19 @@ public class DefaultCryptionSuite implements FamilySecCrypto {
 	@Override
 	public boolean verifySignatureByPublic(byte[] bytes, String signatureAlgorithm, byte[] signature,
 			byte[] plainText) throws CryptionException {
+		return verifySignatureByPublic(loadPublicKey(bytes), signatureAlgorithm, signature, plainText);
+	}
+
+	@Override
+	public boolean verifySignatureByPublic(PublicKey publicKey, String signatureAlgorithm, byte[] signature,
+			byte[] plainText) throws CryptionException {
 		boolean isVerified;
 		try {
-			X509EncodedKeySpec x509EncodedKeySpec = new X509EncodedKeySpec(bytes);  
-	        PublicKey publicKey = generator.generatePublic(x509EncodedKeySpec);  
-			
-	        Signature sig = Signature.getInstance(signatureAlgorithm);
+			Signature sig = threadSignature(signatureAlgorithm);
 			sig.initVerify(publicKey);
 			sig.update(plainText);
 			isVerified = sig.verify(signature);
-		} catch (InvalidKeyException | InvalidKeySpecException | NoSuchAlgorithmException | SignatureException  e ) {
+		} catch (InvalidKeyException | NoSuchAlgorithmException | SignatureException  e ) {
 			CryptionException ex = new CryptionException(
 					"Cannot verify. Signature algorithm is invalid. Error is: " + e.getMessage(), e);
 			logger.error(ex.getMessage(), ex);
@@ -148,6 +168,56 @@ public class DefaultCryptionSuite implements FamilySecCrypto {
 		return isVerified;
 	}
 
+	@Override
+	public boolean verifyDigestByPublic(PublicKey publicKey, byte[] signature, byte[] digest) throws CryptionException {
+		return verifySignatureByPublic(publicKey, PREHASHED_SIGNATURE_ALGORITHM, signature, digest);
+	}
+
+	@Override
+	public boolean[] verifyBatch(List<SignatureEntry> entries) {
+		return SignatureVerifyStage.getDefault().verifyAll(this, entries);
+	}
+
+	/**
+	 * 解析 X.509 编码公钥,按编码内容缓存
+	 * @param bytes
+	 * @return
+	 * @throws CryptionException
+	 */
+	private PublicKey loadPublicKey(byte[] bytes) throws CryptionException {
+		ByteBuffer cacheKey = ByteBuffer.wrap(bytes);
+		PublicKey publicKey = encodedPublicKeys.get(cacheKey);
+		if (publicKey != null) {
+			return publicKey;
+		}
+		try {
+			publicKey = generator.generatePublic(new X509EncodedKeySpec(bytes));
+		} catch (InvalidKeySpecException e) {
+			CryptionException ex = new CryptionException(
+					"Cannot verify. Signature algorithm is invalid. Error is: " + e.getMessage(), e);
+			logger.error(ex.getMessage(), ex);
+			throw ex;
+		}
+		encodedPublicKeys.put(ByteBuffer.wrap(bytes.clone()), publicKey);
+		return publicKey;
+	}
+
+	/**
+	 * 线程内复用 Signature,initVerify 会重置其状态
+	 * @param signatureAlgorithm
+	 * @return
+	 * @throws NoSuchAlgorithmException
+	 */
+	private static Signature threadSignature(String signatureAlgorithm) throws NoSuchAlgorithmException {
+		Map<String, Signature> signatures = THREAD_SIGNATURES.get();
+		Signature sig = signatures.get(signatureAlgorithm);
+		if (sig == null) {
+			sig = Signature.getInstance(signatureAlgorithm);
+			signatures.put(signatureAlgorithm, sig);
+		}
+		return sig;
+	}
+
 	public Certificate arraybytesToCertificate(byte[] certBytes) throws CryptionException {
 		if (certBytes == null || certBytes.length == 0) {
 			throw new CryptionException("arraybytesToCertificate: input null or zero length");
@@ -168,7 +238,12 @@ public class DefaultCryptionSuite implements FamilySecCrypto {
 
 	@Override
 	public byte[] sign(PrivateKey key, byte[] plainText) throws CryptionException {
-		return ecdsaSignToBytes((ECPrivateKey) key, plainText);
+		return ecdsaSignToBytes((ECPrivateKey) key, hash(plainText));
+	}
+
+	@Override
+	public byte[] signDigest(PrivateKey key, byte[] digest) throws CryptionException {
+		return ecdsaSignToBytes((ECPrivateKey) key, digest);
 	}
 
 	private BigInteger[] preventMalleability(BigInteger[] sigs, BigInteger curveN) {
@@ -181,18 +256,17 @@ public class DefaultCryptionSuite implements FamilySecCrypto {
 	}
 
 	/**
-	 * Sign data with the specified elliptic curve private key.
+	 * Sign digest with the specified elliptic curve private key.
 	 *
 	 * @param privateKey
 	 *            elliptic curve private key.
-	 * @param data
-	 *            data to sign
+	 * @param encoded
+	 *            hash of the data to sign
 	 * @return the signed data.
 	 * @throws CryptoException
 	 */
-	private byte[] ecdsaSignToBytes(ECPrivateKey privateKey, byte[] data) throws CryptionException {
+	private byte[] ecdsaSignToBytes(ECPrivateKey privateKey, byte[] encoded) throws CryptionException {
 		try {
-			final byte[] encoded = hash(data);
 
 			// char[] hexenncoded = Hex.encodeHex(encoded);
 			// encoded = new String(hexenncoded).getBytes();
@@ -224,20 +298,20 @@ public class DefaultCryptionSuite implements FamilySecCrypto {
 
 	@Override
 	public byte[] hash(byte[] plainText) {
-		Digest digest = getHashDigest();
-		byte[] retValue = new byte[digest.getDigestSize()];
-		digest.update(plainText, 0, plainText.length);
-		digest.doFinal(retValue, 0);
+		boolean sha3 = isSha3();
+		byte[] retValue = new byte[DigestPool.hashLength(sha3)];
+		DigestPool.hash(sha3, plainText, 0, plainText.length, retValue, 0);
 		return retValue;
 	}
 
-	private Digest getHashDigest() {
-		if (this.hashAlgorithm.equalsIgnoreCase("SHA3")) {
-			return new SHA3Digest();
-		} else {
-			// Default to SHA2
-			return new SHA256Digest();
-		}
+	@Override
+	public int hash(byte[] plainText, int offset, int length, byte[] out, int outOffset) {
+		return DigestPool.hash(isSha3(), plainText, offset, length, out, outOffset);
+	}
+
+	@Override
+	public boolean isSha3() {
+		return "SHA3".equalsIgnoreCase(this.hashAlgorithm);
 	}
 
 	boolean validateCertificate(Certificate cert) {
@@ -336,6 +410,16 @@ public class DefaultCryptionSuite implements FamilySecCrypto {
       }
 	}
 
+	@Override
+	public PublicKey loadPublicKeyByStr(String publicKeyStr) throws CryptionException {
+		PublicKey publicKey = hexPublicKeys.get(publicKeyStr);
+		if (publicKey == null) {
+			publicKey = loadPublicKey(SdkUtil.decodeHexStrig(publicKeyStr));
+			hexPublicKeys.put(publicKeyStr, publicKey);
+		}
+		return publicKey;
+	}
+
 	@Override
 	public String loadPublicKeyByCert(byte[] certificates) throws CryptionException {
 		
@@ -3,6 +3,7 @@ import java.security.KeyFactory;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.Certificate;
+import java.util.List;
 
 import com.utsoft.blockchain.api.exception.CryptionException;
 import com.utsoft.blockchain.api.exception.WrongfulArgumentException;
@@ -33,6 +34,15 @@ public interface FamilySecCrypto {
      * @throws CryptionException
      */
     byte[] sign(PrivateKey key, byte[] plainText) throws CryptionException;
+
+    /**
+     * 对摘要签名,摘要为原文的 SHA-256
+     * @param key
+     * @param digest
+     * @return the signed data.
+     * @throws CryptionException
+     */
+    byte[] signDigest(PrivateKey key, byte[] digest) throws CryptionException;
     
     /**
      * converts byte array to certificate
@@ -62,6 +72,38 @@ public interface FamilySecCrypto {
      * @return
      */
     boolean verifySignatureByPublic(byte[] bytes,String signatureAlgorithm, byte[] signature, byte[] plainText) throws CryptionException;
+
+    /**
+     * 公钥验证签名
+     * @param publicKey 已解析公钥,见 {@link #loadPublicKeyByStr(String)}
+     * @param signatureAlgorithm
+     * @param signature
+     * @param plainText
+     * @return
+     */
+    boolean verifySignatureByPublic(PublicKey publicKey,String signatureAlgorithm, byte[] signature, byte[] plainText) throws CryptionException;
+
+    /**
+     * 公钥验证摘要签名(prehashed ECDSA),摘要为原文的 SHA-256
+     * @param publicKey
+     * @param signature
+     * @param digest
+     * @return
+     */
+    boolean verifyDigestByPublic(PublicKey publicKey, byte[] signature, byte[] digest) throws CryptionException;
+
+    /**
+     * 并行批量验证签名
+     * @param entries
+     * @return 与 entries 顺序一致的结果,无法验证的为 false
+     */
+    boolean[] verifyBatch(List<SignatureEntry> entries);
+
+    /**
+     * 摘要算法是否为 SHA3,摘要签名(signDigest/verifyDigestByPublic)只适用于 SHA-256
+     * @return
+     */
+    boolean isSha3();
     /**
      * Hash the specified text byte data.
      *
@@ -69,6 +111,17 @@ public interface FamilySecCrypto {
      * @return the hashed data.
      */
     byte[] hash(byte[] plainText);
+
+    /**
+     * 摘要写入调用方缓冲区,使用线程内复用的摘要对象
+     * @param plainText
+     * @param offset
+     * @param length
+     * @param out
+     * @param outOffset
+     * @return 写入的字节数
+     */
+    int hash(byte[] plainText, int offset, int length, byte[] out, int outOffset);
     
     /**
      *  get key String according to PrivateKey
@@ -99,6 +152,14 @@ public interface FamilySecCrypto {
       * @throws CryptionException
       */
       PrivateKey loadPrivateKeyByStr(String privateKey) throws  CryptionException;  
+
+     /**
+      * from hex String convert PublicKey
+      * @param publicKey
+      * @return PublicKey
+      * @throws CryptionException
+      */
+      PublicKey loadPublicKeyByStr(String publicKey) throws  CryptionException;
       /**
        * 从证书中获取公钥信息
        * @param certificate
@@ -131,6 +192,12 @@ public interface FamilySecCrypto {
          public static FamilySecCrypto getCryptoSuite(String type) {
         	 FamilySecCrypto familySecCrypto;
              switch (type) {
+             case "FAST":
+            	 familySecCrypto = FastCryptionSuite.getInstance();
+            	 break;
+             case "COMB":
+            	 familySecCrypto = new CombCryptionSuite();
+            	 break;
              case "DEFAULT":
         
              default:
@@ -0,0 +1,152 @@
+package com.utsoft.blockchain.api.security;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.asn1.DERSequenceGenerator;
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.crypto.signers.ECDSASigner;
+import com.utsoft.blockchain.api.exception.CryptionException;
+import com.utsoft.blockchain.api.util.DigestPool;
+import com.utsoft.blockchain.api.util.SegmentedLruCache;
+/**
+ * 高吞吐套件
+ * <p>
+ * 直接使用 BouncyCastle 轻量 API 完成 SHA256withECDSA 签名、验签与摘要,
+ * 不经过 JCA 查找;曲线参数只构建一次,签名器按线程复用,摘要使用 {@link DigestPool}。
+ * 进程内单例,签名结果格式(DER、low-s)与默认套件一致;
+ * 其它算法、证书相关操作沿用默认套件
+ * @author hunterfox
+ * @date: 2017年10月14日
+ * @version 1.0.0
+ */
+public class FastCryptionSuite extends DefaultCryptionSuite {
+
+	private static final String SIGNATURE_ALGORITHM = "SHA256withECDSA";
+
+	private static final FastCryptionSuite INSTANCE = new FastCryptionSuite();
+
+	private final ECDomainParameters domain;
+	private final BigInteger halfCurveOrder;
+	private final ThreadLocal<ECDSASigner> signers = ThreadLocal.withInitial(ECDSASigner::new);
+	private final SegmentedLruCache<PublicKey, ECPublicKeyParameters> publicKeyParameters = new SegmentedLruCache<>(
+			CryptionConfig.getConfig().getPublicKeyCacheSize(), 16);
+
+	FastCryptionSuite() {
+		CryptionConfig config = CryptionConfig.getConfig();
+		X9ECParameters params = CustomNamedCurves.getByName(config.getSecurityLevel() == 384 ? "secp384r1" : "secp256r1");
+		this.domain = new ECDomainParameters(params.getCurve(), params.getG(), params.getN(), params.getH());
+		this.halfCurveOrder = params.getN().shiftRight(1);
+	}
+
+	public static FastCryptionSuite getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public byte[] sign(PrivateKey key, byte[] plainText) throws CryptionException {
+		return signDigest(key, hash(plainText));
+	}
+
+	@Override
+	public byte[] signDigest(PrivateKey key, byte[] digest) throws CryptionException {
+		try {
+			ECDSASigner signer = signers.get();
+			signer.init(true, new ECPrivateKeyParameters(((ECPrivateKey) key).getS(), domain));
+			BigInteger[] sigs = signer.generateSignature(digest);
+			if (sigs[1].compareTo(halfCurveOrder) > 0) {
+				sigs[1] = domain.getN().subtract(sigs[1]);
+			}
+			return encodeSignature(sigs[0], sigs[1]);
+		} catch (Exception e) {
+			throw new CryptionException("Could not sign the message by private key", e);
+		}
+	}
+
+	@Override
+	public boolean verifySignatureByPublic(PublicKey publicKey, String signatureAlgorithm, byte[] signature,
+			byte[] plainText) throws CryptionException {
+		ECPublicKeyParameters parameters = SIGNATURE_ALGORITHM.equalsIgnoreCase(signatureAlgorithm) ? publicKeyParameters(publicKey) : null;
+		if (parameters == null) {
+			return super.verifySignatureByPublic(publicKey, signatureAlgorithm, signature, plainText);
+		}
+		byte[] hash = new byte[DigestPool.SHA256_LENGTH];
+		DigestPool.sha256(plainText, 0, plainText.length, hash, 0);
+		return verifyDigest(parameters, signature, hash);
+	}
+
+	@Override
+	public boolean verifyDigestByPublic(PublicKey publicKey, byte[] signature, byte[] digest) throws CryptionException {
+		ECPublicKeyParameters parameters = publicKeyParameters(publicKey);
+		if (parameters == null) {
+			return super.verifyDigestByPublic(publicKey, signature, digest);
+		}
+		return verifyDigest(parameters, signature, digest);
+	}
+
+	private boolean verifyDigest(ECPublicKeyParameters parameters, byte[] signature, byte[] digest) {
+		BigInteger[] rs = decodeSignature(signature);
+		if (rs == null) {
+			return false;
+		}
+		ECDSASigner signer = signers.get();
+		signer.init(false, parameters);
+		return signer.verifySignature(digest, rs[0], rs[1]);
+	}
+
+	/**
+	 * 公钥转为轻量 API 参数,曲线与本套件不一致时返回 null
+	 * @param publicKey
+	 * @return
+	 */
+	private ECPublicKeyParameters publicKeyParameters(PublicKey publicKey) {
+		ECPublicKeyParameters parameters = publicKeyParameters.get(publicKey);
+		if (parameters != null) {
+			return parameters;
+		}
+		if (!(publicKey instanceof ECPublicKey) || !domain.getN().equals(((ECPublicKey) publicKey).getParams().getOrder())) {
+			return null;
+		}
+		ECPublicKey ecPublicKey = (ECPublicKey) publicKey;
+		parameters = new ECPublicKeyParameters(
+				domain.getCurve().createPoint(ecPublicKey.getW().getAffineX(), ecPublicKey.getW().getAffineY()), domain);
+		publicKeyParameters.put(publicKey, parameters);
+		return parameters;
+	}
+
+	/**
+	 * DER 编码的 (r, s)
+	 * @param signature
+	 * @return 格式错误返回 null
+	 */
+	static BigInteger[] decodeSignature(byte[] signature) {
+		try {
+			ASN1Sequence sequence = ASN1Sequence.getInstance(signature);
+			if (sequence.size() != 2) {
+				return null;
+			}
+			return new BigInteger[] { ASN1Integer.getInstance(sequence.getObjectAt(0)).getValue(),
+					ASN1Integer.getInstance(sequence.getObjectAt(1)).getValue() };
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static byte[] encodeSignature(BigInteger r, BigInteger s) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(72);
+		DERSequenceGenerator seq = new DERSequenceGenerator(out);
+		seq.addObject(new ASN1Integer(r));
+		seq.addObject(new ASN1Integer(s));
+		seq.close();
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,67 @@
+package com.utsoft.blockchain.api.security;
+import java.security.PublicKey;
+/**
+ * 待验证签名
+ * @author hunterfox
+ * @date: 2017年10月13日
+ * @version 1.0.0
+ */
+public class SignatureEntry {
+
+	private final PublicKey publicKey;
+	private final String signatureAlgorithm;
+	private final byte[] signature;
+	private final byte[] plainText;
+	private final byte[] digest;
+
+	public SignatureEntry(PublicKey publicKey, String signatureAlgorithm, byte[] signature, byte[] plainText) {
+		this.publicKey = publicKey;
+		this.signatureAlgorithm = signatureAlgorithm;
+		this.signature = signature;
+		this.plainText = plainText;
+		this.digest = null;
+	}
+
+	private SignatureEntry(PublicKey publicKey, byte[] signature, byte[] digest) {
+		this.publicKey = publicKey;
+		this.signatureAlgorithm = null;
+		this.signature = signature;
+		this.plainText = null;
+		this.digest = digest;
+	}
+
+	/**
+	 * 摘要签名,见 {@link FamilySecCrypto#verifyDigestByPublic(PublicKey, byte[], byte[])}
+	 * @param publicKey
+	 * @param signature
+	 * @param digest
+	 * @return
+	 */
+	public static SignatureEntry prehashed(PublicKey publicKey, byte[] signature, byte[] digest) {
+		return new SignatureEntry(publicKey, signature, digest);
+	}
+
+	public boolean isPrehashed() {
+		return digest != null;
+	}
+
+	public PublicKey getPublicKey() {
+		return publicKey;
+	}
+
+	public String getSignatureAlgorithm() {
+		return signatureAlgorithm;
+	}
+
+	public byte[] getSignature() {
+		return signature;
+	}
+
+	public byte[] getPlainText() {
+		return plainText;
+	}
+
+	public byte[] getDigest() {
+		return digest;
+	}
+}
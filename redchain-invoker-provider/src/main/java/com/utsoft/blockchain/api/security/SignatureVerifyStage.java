@@ -0,0 +1,101 @@
+package com.utsoft.blockchain.api.security;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.utsoft.blockchain.api.exception.CryptionException;
+/**
+ * 签名验证阶段
+ * <p>
+ * ECDSA 验签是纯计算,放在按 CPU 核数固定大小的线程池中执行,不占用 IO 线程;
+ * 队列满时由提交线程自行验证,形成背压
+ * @author hunterfox
+ * @date: 2017年10月13日
+ * @version 1.0.0
+ */
+public class SignatureVerifyStage {
+
+	private static final Logger logger = LoggerFactory.getLogger(SignatureVerifyStage.class);
+
+	private final ThreadPoolExecutor executor;
+	private final int parallelism;
+
+	public SignatureVerifyStage(int parallelism, int queueSize) {
+		this.parallelism = parallelism;
+		final AtomicInteger sequence = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueSize), runnable -> {
+					Thread thread = new Thread(runnable, "signature-verify-" + sequence.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * 进程内共享的默认阶段
+	 * @return
+	 */
+	public static SignatureVerifyStage getDefault() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * 异步验证单个签名
+	 * @param crypto
+	 * @param entry
+	 * @return 验证结果,无法验证(签名格式错误等)为 false
+	 */
+	public CompletableFuture<Boolean> submit(FamilySecCrypto crypto, SignatureEntry entry) {
+		return CompletableFuture.supplyAsync(() -> verify(crypto, entry), executor);
+	}
+
+	/**
+	 * 分片并行验证
+	 * @param crypto
+	 * @param entries
+	 * @return 与 entries 顺序一致的验证结果
+	 */
+	public boolean[] verifyAll(FamilySecCrypto crypto, List<SignatureEntry> entries) {
+		final boolean[] results = new boolean[entries.size()];
+		int chunk = Math.max(1, (entries.size() + parallelism - 1) / parallelism);
+		List<CompletableFuture<Void>> futures = new ArrayList<>(parallelism);
+		for (int start = 0; start < entries.size(); start += chunk) {
+			final int from = start;
+			final int to = Math.min(entries.size(), start + chunk);
+			futures.add(CompletableFuture.runAsync(() -> {
+				for (int i = from; i < to; i++) {
+					results[i] = verify(crypto, entries.get(i));
+				}
+			}, executor));
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).join();
+		return results;
+	}
+
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	private static boolean verify(FamilySecCrypto crypto, SignatureEntry entry) {
+		try {
+			if (entry.isPrehashed()) {
+				return crypto.verifyDigestByPublic(entry.getPublicKey(), entry.getSignature(), entry.getDigest());
+			}
+			return crypto.verifySignatureByPublic(entry.getPublicKey(), entry.getSignatureAlgorithm(),
+					entry.getSignature(), entry.getPlainText());
+		} catch (CryptionException e) {
+			logger.warn("verify signature fail:{}", e.getMessage());
+			return false;
+		}
+	}
+
+	private static final class Holder {
+		private static final SignatureVerifyStage INSTANCE = new SignatureVerifyStage(
+				Runtime.getRuntime().availableProcessors(), CryptionConfig.getConfig().getVerifyQueueSize());
+	}
+}
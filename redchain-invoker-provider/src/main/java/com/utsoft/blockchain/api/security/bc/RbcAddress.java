@@ -1,5 +1,9 @@
 package com.utsoft.blockchain.api.security.bc;
+import java.util.List;
+import java.util.stream.IntStream;
 import com.utsoft.blockchain.api.exception.BcAddressFormatException;
+import com.utsoft.blockchain.api.security.CryptionConfig;
+import com.utsoft.blockchain.api.util.SegmentedLruCache;
 import static com.google.common.base.Preconditions.checkArgument;
 /**
  * 赤链地址
@@ -10,6 +14,14 @@ import static com.google.common.base.Preconditions.checkArgument;
 public class RbcAddress extends VersionedCheckBytes {
 
 	private static final long serialVersionUID = -7581480206138304722L;
+	
+	/**
+	 * 最近校验通过的地址,命中时跳过 base58 解码和双 SHA-256 校验;
+	 * 缓存实例只在本类内部读取,对外返回复制了字节的新实例
+	 */
+	private static final SegmentedLruCache<String, RbcAddress> recentAddresses = new SegmentedLruCache<>(
+			CryptionConfig.getConfig().getAddressCacheSize(), 16);
+	
 	/**
 	 * @param encoded
 	 * @throws AddressFormatException
@@ -22,5 +34,54 @@ public class RbcAddress extends VersionedCheckBytes {
         super(version, hash160);
         checkArgument(hash160.length == 20, "Addresses are 160-bit hashes, so you must provide 20 bytes");
     }
-}
 
+   private RbcAddress(RbcAddress source) {
+	   super(source.version, source.bytes.clone(), source.toBase58());
+   }
+   
+   /**
+    * 解析地址,优先取最近校验通过的缓存
+    * @param encoded
+    * @return
+    * @throws BcAddressFormatException
+    */
+   public static RbcAddress fromBase58(String encoded) throws BcAddressFormatException {
+	   RbcAddress address = recentAddresses.get(encoded);
+	   if (address == null) {
+		   address = new RbcAddress(encoded);
+		   recentAddresses.put(encoded, address);
+	   }
+	   return new RbcAddress(address);
+   }
+   
+   /**
+    * 地址格式及校验码是否合法
+    * @param encoded
+    * @return
+    */
+   public static boolean isValid(String encoded) {
+	   if (encoded == null || encoded.isEmpty()) {
+		   return false;
+	   }
+	   if (recentAddresses.get(encoded) != null) {
+		   return true;
+	   }
+	   try {
+		   recentAddresses.put(encoded, new RbcAddress(encoded));
+		   return true;
+	   } catch (BcAddressFormatException e) {
+		   return false;
+	   }
+   }
+   
+   /**
+    * 批量并行校验地址
+    * @param encoded
+    * @return 与 encoded 顺序一致的结果
+    */
+   public static boolean[] validateAll(List<String> encoded) {
+	   boolean[] results = new boolean[encoded.size()];
+	   IntStream.range(0, results.length).parallel().forEach(i -> results[i] = isValid(encoded.get(i)));
+	   return results;
+   }
+}
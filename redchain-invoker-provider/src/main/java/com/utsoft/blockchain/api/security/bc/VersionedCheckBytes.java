@@ -4,7 +4,7 @@ import com.google.common.base.Objects;
 import com.google.common.primitives.Ints;
 import com.google.common.primitives.UnsignedBytes;
 import com.utsoft.blockchain.api.exception.BcAddressFormatException;
-import com.utsoft.blockchain.api.util.Sha256Hash;
+import com.utsoft.blockchain.api.util.DigestPool;
 import com.utsoft.blockchain.api.util.SuiteBase58;
 import java.io.Serializable;
 import java.util.Arrays;
@@ -18,6 +18,7 @@ public class VersionedCheckBytes  implements Serializable, Cloneable, Comparable
 	private static final long serialVersionUID = -6993740398829423257L;
 	protected final int version;
     protected byte[] bytes;
+    private transient volatile String base58;
 	
     
     protected VersionedCheckBytes(String encoded) throws BcAddressFormatException {
@@ -26,6 +27,7 @@ public class VersionedCheckBytes  implements Serializable, Cloneable, Comparable
         version = versionByte & 0xFF;
         bytes = new byte[versionAndDataBytes.length - 1];
         System.arraycopy(versionAndDataBytes, 1, bytes, 0, versionAndDataBytes.length - 1);
+        base58 = encoded;
     }
 
     protected VersionedCheckBytes(int version, byte[] bytes) {
@@ -33,6 +35,14 @@ public class VersionedCheckBytes  implements Serializable, Cloneable, Comparable
         this.version = version;
         this.bytes = bytes;
     }
+
+    /**
+     * 已知编码结果时直接带上,省去再次编码
+     */
+    protected VersionedCheckBytes(int version, byte[] bytes, String base58) {
+        this(version, bytes);
+        this.base58 = base58;
+    }
     
     @Override
     public boolean equals(Object o) {
@@ -60,13 +70,24 @@ public class VersionedCheckBytes  implements Serializable, Cloneable, Comparable
      * object, including version and checksum bytes.
      */
     public final String toBase58() {
+        String encoded = base58;
+        if (encoded == null) {
+            base58 = encoded = encodeBase58();
+        }
+        return encoded;
+    }
+
+    private String encodeBase58() {
         // A stringified buffer is:
         //   1 byte version + data bytes + 4 bytes check code (a truncated hash)
         byte[] addressBytes = new byte[1 + bytes.length + 4];
         addressBytes[0] = (byte) version;
         System.arraycopy(bytes, 0, addressBytes, 1, bytes.length);
-        byte[] checksum = Sha256Hash.hashTwice(addressBytes, 0, bytes.length + 1);
-        System.arraycopy(checksum, 0, addressBytes, bytes.length + 1, 4);
+        int checksum = DigestPool.checksum(addressBytes, 0, bytes.length + 1);
+        addressBytes[bytes.length + 1] = (byte) (checksum >>> 24);
+        addressBytes[bytes.length + 2] = (byte) (checksum >>> 16);
+        addressBytes[bytes.length + 3] = (byte) (checksum >>> 8);
+        addressBytes[bytes.length + 4] = (byte) checksum;
         return SuiteBase58.encode(addressBytes);
     }
 
@@ -0,0 +1,169 @@
+package com.utsoft.blockchain.api.util;
+import java.security.PrivateKey;
+import java.util.Arrays;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import com.utsoft.blockchain.api.exception.CryptionException;
+import com.utsoft.blockchain.api.security.FamilySecCrypto;
+/**
+ * 非线程安全
+ * 流式签名原文
+ * <p>
+ * 与 {@link SignaturePlayload} 的原文逐字节一致(字段以 & 连接,UTF-8 编码),
+ * 但字段直接编码进线程复用的缓冲区,不生成中间字符串;
+ * SHA256withECDSA 签名、验签使用摘要(prehashed ECDSA),其它签名算法取原文字节
+ * @author hunterfox
+ * @date: 2017年10月14日
+ * @version 1.0.0
+ */
+public class CanonicalPlayload {
+
+	private static final byte SPLITE_SYMBOL = '&';
+	private static final ThreadLocal<CanonicalPlayload> LOCAL = ThreadLocal.withInitial(CanonicalPlayload::new);
+
+	private static final int INITIAL_CAPACITY = 1024;
+	/**
+	 * 超过该大小的缓冲区重置时释放,避免个别大报文长期占用线程内存
+	 */
+	private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+	private final SHA256Digest digest = new SHA256Digest();
+	private byte[] buffer = new byte[INITIAL_CAPACITY];
+	private int position;
+	private int fields;
+
+	/**
+	 * 当前线程复用的实例,已重置
+	 * @return
+	 */
+	public static CanonicalPlayload local() {
+		CanonicalPlayload playload = LOCAL.get();
+		playload.reset();
+		return playload;
+	}
+
+	/**
+	 * Pay attention to the order in order
+	 * @param str
+	 * @return
+	 */
+	public CanonicalPlayload addPlayload(String str) {
+		if (fields++ > 0) {
+			write(SPLITE_SYMBOL);
+		}
+		append(str == null ? "null" : str);
+		return this;
+	}
+
+	/**
+	 * Pay attention to the order in order
+	 * @param object
+	 * @return
+	 */
+	public CanonicalPlayload addPlayload(Object object) {
+		return addPlayload(String.valueOf(object));
+	}
+
+	/**
+	 * 追加原文片段,不加分隔符
+	 * @param chars
+	 * @return
+	 */
+	public CanonicalPlayload append(CharSequence chars) {
+		int length = chars.length();
+		for (int i = 0; i < length; i++) {
+			char c = chars.charAt(i);
+			if (c < 0x80) {
+				write((byte) c);
+			} else if (c < 0x800) {
+				write((byte) (0xC0 | (c >> 6)));
+				write((byte) (0x80 | (c & 0x3F)));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+				write((byte) (0xF0 | (codePoint >> 18)));
+				write((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+				write((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+				write((byte) (0x80 | (codePoint & 0x3F)));
+			} else if (Character.isSurrogate(c)) {
+				// 与 String.getBytes 一致,孤立代理项替换为 '?'
+				write((byte) '?');
+			} else {
+				write((byte) (0xE0 | (c >> 12)));
+				write((byte) (0x80 | ((c >> 6) & 0x3F)));
+				write((byte) (0x80 | (c & 0x3F)));
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * 原文 SHA-256 摘要,调用后实例重置
+	 * @return
+	 */
+	public byte[] digest() {
+		byte[] hash = new byte[digest.getDigestSize()];
+		digest(hash, 0);
+		return hash;
+	}
+
+	/**
+	 * 原文 SHA-256 摘要写入调用方缓冲区,调用后实例重置
+	 * @param out
+	 * @param outOffset
+	 * @return 写入的字节数
+	 */
+	public int digest(byte[] out, int outOffset) {
+		digest.update(buffer, 0, position);
+		int written = digest.doFinal(out, outOffset);
+		reset();
+		return written;
+	}
+
+	/**
+	 * 原文字节,与 {@link SignaturePlayload#originalPacket()} 一致,调用后实例重置
+	 * @return
+	 */
+	public byte[] originalPacket() {
+		byte[] packet = Arrays.copyOf(buffer, position);
+		reset();
+		return packet;
+	}
+
+	/**
+	 * transport content c message signatures,摘要固定为 SHA-256,SHA3 配置直接拒绝
+	 * @param crypto
+	 * @param key
+	 * @return data of signature
+	 * @throws CryptionException
+	 */
+	public String doSignature(FamilySecCrypto crypto, String key) throws CryptionException {
+		if (crypto.isSha3()) {
+			throw new CryptionException("prehashed signature only supports SHA2 hash algorithm");
+		}
+		PrivateKey privateKey = crypto.loadPrivateKeyByStr(key);
+		return SdkUtil.encodeHexString(crypto.signDigest(privateKey, digest()));
+	}
+
+	/**
+	 * 重新初始化，供下一个使用
+	 */
+	public void reset() {
+		digest.reset();
+		position = 0;
+		fields = 0;
+		if (buffer.length > MAX_RETAINED_CAPACITY) {
+			buffer = new byte[INITIAL_CAPACITY];
+		}
+	}
+
+	private void write(byte b) {
+		if (position == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length << 1);
+		}
+		buffer[position++] = b;
+	}
+
+	@Override
+	public String toString() {
+		return "CanonicalPlayload [fields=" + fields + ", length=" + position + "]";
+	}
+}
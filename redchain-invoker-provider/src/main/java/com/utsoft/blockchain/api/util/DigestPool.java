@@ -0,0 +1,209 @@
+package com.utsoft.blockchain.api.util;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.RIPEMD160Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.digests.SHA3Digest;
+/**
+ * 线程内摘要池
+ * <p>
+ * 每个线程持有一组 SHA-256、SHA3、RIPEMD160 摘要及中间缓冲区,
+ * 结果写入调用方提供的数组或 {@link ByteBuffer}(含堆外缓冲区),热路径上不产生新对象;
+ * 同一线程内不可嵌套使用同一摘要(回调中再次调用本类是安全的,调用之间不保留状态)
+ * @author hunterfox
+ * @date: 2017年10月16日
+ * @version 1.0.0
+ */
+public final class DigestPool {
+
+	public static final int SHA256_LENGTH = 32;
+	public static final int RIPEMD160_LENGTH = 20;
+
+	/**
+	 * 堆外缓冲区分段拷贝的大小
+	 */
+	private static final int CHUNK_SIZE = 512;
+
+	private static final ThreadLocal<DigestPool> LOCAL = ThreadLocal.withInitial(DigestPool::new);
+
+	private final SHA256Digest sha256 = new SHA256Digest();
+	private final SHA3Digest sha3 = new SHA3Digest();
+	private final RIPEMD160Digest ripemd160 = new RIPEMD160Digest();
+	private final byte[] scratch = new byte[SHA256_LENGTH];
+	private final byte[] chunk = new byte[CHUNK_SIZE];
+
+	private DigestPool() {
+	}
+
+	/**
+	 * SHA-256,结果写入 out[outOffset, outOffset + 32)
+	 * @param input
+	 * @param offset
+	 * @param length
+	 * @param out
+	 * @param outOffset
+	 * @return 写入的字节数
+	 */
+	public static int sha256(byte[] input, int offset, int length, byte[] out, int outOffset) {
+		SHA256Digest digest = LOCAL.get().sha256;
+		digest.reset();
+		digest.update(input, offset, length);
+		return digest.doFinal(out, outOffset);
+	}
+
+	/**
+	 * SHA-256,消费 input 的剩余字节,结果写入 out 当前位置,两者 position 均前移
+	 * @param input
+	 * @param out
+	 * @return 写入的字节数
+	 */
+	public static int sha256(ByteBuffer input, ByteBuffer out) {
+		DigestPool pool = LOCAL.get();
+		return pool.doFinal(pool.update(pool.sha256, input), out);
+	}
+
+	/**
+	 * SHA-256(SHA-256(input)),结果写入 out[outOffset, outOffset + 32)
+	 * @param input
+	 * @param offset
+	 * @param length
+	 * @param out
+	 * @param outOffset
+	 * @return 写入的字节数
+	 */
+	public static int sha256Twice(byte[] input, int offset, int length, byte[] out, int outOffset) {
+		DigestPool pool = LOCAL.get();
+		SHA256Digest digest = pool.sha256;
+		digest.reset();
+		digest.update(input, offset, length);
+		digest.doFinal(pool.scratch, 0);
+		digest.update(pool.scratch, 0, SHA256_LENGTH);
+		return digest.doFinal(out, outOffset);
+	}
+
+	/**
+	 * 两段输入拼接后的 SHA-256(SHA-256),结果写入 out[outOffset, outOffset + 32)
+	 */
+	public static int sha256Twice(byte[] input1, int offset1, int length1, byte[] input2, int offset2, int length2,
+			byte[] out, int outOffset) {
+		DigestPool pool = LOCAL.get();
+		SHA256Digest digest = pool.sha256;
+		digest.reset();
+		digest.update(input1, offset1, length1);
+		digest.update(input2, offset2, length2);
+		digest.doFinal(pool.scratch, 0);
+		digest.update(pool.scratch, 0, SHA256_LENGTH);
+		return digest.doFinal(out, outOffset);
+	}
+
+	/**
+	 * SHA-256(SHA-256),消费 input 的剩余字节,结果写入 out 当前位置
+	 * @param input
+	 * @param out
+	 * @return 写入的字节数
+	 */
+	public static int sha256Twice(ByteBuffer input, ByteBuffer out) {
+		DigestPool pool = LOCAL.get();
+		SHA256Digest digest = pool.update(pool.sha256, input);
+		digest.doFinal(pool.scratch, 0);
+		digest.update(pool.scratch, 0, SHA256_LENGTH);
+		return pool.doFinal(digest, out);
+	}
+
+	/**
+	 * base58check 校验码: SHA-256(SHA-256(input)) 的前 4 字节,按大端拼为 int
+	 * @param input
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public static int checksum(byte[] input, int offset, int length) {
+		DigestPool pool = LOCAL.get();
+		byte[] scratch = pool.scratch;
+		SHA256Digest digest = pool.sha256;
+		digest.reset();
+		digest.update(input, offset, length);
+		digest.doFinal(scratch, 0);
+		digest.update(scratch, 0, SHA256_LENGTH);
+		digest.doFinal(scratch, 0);
+		return (scratch[0] & 0xFF) << 24 | (scratch[1] & 0xFF) << 16 | (scratch[2] & 0xFF) << 8 | (scratch[3] & 0xFF);
+	}
+
+	/**
+	 * RIPEMD160(SHA-256(input)),地址计算使用,结果写入 out[outOffset, outOffset + 20)
+	 * @param input
+	 * @param offset
+	 * @param length
+	 * @param out
+	 * @param outOffset
+	 * @return 写入的字节数
+	 */
+	public static int sha256hash160(byte[] input, int offset, int length, byte[] out, int outOffset) {
+		DigestPool pool = LOCAL.get();
+		pool.sha256.reset();
+		pool.sha256.update(input, offset, length);
+		pool.sha256.doFinal(pool.scratch, 0);
+		pool.ripemd160.reset();
+		pool.ripemd160.update(pool.scratch, 0, SHA256_LENGTH);
+		return pool.ripemd160.doFinal(out, outOffset);
+	}
+
+	/**
+	 * 按配置的摘要算法(SHA3 或 SHA2)计算,结果写入 out[outOffset, ...)
+	 * @param sha3 是否 SHA3
+	 * @param input
+	 * @param offset
+	 * @param length
+	 * @param out
+	 * @param outOffset
+	 * @return 写入的字节数
+	 */
+	public static int hash(boolean sha3, byte[] input, int offset, int length, byte[] out, int outOffset) {
+		DigestPool pool = LOCAL.get();
+		Digest digest = sha3 ? pool.sha3 : pool.sha256;
+		digest.reset();
+		digest.update(input, offset, length);
+		return digest.doFinal(out, outOffset);
+	}
+
+	/**
+	 * 摘要长度
+	 * @param sha3
+	 * @return
+	 */
+	public static int hashLength(boolean sha3) {
+		return sha3 ? LOCAL.get().sha3.getDigestSize() : SHA256_LENGTH;
+	}
+
+	private <T extends Digest> T update(T digest, ByteBuffer input) {
+		digest.reset();
+		if (input.hasArray()) {
+			digest.update(input.array(), input.arrayOffset() + input.position(), input.remaining());
+			input.position(input.limit());
+			return digest;
+		}
+		while (input.hasRemaining()) {
+			int length = Math.min(input.remaining(), CHUNK_SIZE);
+			input.get(chunk, 0, length);
+			digest.update(chunk, 0, length);
+		}
+		return digest;
+	}
+
+	private int doFinal(Digest digest, ByteBuffer out) {
+		int length = digest.getDigestSize();
+		if (out.remaining() < length) {
+			digest.reset();
+			throw new BufferOverflowException();
+		}
+		if (out.hasArray()) {
+			int written = digest.doFinal(out.array(), out.arrayOffset() + out.position());
+			out.position(out.position() + written);
+			return written;
+		}
+		digest.doFinal(chunk, 0);
+		out.put(chunk, 0, length);
+		return length;
+	}
+}
@@ -1,5 +1,4 @@
 package com.utsoft.blockchain.api.util;
-import org.bouncycastle.crypto.digests.RIPEMD160Digest;
 
 import com.google.common.io.BaseEncoding;
 import com.utsoft.blockchain.api.exception.BcAddressFormatException;
@@ -64,13 +63,18 @@ public class SdkUtil {
       * Calculates RIPEMD160(SHA256(input)). This is used in Address calculations.
       */
      public static byte[] sha256hash160(byte[] input) {
-         byte[] sha256 = Sha256Hash.hash(input);
-         RIPEMD160Digest digest = new RIPEMD160Digest();
-         digest.update(sha256, 0, sha256.length);
-         byte[] out = new byte[20];
-         digest.doFinal(out, 0);
+         byte[] out = new byte[DigestPool.RIPEMD160_LENGTH];
+         DigestPool.sha256hash160(input, 0, input.length, out, 0);
          return out;
      }
+
+     /**
+      * Calculates RIPEMD160(SHA256(input)) into a caller-supplied buffer.
+      * @return the number of bytes written (always 20)
+      */
+     public static int sha256hash160(byte[] input, int offset, int length, byte[] out, int outOffset) {
+         return DigestPool.sha256hash160(input, offset, length, out, outOffset);
+     }
      
      /**
       * Returns a copy of the given byte array in reverse order.
@@ -0,0 +1,119 @@
+package com.utsoft.blockchain.api.util;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+/**
+ * 有界 LRU 缓存
+ * <p>
+ * 按 key 哈希分段,每段为按访问排序的 LinkedHashMap,超出段容量淘汰最久未访问项;
+ * 分段加锁,避免单把锁成为热点。线程安全
+ * @author hunterfox
+ * @date: 2017年10月13日
+ * @version 1.0.0
+ */
+public class SegmentedLruCache<K, V> {
+
+	private final Segment<K, V>[] segments;
+	private final int mask;
+
+	/**
+	 * @param capacity 总容量
+	 * @param concurrency 分段数,取不小于该值的 2 的幂
+	 */
+	@SuppressWarnings("unchecked")
+	public SegmentedLruCache(int capacity, int concurrency) {
+		int size = 1;
+		while (size < concurrency) {
+			size <<= 1;
+		}
+		int segmentCapacity = Math.max(1, (capacity + size - 1) / size);
+		this.segments = new Segment[size];
+		for (int i = 0; i < size; i++) {
+			segments[i] = new Segment<>(segmentCapacity);
+		}
+		this.mask = size - 1;
+	}
+
+	public V get(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			return segment.get(key);
+		}
+	}
+
+	public void put(K key, V value) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			segment.put(key, value);
+		}
+	}
+
+	/**
+	 * 取缓存,不存在时加载;加载在锁外进行,并发加载同一 key 时以先写入者为准
+	 * @param key
+	 * @param loader 返回 null 时不缓存
+	 * @return
+	 */
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+		V value = get(key);
+		if (value != null) {
+			return value;
+		}
+		value = loader.apply(key);
+		if (value == null) {
+			return null;
+		}
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			V existing = segment.putIfAbsent(key, value);
+			return existing != null ? existing : value;
+		}
+	}
+
+	public V remove(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			return segment.remove(key);
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	public void clear() {
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	private Segment<K, V> segmentFor(K key) {
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return segments[hash & mask];
+	}
+
+	private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+
+		Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > capacity;
+		}
+	}
+}
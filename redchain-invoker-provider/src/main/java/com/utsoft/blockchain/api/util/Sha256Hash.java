@@ -5,6 +5,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
@@ -153,9 +154,30 @@ public class Sha256Hash implements Serializable, Comparable<Sha256Hash> {
      * @return the hash (in big-endian order)
      */
     public static byte[] hash(byte[] input, int offset, int length) {
-        MessageDigest digest = newDigest();
-        digest.update(input, offset, length);
-        return digest.digest();
+        byte[] out = new byte[LENGTH];
+        DigestPool.sha256(input, offset, length, out, 0);
+        return out;
+    }
+
+    /**
+     * Calculates the SHA-256 hash of the given byte range into a caller-supplied buffer,
+     * using the calling thread's pooled digest.
+     *
+     * @param out the array receiving the hash at {@code outOffset}
+     * @return the number of bytes written (always {@link #LENGTH})
+     */
+    public static int hash(byte[] input, int offset, int length, byte[] out, int outOffset) {
+        return DigestPool.sha256(input, offset, length, out, outOffset);
+    }
+
+    /**
+     * Calculates the SHA-256 hash of the remaining bytes of {@code input} and puts it into {@code out}.
+     * Both buffers may be direct; their positions are advanced.
+     *
+     * @return the number of bytes written (always {@link #LENGTH})
+     */
+    public static int hash(ByteBuffer input, ByteBuffer out) {
+        return DigestPool.sha256(input, out);
     }
 
     /**
@@ -179,9 +201,30 @@ public class Sha256Hash implements Serializable, Comparable<Sha256Hash> {
      * @return the double-hash (in big-endian order)
      */
     public static byte[] hashTwice(byte[] input, int offset, int length) {
-        MessageDigest digest = newDigest();
-        digest.update(input, offset, length);
-        return digest.digest(digest.digest());
+        byte[] out = new byte[LENGTH];
+        DigestPool.sha256Twice(input, offset, length, out, 0);
+        return out;
+    }
+
+    /**
+     * Calculates the double SHA-256 hash of the given byte range into a caller-supplied buffer,
+     * using the calling thread's pooled digest.
+     *
+     * @param out the array receiving the hash at {@code outOffset}
+     * @return the number of bytes written (always {@link #LENGTH})
+     */
+    public static int hashTwice(byte[] input, int offset, int length, byte[] out, int outOffset) {
+        return DigestPool.sha256Twice(input, offset, length, out, outOffset);
+    }
+
+    /**
+     * Calculates the double SHA-256 hash of the remaining bytes of {@code input} and puts it into {@code out}.
+     * Both buffers may be direct; their positions are advanced.
+     *
+     * @return the number of bytes written (always {@link #LENGTH})
+     */
+    public static int hashTwice(ByteBuffer input, ByteBuffer out) {
+        return DigestPool.sha256Twice(input, out);
     }
 
     /**
@@ -190,10 +233,9 @@ public class Sha256Hash implements Serializable, Comparable<Sha256Hash> {
      */
     public static byte[] hashTwice(byte[] input1, int offset1, int length1,
                                    byte[] input2, int offset2, int length2) {
-        MessageDigest digest = newDigest();
-        digest.update(input1, offset1, length1);
-        digest.update(input2, offset2, length2);
-        return digest.digest(digest.digest());
+        byte[] out = new byte[LENGTH];
+        DigestPool.sha256Twice(input1, offset1, length1, input2, offset2, length2, out, 0);
+        return out;
     }
 
     @Override
@@ -75,15 +75,20 @@ public class SignaturePlayload {
 		    sb.deleteCharAt(sb.length()-1);	
 		    isTrim = true;
 		}
-		 PrivateKey privateKey = crypto.loadPrivateKeyByStr(key); 
-		 byte[] encoded;
-		 try {
-			byte[] contents = sb.toString().getBytes(Constants.DEFAULT_CHARSET);
-			encoded = crypto.sign(privateKey,contents);
-		   } catch (UnsupportedEncodingException e) {
-			throw  new CryptionException("sign key is error:"+e);
+		 if (crypto.isSha3()) {
+			 // 流式摘要固定为 SHA-256,SHA3 配置仍走原文签名
+			 PrivateKey privateKey = crypto.loadPrivateKeyByStr(key);
+			 byte[] encoded;
+			 try {
+				byte[] contents = sb.toString().getBytes(Constants.DEFAULT_CHARSET);
+				encoded = crypto.sign(privateKey,contents);
+			   } catch (UnsupportedEncodingException e) {
+				throw  new CryptionException("sign key is error:"+e);
+			 }
+			 return SdkUtil.encodeHexString(encoded);
 		 }
-		 return SdkUtil.encodeHexString(encoded);
+		 // 原文直接流式摘要,不再复制为字符串和字节数组
+		 return CanonicalPlayload.local().append(sb).doSignature(crypto, key);
 	}
 	
 	@Override
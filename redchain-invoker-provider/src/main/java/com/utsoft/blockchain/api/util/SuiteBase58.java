@@ -18,8 +18,18 @@ public class SuiteBase58 {
         }
     }
 
+    /**
+     * 58^5,每个 limb 存 5 位 base58 数字;乘以 2^32 仍不超出 long
+     */
+    private static final long LIMB_BASE = 58L * 58 * 58 * 58 * 58;
+    private static final int LIMB_DIGITS = 5;
+    private static final long[] POWERS_OF_58 = { 1L, 58L, 58L * 58, 58L * 58 * 58, 58L * 58 * 58 * 58, LIMB_BASE };
+
     /**
      * Encodes the given bytes as a base58 string (no checksum is appended).
+     * <p>
+     * 每次吸收 4 个输入字节,按 58^5 为基的 limb 做乘加,
+     * 相比逐字节逐位的 divmod 循环次数约减少 20 倍
      *
      * @param input the bytes to encode
      * @return the base58-encoded string
@@ -33,20 +43,45 @@ public class SuiteBase58 {
         while (zeros < input.length && input[zeros] == 0) {
             ++zeros;
         }
-        // Convert base-256 digits to base-58 digits (plus conversion to ASCII characters)
-        input = Arrays.copyOf(input, input.length); // since we modify it in-place
-        char[] encoded = new char[input.length * 2]; // upper bound
+        // base-256 -> base-58^5 limbs, little endian
+        int[] limbs = new int[(input.length - zeros) * 8 / 29 + 2];
+        int used = 0;
+        int position = zeros;
+        int chunk = (input.length - zeros) % 4;
+        if (chunk == 0) {
+            chunk = 4;
+        }
+        while (position < input.length) {
+            long carry = 0;
+            for (int k = 0; k < chunk; k++) {
+                carry = (carry << 8) | (input[position++] & 0xFF);
+            }
+            long multiplier = 1L << (8 * chunk);
+            for (int j = 0; j < used; j++) {
+                long temp = limbs[j] * multiplier + carry;
+                limbs[j] = (int) (temp % LIMB_BASE);
+                carry = temp / LIMB_BASE;
+            }
+            while (carry > 0) {
+                limbs[used++] = (int) (carry % LIMB_BASE);
+                carry /= LIMB_BASE;
+            }
+            chunk = 4;
+        }
+        char[] encoded = new char[zeros + used * LIMB_DIGITS];
         int outputStart = encoded.length;
-        for (int inputStart = zeros; inputStart < input.length; ) {
-            encoded[--outputStart] = ALPHABET[divmod(input, inputStart, 256, 58)];
-            if (input[inputStart] == 0) {
-                ++inputStart; // optimization - skip leading zeros
+        for (int j = 0; j < used; j++) {
+            int limb = limbs[j];
+            for (int k = 0; k < LIMB_DIGITS; k++) {
+                encoded[--outputStart] = ALPHABET[limb % 58];
+                limb /= 58;
             }
         }
-        // Preserve exactly as many leading encoded zeros in output as there were leading zeros in input.
+        // Strip the zero digits padded into the top limb.
         while (outputStart < encoded.length && encoded[outputStart] == ENCODED_ZERO) {
             ++outputStart;
         }
+        // Preserve exactly as many leading encoded zeros in output as there were leading zeros in input.
         while (--zeros >= 0) {
             encoded[--outputStart] = ENCODED_ZERO;
         }
@@ -56,6 +91,8 @@ public class SuiteBase58 {
 
     /**
      * Decodes the given base58 string into the original data bytes.
+     * <p>
+     * 每次吸收 5 个 base58 数字,按 2^32 为基的 limb 做乘加
      *
      * @param input the base58-encoded string to decode
      * @return the decoded data bytes
@@ -65,36 +102,65 @@ public class SuiteBase58 {
         if (input.length() == 0) {
             return new byte[0];
         }
-        // Convert the base58-encoded ASCII chars to a base58 byte sequence (base58 digits).
-        byte[] input58 = new byte[input.length()];
-        for (int i = 0; i < input.length(); ++i) {
-            char c = input.charAt(i);
-            int digit = c < 128 ? INDEXES[c] : -1;
-            if (digit < 0) {
-                throw new BcAddressFormatException("Illegal character " + c + " at position " + i);
-            }
-            input58[i] = (byte) digit;
-        }
-        // Count leading zeros.
+        int length = input.length();
+        // Count leading zeros, validating as we go.
         int zeros = 0;
-        while (zeros < input58.length && input58[zeros] == 0) {
+        while (zeros < length && digit(input, zeros) == 0) {
             ++zeros;
         }
-        // Convert base-58 digits to base-256 digits.
-        byte[] decoded = new byte[input.length()];
-        int outputStart = decoded.length;
-        for (int inputStart = zeros; inputStart < input58.length; ) {
-            decoded[--outputStart] = divmod(input58, inputStart, 58, 256);
-            if (input58[inputStart] == 0) {
-                ++inputStart; // optimization - skip leading zeros
+        // base-58 -> base-2^32 limbs, little endian
+        int[] limbs = new int[(length - zeros) * 6 / 32 + 2];
+        int used = 0;
+        int position = zeros;
+        int chunk = (length - zeros) % LIMB_DIGITS;
+        if (chunk == 0) {
+            chunk = LIMB_DIGITS;
+        }
+        while (position < length) {
+            long carry = 0;
+            for (int k = 0; k < chunk; k++) {
+                carry = carry * 58 + digit(input, position++);
+            }
+            long multiplier = POWERS_OF_58[chunk];
+            for (int j = 0; j < used; j++) {
+                long temp = (limbs[j] & 0xFFFFFFFFL) * multiplier + carry;
+                limbs[j] = (int) temp;
+                carry = temp >>> 32;
             }
+            while (carry > 0) {
+                limbs[used++] = (int) carry;
+                carry >>>= 32;
+            }
+            chunk = LIMB_DIGITS;
         }
-        // Ignore extra leading zeroes that were added during the calculation.
-        while (outputStart < decoded.length && decoded[outputStart] == 0) {
-            ++outputStart;
+        int significant = used * 4;
+        if (used > 0) {
+            int top = limbs[used - 1];
+            while ((top >>> 24) == 0) {
+                top <<= 8;
+                significant--;
+            }
+        }
+        byte[] decoded = new byte[zeros + significant];
+        int outputPosition = decoded.length;
+        for (int j = 0; j < used && outputPosition > zeros; j++) {
+            int limb = limbs[j];
+            for (int k = 0; k < 4 && outputPosition > zeros; k++) {
+                decoded[--outputPosition] = (byte) limb;
+                limb >>>= 8;
+            }
         }
         // Return decoded data (including original number of leading zeros).
-        return Arrays.copyOfRange(decoded, outputStart - zeros, decoded.length);
+        return decoded;
+    }
+
+    private static int digit(String input, int position) throws BcAddressFormatException {
+        char c = input.charAt(position);
+        int digit = c < 128 ? INDEXES[c] : -1;
+        if (digit < 0) {
+            throw new BcAddressFormatException("Illegal character " + c + " at position " + position);
+        }
+        return digit;
     }
     
     public static BigInteger decodeToBigInteger(String input) throws BcAddressFormatException {
@@ -113,35 +179,11 @@ public class SuiteBase58 {
         byte[] decoded  = decode(input);
         if (decoded.length < 4)
             throw new BcAddressFormatException("Input too short");
-        byte[] data = Arrays.copyOfRange(decoded, 0, decoded.length - 4);
-        byte[] checksum = Arrays.copyOfRange(decoded, decoded.length - 4, decoded.length);
-        byte[] actualChecksum = Arrays.copyOfRange(Sha256Hash.hashTwice(data), 0, 4);
-        if (!Arrays.equals(checksum, actualChecksum))
+        int dataLength = decoded.length - 4;
+        int checksum = (decoded[dataLength] & 0xFF) << 24 | (decoded[dataLength + 1] & 0xFF) << 16
+                | (decoded[dataLength + 2] & 0xFF) << 8 | (decoded[dataLength + 3] & 0xFF);
+        if (checksum != DigestPool.checksum(decoded, 0, dataLength))
             throw new BcAddressFormatException("Checksum does not validate");
-        return data;
-    }
-
-    /**
-     * Divides a number, represented as an array of bytes each containing a single digit
-     * in the specified base, by the given divisor. The given number is modified in-place
-     * to contain the quotient, and the return value is the remainder.
-     *
-     * @param number the number to divide
-     * @param firstDigit the index within the array of the first non-zero digit
-     *        (this is used for optimization by skipping the leading zeros)
-     * @param base the base in which the number's digits are represented (up to 256)
-     * @param divisor the number to divide by (up to 256)
-     * @return the remainder of the division operation
-     */
-    private static byte divmod(byte[] number, int firstDigit, int base, int divisor) {
-        // this is just long division which accounts for the base of the input digits
-        int remainder = 0;
-        for (int i = firstDigit; i < number.length; i++) {
-            int digit = (int) number[i] & 0xFF;
-            int temp = remainder * base + digit;
-            number[i] = (byte) (temp / divisor);
-            remainder = temp % divisor;
-        }
-        return (byte) remainder;
+        return Arrays.copyOf(decoded, dataLength);
     }
 }
@@ -0,0 +1,115 @@
+package com.utsoft.blockchain.api.security;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.spec.ECGenParameterSpec;
+import java.util.concurrent.Callable;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Test;
+import com.utsoft.blockchain.api.exception.CryptionException;
+/**
+ * 套件互通: 任一套件的签名在其它套件下验签结果一致,COMB 预计算前后结果(含异常)与默认套件一致
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+public class CryptionSuiteCompatibilityTest {
+
+	private static final String SIGNATURE_ALGORITHM = "SHA256withECDSA";
+	private static final String[] SUITES = { "DEFAULT", "FAST", "COMB" };
+	private static final byte[] PLAIN_TEXT = "tkc&1508112000&1BoatSLRHtKNngkdXEeobR76b53LETtpyT&transfer&{\"amount\":\"100.00\"}"
+			.getBytes(StandardCharsets.UTF_8);
+	private static final byte[] TAMPERED = "tkc&1508112000&1BoatSLRHtKNngkdXEeobR76b53LETtpyT&transfer&{\"amount\":\"999.00\"}"
+			.getBytes(StandardCharsets.UTF_8);
+
+	public CryptionSuiteCompatibilityTest() {
+		if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+			Security.addProvider(new BouncyCastleProvider());
+		}
+	}
+
+	@Test
+	public void signaturesVerifyAcrossSuites() throws Exception {
+		for (String signer : SUITES) {
+			FamilySecCrypto signerSuite = FamilySecCrypto.Factory.getCryptoSuite(signer);
+			KeyPair keyPair = generateKeyPair();
+			PrivateKey privateKey = signerSuite.loadPrivateKeyByStr(signerSuite.convertPrivatelicKey(keyPair.getPrivate()));
+			byte[] signature = signerSuite.sign(privateKey, PLAIN_TEXT);
+			byte[] digestSignature = signerSuite.signDigest(privateKey, sha256(PLAIN_TEXT));
+
+			for (String verifier : SUITES) {
+				FamilySecCrypto verifierSuite = FamilySecCrypto.Factory.getCryptoSuite(verifier);
+				PublicKey publicKey = verifierSuite.loadPublicKeyByStr(verifierSuite.convertPublicKey(keyPair.getPublic()));
+				String pair = signer + " -> " + verifier;
+				for (byte[] sig : new byte[][] { signature, digestSignature }) {
+					assertTrue(pair, verifierSuite.verifySignatureByPublic(publicKey, SIGNATURE_ALGORITHM, sig, PLAIN_TEXT));
+					assertTrue(pair, verifierSuite.verifyDigestByPublic(publicKey, sig, sha256(PLAIN_TEXT)));
+					assertFalse(pair, verifierSuite.verifySignatureByPublic(publicKey, SIGNATURE_ALGORITHM, sig, TAMPERED));
+					assertFalse(pair, verifierSuite.verifyDigestByPublic(publicKey, sig, sha256(TAMPERED)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void combVerifiesAcrossHotThreshold() throws Exception {
+		FamilySecCrypto defaultSuite = FamilySecCrypto.Factory.getCryptoSuite("DEFAULT");
+		FamilySecCrypto comb = FamilySecCrypto.Factory.getCryptoSuite("COMB");
+		KeyPair keyPair = generateKeyPair();
+		PrivateKey privateKey = defaultSuite.loadPrivateKeyByStr(defaultSuite.convertPrivatelicKey(keyPair.getPrivate()));
+		PublicKey publicKey = comb.loadPublicKeyByStr(comb.convertPublicKey(keyPair.getPublic()));
+		byte[] signature = defaultSuite.sign(privateKey, PLAIN_TEXT);
+		byte[] otherSignature = defaultSuite.sign(privateKey, TAMPERED);
+
+		byte[] malformed = { 0x30, 0x00 };
+		String malformedOutcome = outcome(() -> defaultSuite.verifySignatureByPublic(publicKey, SIGNATURE_ALGORITHM, malformed, PLAIN_TEXT));
+		String malformedDigestOutcome = outcome(() -> defaultSuite.verifyDigestByPublic(publicKey, malformed, sha256(PLAIN_TEXT)));
+
+		int rounds = CryptionConfig.getConfig().getCombHotThreshold() * 2;
+		for (int i = 0; i < rounds; i++) {
+			String round = "round " + i;
+			assertTrue(round, comb.verifySignatureByPublic(publicKey, SIGNATURE_ALGORITHM, signature, PLAIN_TEXT));
+			assertTrue(round, comb.verifyDigestByPublic(publicKey, otherSignature, sha256(TAMPERED)));
+			assertFalse(round, comb.verifySignatureByPublic(publicKey, SIGNATURE_ALGORITHM, otherSignature, PLAIN_TEXT));
+			assertFalse(round, comb.verifyDigestByPublic(publicKey, signature, sha256(TAMPERED)));
+			assertEquals(round, malformedOutcome,
+					outcome(() -> comb.verifySignatureByPublic(publicKey, SIGNATURE_ALGORITHM, malformed, PLAIN_TEXT)));
+			assertEquals(round, malformedDigestOutcome,
+					outcome(() -> comb.verifyDigestByPublic(publicKey, malformed, sha256(PLAIN_TEXT))));
+		}
+		// COMB 签名在默认套件下同样有效
+		assertTrue(defaultSuite.verifySignatureByPublic(publicKey, SIGNATURE_ALGORITHM, comb.sign(privateKey, PLAIN_TEXT), PLAIN_TEXT));
+	}
+
+	/**
+	 * 验签结果或抛出的异常类型
+	 */
+	private static String outcome(Callable<Boolean> verify) {
+		try {
+			return String.valueOf(verify.call());
+		} catch (Exception e) {
+			return e.getClass().getName();
+		}
+	}
+
+	private static KeyPair generateKeyPair() throws Exception {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("ECDSA", BouncyCastleProvider.PROVIDER_NAME);
+		generator.initialize(new ECGenParameterSpec("secp256r1"));
+		return generator.generateKeyPair();
+	}
+
+	private static byte[] sha256(byte[] plainText) throws CryptionException {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(plainText);
+		} catch (Exception e) {
+			throw new CryptionException("sha256 unavailable", e);
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package com.utsoft.blockchain.api.security.bc;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import java.util.Arrays;
+import org.junit.Test;
+import com.utsoft.blockchain.api.exception.BcAddressFormatException;
+/**
+ * 地址解析缓存: 命中与未命中结果一致,返回的实例互不共享字节
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+public class RbcAddressTest {
+
+	private static final String ADDRESS = "1BoatSLRHtKNngkdXEeobR76b53LETtpyT";
+
+	@Test
+	public void roundTrip() throws BcAddressFormatException {
+		byte[] hash160 = new byte[20];
+		Arrays.fill(hash160, (byte) 0x5A);
+		RbcAddress address = new RbcAddress(0, hash160);
+		RbcAddress parsed = RbcAddress.fromBase58(address.toBase58());
+		assertEquals(address, parsed);
+		assertEquals(address.toBase58(), parsed.toBase58());
+	}
+
+	@Test
+	public void cachedAddressIsNotShared() throws BcAddressFormatException {
+		RbcAddress first = RbcAddress.fromBase58(ADDRESS);
+		byte[] expected = first.bytes.clone();
+		first.bytes[0] ^= 0x7F;
+
+		RbcAddress second = RbcAddress.fromBase58(ADDRESS);
+		assertNotSame(first, second);
+		assertArrayEquals(expected, second.bytes);
+		assertEquals(ADDRESS, second.toBase58());
+	}
+
+	@Test
+	public void validate() {
+		assertTrue(RbcAddress.isValid(ADDRESS));
+		assertTrue(RbcAddress.isValid(ADDRESS));
+		assertFalse(RbcAddress.isValid("1BoatSLRHtKNngkdXEeobR76b53LETtpyU"));
+		assertFalse(RbcAddress.isValid(""));
+		assertFalse(RbcAddress.isValid(null));
+		boolean[] results = RbcAddress.validateAll(Arrays.asList(ADDRESS, "0OIl", ADDRESS));
+		assertTrue(results[0]);
+		assertFalse(results[1]);
+		assertTrue(results[2]);
+	}
+}
@@ -0,0 +1,91 @@
+package com.utsoft.blockchain.api.util;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.spec.ECGenParameterSpec;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Test;
+import com.utsoft.blockchain.api.security.FamilySecCrypto;
+/**
+ * 流式原文与 SignaturePlayload 逐字节一致,客户端签名可按摘要或原文验签
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+public class CanonicalPlayloadTest {
+
+	private static final String[] FIELDS = { "tkc", "1508112000", "1BoatSLRHtKNngkdXEeobR76b53LETtpyT", null,
+			"transfer", "{\"amount\":\"100.00\",\"remark\":\"转账 😀\"}", "" };
+
+	private final FamilySecCrypto crypto = FamilySecCrypto.Factory.getCryptoSuite();
+	private final PublicKey publicKey;
+	private final String privateKey;
+
+	public CanonicalPlayloadTest() throws Exception {
+		if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+			Security.addProvider(new BouncyCastleProvider());
+		}
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("ECDSA", BouncyCastleProvider.PROVIDER_NAME);
+		generator.initialize(new ECGenParameterSpec("secp256r1"));
+		KeyPair keyPair = generator.generateKeyPair();
+		publicKey = crypto.loadPublicKeyByStr(crypto.convertPublicKey(keyPair.getPublic()));
+		privateKey = crypto.convertPrivatelicKey(keyPair.getPrivate());
+	}
+
+	@Test
+	public void sameBytesAsSignaturePlayload() throws Exception {
+		assertArrayEquals(signaturePlayload(FIELDS).originalPacket(), canonical(FIELDS).originalPacket());
+		assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(signaturePlayload(FIELDS).originalPacket()),
+				canonical(FIELDS).digest());
+	}
+
+	@Test
+	public void clientSignatureVerifiesByDigestAndByOriginal() throws Exception {
+		byte[] signature = SdkUtil.decodeHexStrig(signaturePlayload(FIELDS).doSignature(privateKey));
+		assertTrue(crypto.verifyDigestByPublic(publicKey, signature, canonical(FIELDS).digest()));
+		assertTrue(crypto.verifySignatureByPublic(publicKey, "SHA256withECDSA", signature,
+				canonical(FIELDS).originalPacket()));
+
+		String[] tampered = FIELDS.clone();
+		tampered[5] = "{\"amount\":\"999.00\"}";
+		assertFalse(crypto.verifyDigestByPublic(publicKey, signature, canonical(tampered).digest()));
+		assertFalse(crypto.verifySignatureByPublic(publicKey, "SHA256withECDSA", signature,
+				canonical(tampered).originalPacket()));
+	}
+
+	@Test
+	public void largePayloadGrowsBuffer() throws Exception {
+		StringBuilder json = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			json.append("数据").append(i);
+		}
+		String[] fields = { "tkc", json.toString() };
+		byte[] expected = signaturePlayload(fields).originalPacket();
+		assertArrayEquals(expected, canonical(fields).originalPacket());
+		assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(expected), canonical(fields).digest());
+		// 重置后缓冲区复用,结果不受上一个报文影响
+		assertArrayEquals("tkc&x".getBytes(StandardCharsets.UTF_8), canonical("tkc", "x").originalPacket());
+	}
+
+	private SignaturePlayload signaturePlayload(String... fields) {
+		SignaturePlayload playload = new SignaturePlayload(crypto);
+		for (String field : fields) {
+			playload.addPlayload(field);
+		}
+		return playload;
+	}
+
+	private static CanonicalPlayload canonical(String... fields) {
+		CanonicalPlayload playload = CanonicalPlayload.local();
+		for (String field : fields) {
+			playload.addPlayload(field);
+		}
+		return playload;
+	}
+}
@@ -0,0 +1,111 @@
+package com.utsoft.blockchain.api.util;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import com.utsoft.blockchain.api.exception.BcAddressFormatException;
+/**
+ * base58 编解码: 标准向量及与 BigInteger 逐位实现的对照
+ * @author hunterfox
+ * @date: 2017年10月17日
+ * @version 1.0.0
+ */
+public class SuiteBase58Test {
+
+	private static final String[][] VECTORS = {
+			{ "", "" },
+			{ "61", "2g" },
+			{ "626262", "a3gV" },
+			{ "636363", "aPEr" },
+			{ "73696d706c792061206c6f6e6720737472696e67", "2cFupjhnEsSn59qHXstmK2ffpLv2" },
+			{ "00eb15231dfceb60925886b67d065299925915aeb172c06647", "1NS17iag9jJgTHD1VXjvLCEnZuQ3rJDE9L" },
+			{ "516b6fcd0f", "ABnLTmg" },
+			{ "bf4f89001e670274dd", "3SEo3LWLoPntC" },
+			{ "572e4794", "3EFU7m" },
+			{ "ecac89cad93923c02321", "EJDM8drfXA6uyA" },
+			{ "10c8511e", "Rt5zm" },
+			{ "00000000000000000000", "1111111111" } };
+
+	@Test
+	public void encodeAndDecodeVectors() throws BcAddressFormatException {
+		for (String[] vector : VECTORS) {
+			byte[] bytes = hex(vector[0]);
+			assertEquals(vector[1], SuiteBase58.encode(bytes));
+			assertArrayEquals(bytes, SuiteBase58.decode(vector[1]));
+		}
+	}
+
+	@Test
+	public void matchesBigIntegerReference() throws BcAddressFormatException {
+		Random random = new Random(20171017L);
+		for (int i = 0; i < 2000; i++) {
+			byte[] bytes = new byte[random.nextInt(64)];
+			random.nextBytes(bytes);
+			if (bytes.length > 0 && random.nextInt(4) == 0) {
+				// 前导零
+				Arrays.fill(bytes, 0, random.nextInt(bytes.length) + 1, (byte) 0);
+			}
+			String encoded = reference(bytes);
+			assertEquals(encoded, SuiteBase58.encode(bytes));
+			assertArrayEquals(bytes, SuiteBase58.decode(encoded));
+		}
+	}
+
+	@Test
+	public void decodeToBigInteger() throws BcAddressFormatException {
+		assertEquals(new BigInteger("626262", 16), SuiteBase58.decodeToBigInteger("a3gV"));
+	}
+
+	@Test
+	public void rejectsInvalidCharacters() {
+		for (String input : new String[] { "0", "O", "I", "l", "3SEo3LWLo+PntC", "中" }) {
+			try {
+				SuiteBase58.decode(input);
+				fail("accepted " + input);
+			} catch (BcAddressFormatException expected) {
+			}
+		}
+	}
+
+	@Test
+	public void decodeCheckedVerifiesChecksum() throws BcAddressFormatException {
+		String address = "1BoatSLRHtKNngkdXEeobR76b53LETtpyT";
+		assertArrayEquals(hex("007680adec8eabcabac676be9e83854ade0bd22cdb"), SuiteBase58.decodeChecked(address));
+		try {
+			SuiteBase58.decodeChecked("1BoatSLRHtKNngkdXEeobR76b53LETtpyU");
+			fail("accepted bad checksum");
+		} catch (BcAddressFormatException expected) {
+		}
+		try {
+			SuiteBase58.decodeChecked("2g");
+			fail("accepted short input");
+		} catch (BcAddressFormatException expected) {
+		}
+	}
+
+	private static String reference(byte[] bytes) {
+		StringBuilder sb = new StringBuilder();
+		BigInteger value = new BigInteger(1, bytes);
+		BigInteger base = BigInteger.valueOf(58);
+		while (value.signum() > 0) {
+			BigInteger[] divmod = value.divideAndRemainder(base);
+			sb.append(SuiteBase58.ALPHABET[divmod[1].intValue()]);
+			value = divmod[0];
+		}
+		for (int i = 0; i < bytes.length && bytes[i] == 0; i++) {
+			sb.append(SuiteBase58.ALPHABET[0]);
+		}
+		return sb.reverse().toString();
+	}
+
+	private static byte[] hex(String hex) {
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,32 @@
+package com.utsoft.blockchain.api.controller;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import com.utsoft.blockchain.api.AbstractController;
+import com.utsoft.blockchain.api.pojo.BaseResponseModel;
+import com.utsoft.blockchain.core.service.applycall.CallbackHttpDispatcher;
+import io.swagger.annotations.Api;
+/**
+ * 回调地址投递统计查询
+ * @author hunterfox
+ * @date 2017年10月17日
+ * @version 1.0.0
+ */
+@RestController
+@Api(tags = "admin", value = "callback endpoint API")
+public class CallbackEndpointController extends AbstractController {
+
+	@Autowired
+	private CallbackHttpDispatcher callbackHttpDispatcher;
+
+	/**
+	 * 各回调地址的并发、排队、成功/失败次数和耗时直方图
+	 * @return
+	 */
+	@RequestMapping(value = "/admin/callback_endpoints", method = RequestMethod.GET)
+	public BaseResponseModel<Map<String, CallbackHttpDispatcher.EndpointStats>> callbackEndpoints() {
+		return BaseResponseModel.build(callbackHttpDispatcher.snapshot());
+	}
+}
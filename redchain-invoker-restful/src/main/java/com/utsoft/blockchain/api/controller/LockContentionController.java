@@ -0,0 +1,34 @@
+package com.utsoft.blockchain.api.controller;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import com.utsoft.blockchain.api.AbstractController;
+import com.utsoft.blockchain.api.pojo.BaseResponseModel;
+import com.utsoft.blockchain.core.rpc.locker.LockContentionAnalytics;
+import com.utsoft.blockchain.core.util.TopKSketch;
+import io.swagger.annotations.Api;
+/**
+ * 热点账户争用统计查询
+ * @author hunterfox
+ * @date 2017年10月10日
+ * @version 1.0.0
+ */
+@RestController
+@Api(tags = "admin", value = "lock contention API")
+public class LockContentionController extends AbstractController {
+
+	@Autowired
+	private LockContentionAnalytics contentionAnalytics;
+
+	/**
+	 * 按被拒次数、持有时长、等待时长排序的热点地址
+	 * @return
+	 */
+	@RequestMapping(value = "/admin/lock_contention", method = RequestMethod.GET)
+	public BaseResponseModel<Map<String, List<TopKSketch.Item>>> lockContention() {
+		return BaseResponseModel.build(contentionAnalytics.snapshot());
+	}
+}
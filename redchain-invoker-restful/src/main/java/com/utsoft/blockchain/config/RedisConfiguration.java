@@ -10,10 +10,15 @@ import org.springframework.cache.interceptor.KeyGenerator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.util.StringUtils;
 
+import com.utsoft.blockchain.core.util.CompactRedisSerializer;
+import com.utsoft.blockchain.core.util.FormatUtil;
 import com.utsoft.blockchain.core.util.LocalConstants;
 
 import redis.clients.jedis.JedisPoolConfig;
@@ -47,6 +52,21 @@ public class RedisConfiguration  extends CachingConfigurerSupport {
    
     @Value("${spring.redis.pool.max-wait}")  
     private int maxWait;  
+    
+    /**
+     * jdk: 按 JDK 序列化写入; compact: 按紧凑二进制写入。两种模式都能读取两种格式
+     */
+    @Value("${spring.redis.codec:jdk}")  
+    private String codec;  
+    
+    /**
+     * 集群节点 host:port,host:port;为空时使用单机 host/port
+     */
+    @Value("${spring.redis.cluster.nodes:}")  
+    private String clusterNodes;  
+    
+    @Value("${spring.redis.cluster.max-redirects:5}")  
+    private int maxRedirects;  
 	    
 	 @Bean
 	 public KeyGenerator keyGenerator() {
@@ -66,17 +86,24 @@ public class RedisConfiguration  extends CachingConfigurerSupport {
 	 
 	 @Bean  
 	 public JedisConnectionFactory jedisConnectionFactory() {  
-	        JedisConnectionFactory factory = new JedisConnectionFactory();  
-	        factory.setPassword(password);  
-	        factory.setHostName(host);  
-	        factory.setPort(port);  
-	        factory.setTimeout(60*1000);
 	        JedisPoolConfig jedisPoolConfig = new JedisPoolConfig();  
 	        jedisPoolConfig.setMaxTotal(maxActive);  
 	        jedisPoolConfig.setMaxIdle(maxIdle);  
 	        jedisPoolConfig.setMinIdle(minIdle);  
 	        jedisPoolConfig.setMaxWaitMillis(maxWait);  
-	        factory.setPoolConfig(jedisPoolConfig);  
+	        JedisConnectionFactory factory;
+	        if (StringUtils.hasText(clusterNodes)) {
+	        	RedisClusterConfiguration clusterConfiguration = new RedisClusterConfiguration(StringUtils.commaDelimitedListToSet(clusterNodes));
+	        	clusterConfiguration.setMaxRedirects(maxRedirects);
+	        	factory = new JedisConnectionFactory(clusterConfiguration, jedisPoolConfig);
+	        } else {
+	        	factory = new JedisConnectionFactory();  
+	        	factory.setHostName(host);  
+	        	factory.setPort(port);  
+	        	factory.setPoolConfig(jedisPoolConfig);  
+	        }
+	        factory.setPassword(password);  
+	        factory.setTimeout(60*1000);
 	        return factory;  
 	    }  
 	 
@@ -93,6 +120,13 @@ public class RedisConfiguration  extends CachingConfigurerSupport {
 	    public RedisTemplate<Serializable, Serializable> redisTemplate(RedisConnectionFactory redisConnectionFactory) {
 			RedisTemplate<Serializable, Serializable> redisTemplate = new RedisTemplate<Serializable, Serializable>();
 			redisTemplate.setConnectionFactory(redisConnectionFactory);
+			if (FormatUtil.isCompactKeyLayout()) {
+				redisTemplate.setKeySerializer(new StringRedisSerializer());
+				redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+			}
+			CompactRedisSerializer valueSerializer = new CompactRedisSerializer("compact".equalsIgnoreCase(codec));
+			redisTemplate.setValueSerializer(valueSerializer);
+			redisTemplate.setHashValueSerializer(valueSerializer);
 			return redisTemplate;
 		}
 	    